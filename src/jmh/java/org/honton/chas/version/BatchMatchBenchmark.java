@@ -0,0 +1,67 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Batch matching, sequential and on the common ForkJoinPool, to find where the parallel threshold
+ * pays for itself.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class BatchMatchBenchmark {
+
+  @Param({"1024", "16384", "262144"})
+  public int batchSize;
+
+  @Param({"false", "true"})
+  public boolean parallel;
+
+  private VersionMatcher matcher;
+  private String[] texts;
+  private SemVer[] actuals;
+
+  @Setup
+  public void setup() {
+    matcher = new VersionMatcher("1.5.0", "2.10.0", "3.0.0-rc.1", "4.1");
+    matcher.setParallelThreshold(parallel ? 1 : Integer.MAX_VALUE);
+    texts = BenchmarkVersions.generate(batchSize, 31);
+    actuals = new SemVer[batchSize];
+    for (int i = 0; i < batchSize; ++i) {
+      actuals[i] = SemVer.valueOf(texts[i]);
+    }
+  }
+
+  @Benchmark
+  public int[] matchVersions() {
+    return matcher.findMatchingIndices(actuals);
+  }
+
+  @Benchmark
+  public int[] matchStrings() {
+    return matcher.findMatchingIndices(texts);
+  }
+}
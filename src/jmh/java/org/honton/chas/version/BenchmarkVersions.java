@@ -0,0 +1,53 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.util.Random;
+
+/** Version strings shaped like those found on real classpaths and in client requests. */
+final class BenchmarkVersions {
+
+  private static final String[] QUALIFIERS = {
+    "-SNAPSHOT", "-rc.1", "-alpha.2", "-beta", "-jre", "-android", "-M3", "-0.3.7"
+  };
+
+  private BenchmarkVersions() {}
+
+  /**
+   * Generate versions: mostly three part releases, with some two and four part versions, some
+   * pre-release qualifiers, and a little build metadata.
+   *
+   * @param count The number of versions
+   * @param seed The random seed, so that runs are comparable
+   */
+  static String[] generate(int count, long seed) {
+    Random random = new Random(seed);
+    String[] versions = new String[count];
+    for (int i = 0; i < count; ++i) {
+      StringBuilder sb = new StringBuilder();
+      sb.append(random.nextInt(5)).append('.').append(random.nextInt(30));
+      int parts = random.nextInt(10);
+      if (parts > 0) {
+        sb.append('.').append(random.nextInt(200));
+      }
+      if (parts > 8) {
+        sb.append('.').append(random.nextInt(10));
+      }
+      if (random.nextInt(4) == 0) {
+        sb.append(QUALIFIERS[random.nextInt(QUALIFIERS.length)]);
+      }
+      if (random.nextInt(20) == 0) {
+        sb.append("+build.").append(random.nextInt(1000));
+      }
+      versions[i] = sb.toString();
+    }
+    return versions;
+  }
+}
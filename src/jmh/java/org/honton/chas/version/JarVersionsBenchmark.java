@@ -0,0 +1,107 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scanning a generated classpath of small jars, or of shaded jars with thousands of entries ahead
+ * of their pom.properties. The jars are read from the page cache after the first iteration, so this
+ * measures parsing rather than disk I/O.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class JarVersionsBenchmark {
+
+  private static final int JAR_COUNT = 100;
+
+  /** small jars have a handful of classes; shaded jars have thousands */
+  @Param({"small", "shaded"})
+  public String jars;
+
+  private File directory;
+  private File[] files;
+  private URLClassLoader classLoader;
+
+  @Setup
+  public void setup() throws IOException {
+    int classCount = "shaded".equals(jars) ? 5000 : 10;
+    directory = Files.createTempDirectory("jar-versions-benchmark").toFile();
+    files = new File[JAR_COUNT];
+    URL[] urls = new URL[JAR_COUNT];
+    for (int i = 0; i < JAR_COUNT; ++i) {
+      File jar = new File(directory, "artifact" + i + ".jar");
+      files[i] = TestJars.mavenJar(jar, "org.example", "artifact" + i, "1." + i, classCount, false);
+      urls[i] = jar.toURI().toURL();
+    }
+    classLoader = new URLClassLoader(urls, null);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    classLoader.close();
+    for (File file : files) {
+      Files.delete(file.toPath());
+    }
+    Files.delete(directory.toPath());
+  }
+
+  @Benchmark
+  public Map<String, String> scan() {
+    return new JarVersions(classLoader).getDependentJars();
+  }
+
+  @Benchmark
+  public Map<String, String> scanConcurrently() {
+    return JarVersions.scanConcurrently(classLoader).getDependentJars();
+  }
+
+  /** Read each jar through its central directory */
+  @Benchmark
+  public int extractZipArchive() {
+    int found = 0;
+    for (File file : files) {
+      found += VersionExtractor.extractVersion(file) != null ? 1 : 0;
+    }
+    return found;
+  }
+
+  /** Read each jar by iterating the entries of a JarFile, as before ZipArchive */
+  @Benchmark
+  public int extractJarFile() {
+    int found = 0;
+    for (File file : files) {
+      found += VersionExtractor.extractVersionFromJarFile(file) != null ? 1 : 0;
+    }
+    return found;
+  }
+}
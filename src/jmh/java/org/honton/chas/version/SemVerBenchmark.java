@@ -0,0 +1,106 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Parsing, support checks and pre-release comparison over a realistic mix of versions. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class SemVerBenchmark {
+
+  private static final int COUNT = 1024;
+
+  private String[] texts;
+  private byte[][] bytes;
+  private SemVer[] versions;
+  private SemVer expected;
+  private SemVer expectedPreRelease;
+
+  @Setup
+  public void setup() {
+    texts = BenchmarkVersions.generate(COUNT, 17);
+    bytes = new byte[COUNT][];
+    versions = new SemVer[COUNT];
+    for (int i = 0; i < COUNT; ++i) {
+      bytes[i] = texts[i].getBytes(StandardCharsets.US_ASCII);
+      versions[i] = SemVer.valueOf(texts[i]);
+    }
+    expected = SemVer.valueOf("2.10.0");
+    expectedPreRelease = SemVer.valueOf("2.10.0-beta.2");
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(COUNT)
+  public void valueOf(Blackhole blackhole) {
+    for (String text : texts) {
+      blackhole.consume(SemVer.valueOf(text));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(COUNT)
+  public void isValidBytes(Blackhole blackhole) {
+    for (byte[] text : bytes) {
+      blackhole.consume(SemVer.isValid(text, 0, text.length));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(COUNT)
+  public void isSupported(Blackhole blackhole) {
+    for (SemVer version : versions) {
+      blackhole.consume(version.isSupported(expected));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(COUNT)
+  public void isSupportedPreRelease(Blackhole blackhole) {
+    for (SemVer version : versions) {
+      blackhole.consume(version.isSupported(expectedPreRelease));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(COUNT)
+  public void isSupportedBytes(Blackhole blackhole) {
+    for (byte[] text : bytes) {
+      blackhole.consume(SemVer.isSupported(text, 0, text.length, expectedPreRelease));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(COUNT)
+  public void compareTo(Blackhole blackhole) {
+    SemVer previous = versions[COUNT - 1];
+    for (SemVer version : versions) {
+      blackhole.consume(version.compareTo(previous));
+      previous = version;
+    }
+  }
+}
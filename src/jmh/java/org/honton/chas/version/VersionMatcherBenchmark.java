@@ -0,0 +1,82 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Matching actual versions against 1 to 1000 expectations. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class VersionMatcherBenchmark {
+
+  private static final int COUNT = 1024;
+
+  @Param({"1", "10", "100", "1000"})
+  public int expectations;
+
+  /** The maximum memoized decisions; or 0, to decide each time */
+  @Param({"0", "4096"})
+  public int memoized;
+
+  private VersionMatcher matcher;
+  private String[] texts;
+  private SemVer[] actuals;
+
+  @Setup
+  public void setup() {
+    String[] expected = BenchmarkVersions.generate(expectations, 5);
+    matcher = new VersionMatcher(expected[0], Arrays.copyOfRange(expected, 1, expected.length));
+    if (memoized > 0) {
+      matcher.memoizeDecisions(memoized);
+    }
+    // few distinct actual versions, as a gateway sees from its clients
+    String[] distinct = BenchmarkVersions.generate(64, 23);
+    texts = new String[COUNT];
+    actuals = new SemVer[COUNT];
+    for (int i = 0; i < COUNT; ++i) {
+      texts[i] = distinct[i % distinct.length];
+      actuals[i] = SemVer.valueOf(texts[i]);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(COUNT)
+  public void findMatchingVersion(Blackhole blackhole) {
+    for (SemVer actual : actuals) {
+      blackhole.consume(matcher.findMatchingVersion(actual));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(COUNT)
+  public void getErrorMessage(Blackhole blackhole) {
+    for (String text : texts) {
+      blackhole.consume(matcher.getErrorMessage(text));
+    }
+  }
+}
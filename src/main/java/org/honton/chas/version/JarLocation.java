@@ -0,0 +1,111 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+
+/**
+ * The location of a jar. The jar is either a file, or is an entry nested inside of a jar file, as
+ * in a fat jar such as <i>app.jar!/BOOT-INF/lib/foo.jar</i>.
+ */
+@Getter
+@EqualsAndHashCode
+final class JarLocation {
+
+  static final String SEPARATOR = "!/";
+
+  /** The outermost jar file */
+  private final File file;
+  /** The names of the entries holding the jar, outermost first; empty for a jar file */
+  private final List<String> nestedEntries;
+
+  JarLocation(@NonNull File file, @NonNull List<String> nestedEntries) {
+    this.file = file;
+    this.nestedEntries = Collections.unmodifiableList(nestedEntries);
+  }
+
+  JarLocation(@NonNull File file) {
+    this(file, Collections.emptyList());
+  }
+
+  /**
+   * Create the location of the jar holding a resource or code source.
+   *
+   * @param uri A file uri, or a jar uri such as
+   *     <i>jar:file:/app.jar!/BOOT-INF/lib/foo.jar!/META-INF/MANIFEST.MF</i>
+   * @return The location
+   */
+  static JarLocation of(URI uri) {
+    if (!"jar".equals(uri.getScheme())) {
+      return new JarLocation(createFile(uri));
+    }
+    String part = uri.getRawSchemeSpecificPart();
+    List<String> segments = new ArrayList<>(Arrays.asList(part.split(SEPARATOR, -1)));
+    File file = createFile(toURI(segments.remove(0)));
+    // the last segment is the resource within the innermost jar
+    segments.remove(segments.size() - 1);
+    List<String> nestedEntries = new ArrayList<>(segments.size());
+    for (String segment : segments) {
+      nestedEntries.add(decode(segment));
+    }
+    return new JarLocation(file, nestedEntries);
+  }
+
+  // N.B SneakyThrows hides the URISyntaxException that cannot happen
+  // since jar schema URI must be well formed
+  @SneakyThrows
+  private static URI toURI(String uri) {
+    return new URI(uri);
+  }
+
+  // N.B SneakyThrows hides the URISyntaxException that cannot happen
+  // since segments of a well formed jar URI are well formed paths
+  @SneakyThrows
+  private static String decode(String rawPath) {
+    return new URI("file:/" + rawPath).getPath().substring(1);
+  }
+
+  @SuppressWarnings("findsecbugs:PATH_TRAVERSAL_IN")
+  private static File createFile(URI uri) {
+    return new File(uri.getPath());
+  }
+
+  /** Is the jar nested inside another jar? */
+  boolean isNested() {
+    return !nestedEntries.isEmpty();
+  }
+
+  /** The file name of the innermost jar */
+  String getName() {
+    if (!isNested()) {
+      return file.getName();
+    }
+    String entry = nestedEntries.get(nestedEntries.size() - 1);
+    return entry.substring(entry.lastIndexOf('/') + 1);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(file.getPath());
+    for (String entry : nestedEntries) {
+      sb.append(SEPARATOR).append(entry);
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,274 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import javax.annotation.Nullable;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A persistent cache of the versions extracted from jars, so that a restart only needs to stat the
+ * jars. Entries are keyed by canonical path, and are valid while the jar's size and last modified
+ * time, and optionally a hash of the jar's tail, are unchanged.
+ *
+ * <p>The cache file is replaced atomically, so readers never see a partial file. Writers from
+ * several processes are serialized with a lock on a sibling <i>file</i>.lock file, and merge their
+ * entries with those already saved.
+ */
+@Slf4j
+public class JarVersionCache {
+
+  private static final int MAGIC = 0x53564a43;
+  private static final int FORMAT = 1;
+  // the end of central directory and the end of the central directory itself
+  private static final int HASHED_TAIL = 4096;
+  // FileLock is held on behalf of the whole process, so threads must serialize themselves
+  private static final Object PROCESS_LOCK = new Object();
+
+  private final Path file;
+  private final boolean hashContent;
+  private final Map<String, Entry> entries;
+  private final Map<String, Entry> updates = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  private JarVersionCache(Path file, boolean hashContent, Map<String, Entry> entries) {
+    this.file = file;
+    this.hashContent = hashContent;
+    this.entries = new ConcurrentHashMap<>(entries);
+  }
+
+  /**
+   * Open a cache which validates entries by size and last modified time.
+   *
+   * @param file The cache file, which need not exist
+   * @return The cache
+   */
+  public static JarVersionCache open(@NonNull Path file) {
+    return open(file, false);
+  }
+
+  /**
+   * Open a cache.
+   *
+   * @param file The cache file, which need not exist
+   * @param hashContent Whether entries are also validated by a hash of the jar's last few kilobytes
+   * @return The cache
+   */
+  public static JarVersionCache open(@NonNull Path file, boolean hashContent) {
+    return new JarVersionCache(file, hashContent, load(file));
+  }
+
+  /** The number of jars whose version was found in the cache */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /** The number of jars whose version was extracted from the jar */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * Extract the version of a jar, using the cached version if the jar is unchanged. A nested jar is
+   * unchanged when its outermost jar file is unchanged.
+   *
+   * @param location The jar
+   * @return null, if version information cannot be extracted from the jar
+   */
+  @Nullable
+  String extractVersion(JarLocation location) {
+    File jar = location.getFile();
+    String key;
+    Entry current;
+    try {
+      key = new JarLocation(jar.getCanonicalFile(), location.getNestedEntries()).toString();
+      current = stat(jar.toPath());
+    } catch (IOException e) {
+      misses.increment();
+      return VersionExtractor.extractVersion(location);
+    }
+
+    Entry cached = entries.get(key);
+    boolean hit = cached != null && cached.isSameJar(current);
+    if (VersionListeners.isEnabled()) {
+      VersionListeners.cacheLookup(JarVersionCache.class.getSimpleName(), hit);
+    }
+    if (hit) {
+      hits.increment();
+      return cached.version;
+    }
+    misses.increment();
+    Entry extracted = current.withVersion(VersionExtractor.extractVersion(location));
+    entries.put(key, extracted);
+    updates.put(key, extracted);
+    return extracted.version;
+  }
+
+  private Entry stat(Path jar) throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+    long size = attributes.size();
+    long hash = hashContent ? hashTail(jar, size) : 0;
+    return new Entry(size, attributes.lastModifiedTime().toMillis(), hash, null);
+  }
+
+  private static long hashTail(Path jar, long size) throws IOException {
+    try (FileChannel channel = FileChannel.open(jar, StandardOpenOption.READ)) {
+      int length = (int) Math.min(size, HASHED_TAIL);
+      ByteBuffer tail = ByteBuffer.allocate(length);
+      while (tail.hasRemaining() && channel.read(tail, size - length + tail.position()) >= 0) {
+        // read until full
+      }
+      CRC32 crc = new CRC32();
+      crc.update(tail.array(), 0, tail.position());
+      return crc.getValue();
+    }
+  }
+
+  /**
+   * Save newly extracted versions. Entries saved by other processes since this cache was opened are
+   * retained, unless this cache has a newer version for the same jar. Entries of jar files which no
+   * longer exist are dropped. Failures are logged and otherwise ignored.
+   */
+  public void save() {
+    if (updates.isEmpty()) {
+      return;
+    }
+    Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+    synchronized (PROCESS_LOCK) {
+      try (FileChannel lockChannel =
+          FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+        FileLock lock = lockChannel.lock();
+        try {
+          Map<String, Entry> merged = load(file);
+          Map<String, Entry> saved = new HashMap<>(updates);
+          merged.putAll(saved);
+          merged.keySet().removeIf(key -> !exists(key));
+          write(merged);
+          saved.forEach(updates::remove);
+        } finally {
+          lock.release();
+        }
+      } catch (IOException e) {
+        log.warn("Unable to save " + file, e);
+      }
+    }
+  }
+
+  // does the outermost jar file of an entry's key still exist?
+  private static boolean exists(String key) {
+    int nested = key.indexOf(JarLocation.SEPARATOR);
+    return new File(nested < 0 ? key : key.substring(0, nested)).isFile();
+  }
+
+  private void write(Map<String, Entry> merged) throws IOException {
+    Path directory = file.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+    try {
+      try (OutputStream os = Files.newOutputStream(temp);
+          DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT);
+        out.writeInt(merged.size());
+        for (Map.Entry<String, Entry> entry : merged.entrySet()) {
+          out.writeUTF(entry.getKey());
+          entry.getValue().write(out);
+        }
+      }
+      Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private static Map<String, Entry> load(Path file) {
+    Map<String, Entry> loaded = new HashMap<>();
+    try (InputStream is = Files.newInputStream(file);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(is))) {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT) {
+        log.warn("Ignoring {} with unknown format", file);
+        return loaded;
+      }
+      for (int count = in.readInt(); count > 0; --count) {
+        loaded.put(in.readUTF(), Entry.read(in));
+      }
+    } catch (NoSuchFileException e) {
+      log.debug("No jar version cache at {}", file);
+    } catch (IOException e) {
+      log.warn("Ignoring unreadable " + file, e);
+      loaded.clear();
+    }
+    return loaded;
+  }
+
+  /** convenience immutable class to hold the identity and version of a jar */
+  private static class Entry {
+    private final long size;
+    private final long lastModified;
+    private final long hash;
+    private final String version;
+
+    Entry(long size, long lastModified, long hash, String version) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.hash = hash;
+      this.version = version;
+    }
+
+    Entry withVersion(String version) {
+      return new Entry(size, lastModified, hash, version);
+    }
+
+    boolean isSameJar(Entry other) {
+      return size == other.size && lastModified == other.lastModified && hash == other.hash;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+      out.writeLong(size);
+      out.writeLong(lastModified);
+      out.writeLong(hash);
+      out.writeBoolean(version != null);
+      if (version != null) {
+        out.writeUTF(version);
+      }
+    }
+
+    static Entry read(DataInputStream in) throws IOException {
+      long size = in.readLong();
+      long lastModified = in.readLong();
+      long hash = in.readLong();
+      String version = in.readBoolean() ? in.readUTF() : null;
+      return new Entry(size, lastModified, hash, version);
+    }
+  }
+}
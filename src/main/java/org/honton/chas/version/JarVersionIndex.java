@@ -0,0 +1,174 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A build time index of the versions of the jars on a classpath, stored as the resource
+ * META-INF/semver/index.bin. When the index is present, JarVersions only reads the jars which the
+ * index does not cover.
+ *
+ * <p>The index is generated by running this class, typically from the build with
+ * exec-maven-plugin's java goal:
+ *
+ * <pre>
+ * java org.honton.chas.version.JarVersionIndex <i>output</i> [<i>jar</i>...]
+ * </pre>
+ *
+ * When no jars are listed, the jars visible to the context ClassLoader are indexed.
+ */
+@Slf4j
+public final class JarVersionIndex {
+
+  /** The resource name of the index */
+  public static final String RESOURCE = "META-INF/semver/index.bin";
+
+  private static final int MAGIC = 0x53564a49;
+  private static final int FORMAT = 1;
+
+  private static final JarVersionIndex EMPTY = new JarVersionIndex(Collections.emptyMap());
+
+  /** The versions keyed by jar file name; a null version for a jar without version information */
+  private final Map<String, String> versions;
+
+  private JarVersionIndex(Map<String, String> versions) {
+    this.versions = versions;
+  }
+
+  /**
+   * Load and combine the indices visible to a ClassLoader.
+   *
+   * @param classLoader The ClassLoader that will be queried for index resources
+   * @return The index, which is empty if there are no index resources
+   */
+  static JarVersionIndex load(ClassLoader classLoader) {
+    Map<String, String> versions = null;
+    try {
+      for (Enumeration<URL> indices = classLoader.getResources(RESOURCE);
+          indices.hasMoreElements(); ) {
+        URL index = indices.nextElement();
+        if (versions == null) {
+          versions = new HashMap<>();
+        }
+        try (InputStream is = index.openStream()) {
+          read(is, versions);
+        } catch (IOException e) {
+          log.warn("Ignoring unreadable " + index, e);
+        }
+      }
+    } catch (IOException e) {
+      log.debug("No jar version index available from classLoader", e);
+    }
+    return versions != null ? new JarVersionIndex(versions) : EMPTY;
+  }
+
+  /**
+   * Wrap an extractor so that jars covered by the index are not read.
+   *
+   * @param extractor The extractor used for jars not covered by the index
+   * @return The wrapped extractor
+   */
+  Function<JarLocation, String> wrap(Function<JarLocation, String> extractor) {
+    if (versions.isEmpty()) {
+      return extractor;
+    }
+    return location -> {
+      String name = location.getName();
+      return versions.containsKey(name) ? versions.get(name) : extractor.apply(location);
+    };
+  }
+
+  private static void read(InputStream is, Map<String, String> versions) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(is));
+    if (in.readInt() != MAGIC || in.readInt() != FORMAT) {
+      throw new IOException("Unknown index format");
+    }
+    for (int count = in.readInt(); count > 0; --count) {
+      String name = in.readUTF();
+      versions.put(name, in.readBoolean() ? in.readUTF() : null);
+    }
+  }
+
+  /**
+   * Write an index.
+   *
+   * @param output The index file
+   * @param versions The versions keyed by jar file name; a null version for a jar without version
+   *     information
+   */
+  static void write(Path output, Map<String, String> versions) throws IOException {
+    Path parent = output.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    try (OutputStream os = Files.newOutputStream(output);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT);
+      out.writeInt(versions.size());
+      for (Map.Entry<String, String> entry : new TreeMap<>(versions).entrySet()) {
+        out.writeUTF(entry.getKey());
+        out.writeBoolean(entry.getValue() != null);
+        if (entry.getValue() != null) {
+          out.writeUTF(entry.getValue());
+        }
+      }
+    }
+  }
+
+  /**
+   * Generate an index.
+   *
+   * @param args The index file, followed by the jars to index. If no jars are listed, the jars
+   *     visible to the context ClassLoader are indexed.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      throw new IllegalArgumentException("usage: JarVersionIndex output [jar...]");
+    }
+    Map<String, String> versions = new TreeMap<>();
+    if (args.length > 1) {
+      for (int i = 1; i < args.length; ++i) {
+        File jar = new File(args[i]);
+        versions.put(jar.getName(), VersionExtractor.extractVersion(jar));
+      }
+    } else {
+      List<JarLocation> jars =
+          JarVersions.getJarLocations(Thread.currentThread().getContextClassLoader());
+      for (JarLocation jar : jars) {
+        String version = VersionExtractor.extractVersion(jar);
+        // as with a scan, a later jar of the same name only replaces an earlier with its version
+        if (version != null || !versions.containsKey(jar.getName())) {
+          versions.put(jar.getName(), version);
+        }
+      }
+    }
+    write(Paths.get(args[0]), versions);
+    log.info("Indexed {} jars into {}", versions.size(), args[0]);
+  }
+}
@@ -0,0 +1,215 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+
+/**
+ * A process wide registry of jar versions shared by the JarVersions of many ClassLoaders, so that
+ * each physical jar is read once no matter how many ClassLoaders see it. Jars are keyed by
+ * canonical path, and a registered version is reused while the jar's file key, size and last
+ * modified time are unchanged.
+ *
+ * <p>ClassLoaders are held weakly. Once every ClassLoader which saw a jar has been collected, the
+ * jar's version is removed from the registry.
+ */
+public final class JarVersionRegistry {
+
+  private static final JarVersionRegistry SHARED = new JarVersionRegistry();
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final Map<ClassLoader, CompletableFuture<JarVersions>> views = new WeakHashMap<>();
+  private final Set<LoaderReference> loaders = ConcurrentHashMap.newKeySet();
+  private final ReferenceQueue<ClassLoader> collected = new ReferenceQueue<>();
+  private final LongAdder reads = new LongAdder();
+
+  /** The registry shared by the whole process */
+  public static JarVersionRegistry shared() {
+    return SHARED;
+  }
+
+  /**
+   * Get the jar information of a ClassLoader. Only jars not already registered by another
+   * ClassLoader are read. The jar information is built once for each ClassLoader; concurrent
+   * callers for the same ClassLoader wait for that build, while other ClassLoaders proceed. The jar
+   * information is shared, so it is read only.
+   *
+   * @param classLoader The ClassLoader that will be queried for MANIFEST.MF files
+   * @return The jar information
+   */
+  public JarVersions getJarVersions(@NonNull ClassLoader classLoader) {
+    expunge();
+    CompletableFuture<JarVersions> view;
+    CompletableFuture<JarVersions> building = null;
+    // the lock guards only the map, other ClassLoaders are not blocked while a view is built
+    synchronized (views) {
+      view = views.get(classLoader);
+      if (view == null) {
+        building = new CompletableFuture<>();
+        views.put(classLoader, building);
+        view = building;
+      }
+    }
+    if (building != null) {
+      try {
+        LoaderReference loader = new LoaderReference(classLoader, collected);
+        loaders.add(loader);
+        JarVersions scanned = new JarVersions(classLoader, null, loader::extractVersion, null);
+        // the view is shared by every caller, so one caller's removePrincipal must not affect
+        // another
+        building.complete(JarVersions.readOnly(scanned.getDependentJars()));
+      } catch (RuntimeException | Error e) {
+        synchronized (views) {
+          views.remove(classLoader, building);
+        }
+        building.completeExceptionally(e);
+        throw e;
+      }
+    }
+    try {
+      return view.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /** The number of jars read, rather than found in the registry */
+  public long getReads() {
+    return reads.sum();
+  }
+
+  /** The number of jars registered by ClassLoaders which have not been collected */
+  public int size() {
+    expunge();
+    return entries.size();
+  }
+
+  // release the jars of collected ClassLoaders
+  private void expunge() {
+    for (Object ref; (ref = collected.poll()) != null; ) {
+      LoaderReference loader = (LoaderReference) ref;
+      loaders.remove(loader);
+      loader.keys.forEach(this::release);
+    }
+  }
+
+  private Entry acquire(String key) {
+    while (true) {
+      Entry entry = entries.computeIfAbsent(key, k -> new Entry());
+      synchronized (entry) {
+        if (!entry.released) {
+          ++entry.references;
+          return entry;
+        }
+      }
+    }
+  }
+
+  private void release(String key) {
+    Entry entry = entries.get(key);
+    if (entry != null) {
+      synchronized (entry) {
+        if (--entry.references == 0) {
+          entry.released = true;
+          entries.remove(key, entry);
+        }
+      }
+    }
+  }
+
+  @Nullable
+  private String extractVersion(Set<String> keys, JarLocation location) {
+    File jar = location.getFile();
+    String key;
+    Identity identity;
+    try {
+      key = new JarLocation(jar.getCanonicalFile(), location.getNestedEntries()).toString();
+      identity = Identity.of(jar);
+    } catch (IOException e) {
+      reads.increment();
+      return VersionExtractor.extractVersion(location);
+    }
+    Entry entry = acquire(key);
+    if (!keys.add(key)) {
+      // the loader already holds a reference to this jar
+      release(key);
+    }
+    return entry.get(identity, location);
+  }
+
+  /** A weak reference to a ClassLoader, holding the keys of the jars it registered */
+  private class LoaderReference extends WeakReference<ClassLoader> {
+    private final Set<String> keys = ConcurrentHashMap.newKeySet();
+
+    LoaderReference(ClassLoader classLoader, ReferenceQueue<ClassLoader> queue) {
+      super(classLoader, queue);
+    }
+
+    String extractVersion(JarLocation location) {
+      return JarVersionRegistry.this.extractVersion(keys, location);
+    }
+  }
+
+  /** The version of a jar, read once for each identity of the jar */
+  private class Entry {
+    private int references;
+    private boolean released;
+    private Identity identity;
+    private String version;
+
+    synchronized String get(Identity current, JarLocation location) {
+      if (!current.equals(identity)) {
+        reads.increment();
+        version = VersionExtractor.extractVersion(location);
+        identity = current;
+      }
+      return version;
+    }
+  }
+
+  /** convenience immutable class to hold the identity of a jar file */
+  @EqualsAndHashCode
+  private static class Identity {
+    private final Object fileKey;
+    private final long size;
+    private final long lastModified;
+
+    private Identity(Object fileKey, long size, long lastModified) {
+      this.fileKey = fileKey;
+      this.size = size;
+      this.lastModified = lastModified;
+    }
+
+    static Identity of(File jar) throws IOException {
+      BasicFileAttributes attributes =
+          Files.readAttributes(jar.toPath(), BasicFileAttributes.class);
+      return new Identity(
+          attributes.fileKey(), attributes.size(), attributes.lastModifiedTime().toMillis());
+    }
+  }
+}
@@ -0,0 +1,333 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the jar information of a ClassLoader current as jars in the directories holding its jars
+ * are added, changed or removed. Only the jars named by file change notifications are read, and
+ * each refresh publishes a new immutable snapshot and notifies the listeners of the differences.
+ *
+ * <p>Jars added to a watched directory are included, as is usual for plugin directories. Events are
+ * processed either by calling {@link #refresh()}, or by a daemon thread started with {@link
+ * #start()}.
+ */
+@Slf4j
+public class JarVersionWatcher implements Closeable {
+
+  private static final String JAR_SUFFIX = ".jar";
+
+  private final WatchService watchService;
+  private final Function<JarLocation, String> extractor;
+  /** The jars in each watched file, keyed by absolute path */
+  private final Map<Path, List<JarLocation>> files = new HashMap<>();
+  /** The version of each jar; null when the jar has no version information */
+  private final Map<JarLocation, String> versions = new HashMap<>();
+  /** The jars sharing each file name, in ClassLoader order followed by jars added later */
+  private final Map<String, List<JarLocation>> jarsByName = new HashMap<>();
+
+  private final List<Consumer<Diff>> listeners = new CopyOnWriteArrayList<>();
+  private volatile JarVersions snapshot;
+  private Thread thread;
+
+  /**
+   * Read the jars of a ClassLoader and watch the directories holding them.
+   *
+   * @param classLoader The ClassLoader that will be queried for MANIFEST.MF files
+   * @throws IOException when the directories cannot be watched
+   */
+  public JarVersionWatcher(ClassLoader classLoader) throws IOException {
+    this(classLoader, VersionExtractor::extractVersion);
+  }
+
+  // N.B. a build time index is not used, since the indexed jars may change
+  JarVersionWatcher(ClassLoader classLoader, Function<JarLocation, String> extractor)
+      throws IOException {
+    this.extractor = extractor;
+    watchService = FileSystems.getDefault().newWatchService();
+    Set<Path> directories = new LinkedHashSet<>();
+    for (JarLocation jar : JarVersions.getJarLocations(classLoader)) {
+      Path path = pathOf(jar);
+      track(path, jar);
+      directories.add(path.getParent());
+    }
+    for (Path directory : directories) {
+      directory.register(
+          watchService,
+          StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_DELETE,
+          StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+    Map<String, String> jars = new TreeMap<>();
+    for (String name : jarsByName.keySet()) {
+      String version = resolve(name);
+      if (version != null) {
+        jars.put(name, version);
+      }
+    }
+    snapshot = JarVersions.readOnly(jars);
+  }
+
+  private static Path pathOf(JarLocation jar) {
+    return jar.getFile().toPath().toAbsolutePath().normalize();
+  }
+
+  private void track(Path path, JarLocation jar) {
+    files.computeIfAbsent(path, p -> new ArrayList<>(1)).add(jar);
+    versions.put(jar, extractor.apply(jar));
+    jarsByName.computeIfAbsent(jar.getName(), n -> new ArrayList<>(1)).add(jar);
+  }
+
+  // as with a scan, the last jar in order with version information wins
+  @Nullable
+  private String resolve(String name) {
+    List<JarLocation> jars = jarsByName.get(name);
+    if (jars != null) {
+      for (int i = jars.size() - 1; i >= 0; --i) {
+        String version = versions.get(jars.get(i));
+        if (version != null) {
+          return version;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * The current jar information. Each refresh which changes a version publishes a new snapshot; a
+   * snapshot is never modified.
+   *
+   * @return The immutable jar information
+   */
+  public JarVersions getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Add a listener which is called, by the refreshing thread, after each refresh which changes the
+   * jar information.
+   *
+   * @param listener The listener
+   */
+  public void addListener(@NonNull Consumer<Diff> listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Remove a listener.
+   *
+   * @param listener The listener
+   */
+  public void removeListener(Consumer<Diff> listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Process the pending file change notifications without waiting for more.
+   *
+   * @return The changes; empty, if there were no changes
+   */
+  public synchronized Diff refresh() {
+    Set<Path> changed = new LinkedHashSet<>();
+    for (WatchKey key; (key = watchService.poll()) != null; ) {
+      collect(key, changed);
+    }
+    return apply(changed);
+  }
+
+  /** Start a daemon thread which refreshes as soon as file change notifications arrive. */
+  public synchronized void start() {
+    if (thread == null) {
+      thread = new Thread(this::watch, "jar-versions-watcher");
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+
+  private void watch() {
+    try {
+      while (true) {
+        WatchKey key = watchService.take();
+        synchronized (this) {
+          Set<Path> changed = new LinkedHashSet<>();
+          collect(key, changed);
+          // batch notifications which arrived together, such as the writes of one jar
+          for (WatchKey more; (more = watchService.poll()) != null; ) {
+            collect(more, changed);
+          }
+          apply(changed);
+        }
+      }
+    } catch (ClosedWatchServiceException | InterruptedException e) {
+      log.debug("Stopped watching jars");
+    }
+  }
+
+  /** Stop watching. The last snapshot remains available. */
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+  }
+
+  private void collect(WatchKey key, Set<Path> changed) {
+    Path directory = (Path) key.watchable();
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        // notifications were lost, so check every jar of the directory
+        files.keySet().stream().filter(p -> directory.equals(p.getParent())).forEach(changed::add);
+        listJars(directory, changed);
+      } else {
+        changed.add(directory.resolve((Path) event.context()));
+      }
+    }
+    key.reset();
+  }
+
+  private static void listJars(Path directory, Set<Path> changed) {
+    try (DirectoryStream<Path> jars = Files.newDirectoryStream(directory, "*" + JAR_SUFFIX)) {
+      jars.forEach(changed::add);
+    } catch (IOException e) {
+      log.debug("Unable to list " + directory, e);
+    }
+  }
+
+  private Diff apply(Set<Path> changed) {
+    Set<String> names = new LinkedHashSet<>();
+    for (Path path : changed) {
+      if (!path.getFileName().toString().endsWith(JAR_SUFFIX)) {
+        continue;
+      }
+      List<JarLocation> jars = files.get(path);
+      boolean exists = Files.isRegularFile(path);
+      if (jars == null) {
+        if (exists) {
+          JarLocation jar = new JarLocation(path.toFile());
+          track(path, jar);
+          names.add(jar.getName());
+        }
+      } else if (exists) {
+        // jars nested in a changed file are read again in place
+        for (JarLocation jar : jars) {
+          versions.put(jar, extractor.apply(jar));
+          names.add(jar.getName());
+        }
+      } else {
+        files.remove(path);
+        for (JarLocation jar : jars) {
+          versions.remove(jar);
+          List<JarLocation> named = jarsByName.get(jar.getName());
+          named.remove(jar);
+          if (named.isEmpty()) {
+            jarsByName.remove(jar.getName());
+          }
+          names.add(jar.getName());
+        }
+      }
+    }
+    Diff diff = diff(names);
+    if (!diff.isEmpty()) {
+      publish(diff);
+    }
+    return diff;
+  }
+
+  private Diff diff(Set<String> names) {
+    Map<String, String> current = snapshot.getDependentJars();
+    Diff diff = new Diff();
+    for (String name : names) {
+      String before = current.get(name);
+      String after = resolve(name);
+      if (before == null) {
+        if (after != null) {
+          diff.added.put(name, after);
+        }
+      } else if (after == null) {
+        diff.removed.put(name, before);
+      } else if (!Objects.equals(before, after)) {
+        diff.changed.put(name, after);
+      }
+    }
+    return diff;
+  }
+
+  private void publish(Diff diff) {
+    Map<String, String> jars = new TreeMap<>(snapshot.getDependentJars());
+    jars.putAll(diff.added);
+    jars.putAll(diff.changed);
+    diff.removed.keySet().forEach(jars::remove);
+    snapshot = JarVersions.readOnly(jars);
+    log.debug("Refreshed {}", diff);
+    for (Consumer<Diff> listener : listeners) {
+      try {
+        listener.accept(diff);
+      } catch (RuntimeException e) {
+        log.warn("Jar version listener failed", e);
+      }
+    }
+  }
+
+  /** The differences between two snapshots of jar information, keyed by jar file name */
+  public static final class Diff {
+    private final Map<String, String> added = new TreeMap<>();
+    private final Map<String, String> changed = new TreeMap<>();
+    private final Map<String, String> removed = new TreeMap<>();
+
+    /** The versions of jars which were added */
+    public Map<String, String> getAdded() {
+      return Collections.unmodifiableMap(added);
+    }
+
+    /** The new versions of jars which were changed */
+    public Map<String, String> getChanged() {
+      return Collections.unmodifiableMap(changed);
+    }
+
+    /** The prior versions of jars which were removed */
+    public Map<String, String> getRemoved() {
+      return Collections.unmodifiableMap(removed);
+    }
+
+    /** Are there no differences? */
+    public boolean isEmpty() {
+      return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+      return "added " + added + ", changed " + changed + ", removed " + removed;
+    }
+  }
+}
@@ -9,15 +9,28 @@
  */
 package org.honton.chas.version;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
 import java.net.URI;
 import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import javax.annotation.Nullable;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
+import lombok.NonNull;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
@@ -26,69 +39,390 @@ import lombok.extern.slf4j.Slf4j;
  * ClassLoader that will be queried for MANIFEST.MF files.
  */
 @Slf4j
-@RequiredArgsConstructor
 public class JarVersions {
 
-  @Getter private final Map<String, String> dependentJars;
+  /** The jar versions; or null, until a lazy instance is materialized */
+  private volatile Map<String, String> dependentJars;
+  /** The not yet extracted versions of a lazy instance; or null, if not lazy */
+  private final Map<String, LazyVersion> lazyVersions;
+  /**
+   * The time taken to scan the jars; or to list the jars of a lazy instance; or zero, if the
+   * dependentJars were supplied
+   */
+  @Getter private final Duration scanDuration;
+  /** The background read of a lazy instance's jars; or null, if not started */
+  private CompletableFuture<JarVersions> scan;
+  /** Is this a shared snapshot, from which removePrincipal removes nothing? */
+  private final boolean readOnly;
+
+  /**
+   * Create jar information from known versions, such as those read from a snapshot. The versions
+   * are copied, so later changes to the map, or to this instance, do not affect the other.
+   *
+   * @param dependentJars The version of each jar, keyed by jar file name
+   */
+  public JarVersions(@NonNull Map<String, String> dependentJars) {
+    this(new TreeMap<>(dependentJars), false);
+  }
+
+  private JarVersions(Map<String, String> dependentJars, boolean readOnly) {
+    this.dependentJars = dependentJars;
+    this.readOnly = readOnly;
+    lazyVersions = null;
+    scanDuration = Duration.ZERO;
+  }
+
+  /**
+   * Create read only jar information, which may be shared. Its dependentJars cannot be modified,
+   * and {@link #removePrincipal(Class)} returns the version without removing the jar.
+   *
+   * @param dependentJars The version of each jar, keyed by jar file name
+   * @return The read only jar information
+   */
+  static JarVersions readOnly(Map<String, String> dependentJars) {
+    return new JarVersions(Collections.unmodifiableMap(new TreeMap<>(dependentJars)), true);
+  }
 
   public JarVersions(ClassLoader classLoader) {
-    dependentJars = extractAllJars(classLoader);
+    this(classLoader, null, null);
   }
 
   /**
-   * Remove the principal jar from the list of dependentJars.
+   * Scan the jars concurrently. The result is the same as a sequential scan.
+   *
+   * @param classLoader The ClassLoader that will be queried for MANIFEST.MF files
+   * @param executor The executor which reads the jars
+   */
+  public JarVersions(ClassLoader classLoader, @NonNull Executor executor) {
+    this(classLoader, executor, null);
+  }
+
+  /**
+   * Scan the jars, optionally concurrently and optionally using a persistent cache of versions. The
+   * result is the same as a sequential scan without a cache. Jars covered by a {@link
+   * JarVersionIndex} resource are not read.
+   *
+   * @param classLoader The ClassLoader that will be queried for MANIFEST.MF files
+   * @param executor The executor which reads the jars; or null, to read the jars sequentially
+   * @param cache The cache of versions, which is saved after the scan; or null, to read every jar
+   */
+  public JarVersions(
+      ClassLoader classLoader, @Nullable Executor executor, @Nullable JarVersionCache cache) {
+    this(
+        classLoader,
+        executor,
+        cache != null ? cache::extractVersion : VersionExtractor::extractVersion,
+        cache);
+  }
+
+  JarVersions(
+      ClassLoader classLoader,
+      @Nullable Executor executor,
+      Function<JarLocation, String> jarExtractor,
+      @Nullable JarVersionCache cache) {
+    long start = System.nanoTime();
+    Function<JarLocation, String> extractor = JarVersionIndex.load(classLoader).wrap(jarExtractor);
+    List<JarLocation> jars = getJarLocations(classLoader);
+    String[] versions = new String[jars.size()];
+    if (executor == null) {
+      for (int i = 0; i < versions.length; ++i) {
+        versions[i] = extractor.apply(jars.get(i));
+      }
+    } else {
+      CompletableFuture<?>[] futures = new CompletableFuture<?>[versions.length];
+      for (int i = 0; i < versions.length; ++i) {
+        int jar = i;
+        futures[i] =
+            CompletableFuture.runAsync(
+                () -> versions[jar] = extractor.apply(jars.get(jar)), executor);
+      }
+      // join publishes the versions written by the executor threads
+      CompletableFuture.allOf(futures).join();
+    }
+    if (cache != null) {
+      cache.save();
+    }
+    dependentJars = merge(jars, versions);
+    readOnly = false;
+    lazyVersions = null;
+    scanDuration = logScanDuration(start, jars.size());
+  }
+
+  // a lazy instance, whose versions are extracted upon first request
+  private JarVersions(Map<String, LazyVersion> lazyVersions, Duration listDuration) {
+    this.lazyVersions = lazyVersions;
+    readOnly = false;
+    scanDuration = listDuration;
+  }
+
+  /**
+   * List the jars without reading them. A jar is read the first time its version is requested, and
+   * all jars are read the first time the dependentJars are requested.
+   *
+   * @param classLoader The ClassLoader that will be queried for MANIFEST.MF files
+   * @return The lazy jar information
+   */
+  public static JarVersions lazy(ClassLoader classLoader) {
+    return lazy(classLoader, VersionExtractor::extractVersion);
+  }
+
+  static JarVersions lazy(ClassLoader classLoader, Function<JarLocation, String> extractor) {
+    long start = System.nanoTime();
+    List<JarLocation> jars = getJarLocations(classLoader);
+    Function<JarLocation, String> indexed = JarVersionIndex.load(classLoader).wrap(extractor);
+    Map<String, LazyVersion> lazy = new ConcurrentHashMap<>();
+    for (JarLocation jar : jars) {
+      lazy.computeIfAbsent(jar.getName(), n -> new LazyVersion(indexed)).add(jar);
+    }
+    Duration duration = Duration.ofNanos(System.nanoTime() - start);
+    log.debug("Listed {} jars in {} ms", jars.size(), duration.toMillis());
+    return new JarVersions(lazy, duration);
+  }
+
+  /**
+   * Scan the jars concurrently on a bounded executor. A virtual thread is used for each jar when
+   * the JDK supports virtual threads; otherwise, a thread pool sized to the available processors.
+   *
+   * @param classLoader The ClassLoader that will be queried for MANIFEST.MF files
+   * @return The jar information
+   */
+  public static JarVersions scanConcurrently(ClassLoader classLoader) {
+    ExecutorService executor = newScanExecutor();
+    try {
+      return new JarVersions(classLoader, executor);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Scan the jars in the background, so that the caller is not blocked by jar I/O. The jars are
+   * listed before returning, and read on the executor. While the jars are read, {@link
+   * #getScannedJars()} returns the versions read so far, and {@link #getScan()} is completed once
+   * every jar is read.
+   *
+   * @param classLoader The ClassLoader that will be queried for MANIFEST.MF files
+   * @param executor The executor which reads the jars; or null, to use a virtual thread for each
+   *     jar when the JDK supports virtual threads, otherwise a thread pool sized to the available
+   *     processors
+   * @return The jar information, which is being scanned
+   */
+  public static JarVersions scanAsync(ClassLoader classLoader, @Nullable Executor executor) {
+    JarVersions jarVersions = lazy(classLoader);
+    jarVersions.startScan(executor);
+    return jarVersions;
+  }
+
+  /**
+   * Read the unread jars of a lazy instance in the background. While the jars are read, {@link
+   * #getScannedJars()} returns the versions read so far, and {@link #getVersion(String)} reads a
+   * jar which the executor has not yet reached. Once started, later calls return the same scan.
+   *
+   * @param executor The executor which reads the jars; or null, to use a virtual thread for each
+   *     jar when the JDK supports virtual threads, otherwise a thread pool sized to the available
+   *     processors
+   * @return A future completed with this instance once every jar is read
+   */
+  public synchronized CompletableFuture<JarVersions> startScan(@Nullable Executor executor) {
+    if (scan == null) {
+      if (dependentJars != null) {
+        return CompletableFuture.completedFuture(this);
+      }
+      ExecutorService owned = executor == null ? newScanExecutor() : null;
+      scan = readAll(owned != null ? owned : executor);
+      if (owned != null) {
+        scan.whenComplete((jarVersions, failure) -> owned.shutdown());
+      }
+    }
+    return scan;
+  }
+
+  /**
+   * The background scan started by {@link #scanAsync(ClassLoader, Executor)} or {@link
+   * #startScan(Executor)}.
+   *
+   * @return A future completed with this instance once every jar is read; or null, if a lazy
+   *     instance has not started a scan
+   */
+  @Nullable
+  public synchronized CompletableFuture<JarVersions> getScan() {
+    if (scan == null && dependentJars != null) {
+      return CompletableFuture.completedFuture(this);
+    }
+    return scan;
+  }
+
+  private CompletableFuture<JarVersions> readAll(Executor executor) {
+    long start = System.nanoTime();
+    CompletableFuture<?>[] futures =
+        lazyVersions.values().stream()
+            .map(lazy -> CompletableFuture.runAsync(lazy::get, executor))
+            .toArray(CompletableFuture<?>[]::new);
+    return CompletableFuture.allOf(futures)
+        .thenApply(
+            done -> {
+              materialize();
+              logScanDuration(start, futures.length);
+              return this;
+            });
+  }
+
+  /**
+   * Remove the principal jar from the list of dependentJars. A read only instance, such as a {@link
+   * JarVersionWatcher} snapshot, keeps the jar.
    *
    * @param mainClass The principal class which is contained in the principal jar.
    * @return The semantic version of the principal class. This may be null if the jar cannot be
    *     found.
    */
-  public SemVer removePrincipal(Class mainClass) {
+  public synchronized SemVer removePrincipal(Class mainClass) {
     String location = getLocation(mainClass);
-    String jarVer = dependentJars.remove(location);
+    String jarVer = getVersion(location);
+    if (readOnly) {
+      return SemVer.valueOf(jarVer);
+    }
+    if (lazyVersions != null) {
+      lazyVersions.remove(location);
+    }
+    if (dependentJars != null) {
+      dependentJars.remove(location);
+    }
     return SemVer.valueOf(jarVer);
   }
 
-  private static Map<String, String> extractAllJars(ClassLoader classLoader) {
-    Map<String, String> versions = new TreeMap<>();
+  /**
+   * Write the jar versions in the compact {@link VersionSnapshot} format. A lazy instance reads all
+   * of its unread jars.
+   *
+   * @param out The stream, which is closed
+   */
+  public void writeSnapshot(@NonNull OutputStream out) throws IOException {
+    VersionSnapshot.write(out, getDependentJars());
+  }
+
+  /**
+   * Read jar versions written by {@link #writeSnapshot(OutputStream)}.
+   *
+   * @param in The stream, which is closed
+   * @return The jar information
+   */
+  public static JarVersions readSnapshot(@NonNull InputStream in) throws IOException {
+    try (VersionSnapshot.Reader reader = VersionSnapshot.reader(in)) {
+      return new JarVersions(reader.toMap());
+    }
+  }
+
+  /**
+   * The version of each jar, keyed by jar file name. A lazy instance reads all of its unread jars.
+   *
+   * @return The jar versions
+   */
+  public Map<String, String> getDependentJars() {
+    Map<String, String> jars = dependentJars;
+    return jars != null ? jars : materialize();
+  }
+
+  private synchronized Map<String, String> materialize() {
+    if (dependentJars == null) {
+      Map<String, String> jars = new TreeMap<>();
+      lazyVersions.forEach(
+          (name, lazy) -> {
+            String version = lazy.get();
+            if (version != null) {
+              jars.put(name, version);
+            }
+          });
+      dependentJars = jars;
+    }
+    return dependentJars;
+  }
+
+  /**
+   * The versions read so far, keyed by jar file name. Unlike {@link #getDependentJars()}, this does
+   * not read any jars, so it may be called while a background scan is running.
+   *
+   * @return A snapshot of the jar versions read so far
+   */
+  public Map<String, String> getScannedJars() {
+    Map<String, String> jars = dependentJars;
+    if (jars != null) {
+      return new TreeMap<>(jars);
+    }
+    Map<String, String> scanned = new TreeMap<>();
+    lazyVersions.forEach(
+        (name, lazy) -> {
+          String version = lazy.peek();
+          if (version != null) {
+            scanned.put(name, version);
+          }
+        });
+    return scanned;
+  }
+
+  /**
+   * The version of a jar. A lazy instance reads the jar upon the first request.
+   *
+   * @param jarName The file name of the jar
+   * @return The version; or null, if the jar is not known or has no version information
+   */
+  public String getVersion(String jarName) {
+    Map<String, String> jars = dependentJars;
+    if (jars != null) {
+      return jars.get(jarName);
+    }
+    LazyVersion lazy = lazyVersions.get(jarName);
+    return lazy != null ? lazy.get() : null;
+  }
+
+  static List<JarLocation> getJarLocations(ClassLoader classLoader) {
+    List<JarLocation> jars = new ArrayList<>();
     try {
       for (Enumeration<URL> jarLocations = classLoader.getResources("META-INF/MANIFEST.MF");
           jarLocations.hasMoreElements(); ) {
-        URI jarLocation = toURI(jarLocations.nextElement());
-        extractJarVersion(versions, jarLocation);
+        jars.add(JarLocation.of(toURI(jarLocations.nextElement())));
       }
     } catch (IOException e) {
       log.debug("No jar information extractable from classLoader", e);
     }
-    return versions;
+    return jars;
   }
 
-  private static void extractJarVersion(Map<String, String> versions, URI jarLocation) {
-    if ("jar".equals(jarLocation.getScheme())) {
-      jarLocation = extractJarLocation(jarLocation);
-    }
-    File file = createFile(jarLocation);
-    String version = VersionExtractor.extractVersion(file);
-    if (version != null) {
-      versions.put(file.getName(), version);
+  // merge in classLoader order, so that the result does not depend upon scan order
+  private static Map<String, String> merge(List<JarLocation> jars, String[] versions) {
+    Map<String, String> merged = new TreeMap<>();
+    for (int i = 0; i < versions.length; ++i) {
+      if (versions[i] != null) {
+        merged.put(jars.get(i).getName(), versions[i]);
+      }
     }
+    return merged;
   }
 
-  // N.B SneakyThrows hides the URISyntaxException that cannot happen
-  // since jar schema URI must be well formed
-  @SneakyThrows
-  private static URI extractJarLocation(URI jarLocation) {
-    String part = jarLocation.getRawSchemeSpecificPart();
-    return new URI(part.substring(0, part.indexOf('!')));
+  private static Duration logScanDuration(long start, int jarCount) {
+    Duration duration = Duration.ofNanos(System.nanoTime() - start);
+    log.debug("Scanned {} jars in {} ms", jarCount, duration.toMillis());
+    return duration;
   }
 
-  @SuppressWarnings("findsecbugs:PATH_TRAVERSAL_IN")
-  private static File createFile(URI uri) {
-    return new File(uri.getPath());
+  static ExecutorService newScanExecutor() {
+    try {
+      Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) virtual.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      // virtual threads require jdk 21
+      return Executors.newFixedThreadPool(
+          Runtime.getRuntime().availableProcessors(),
+          r -> {
+            Thread thread = new Thread(r, "jar-versions");
+            thread.setDaemon(true);
+            return thread;
+          });
+    }
   }
 
   private static String getLocation(Class cls) {
     URL location = cls.getProtectionDomain().getCodeSource().getLocation();
-    return createFile(toURI(location)).getName();
+    return JarLocation.of(toURI(location)).getName();
   }
 
   // N.B SneakyThrows hides the URISyntaxException that cannot happen
@@ -97,4 +431,43 @@ public class JarVersions {
   private static URI toURI(URL url) {
     return url.toURI();
   }
+
+  /**
+   * The version of the jars sharing a file name, extracted once upon first request. As with a full
+   * scan, the last jar in ClassLoader order with version information wins.
+   */
+  private static class LazyVersion {
+    private final Function<JarLocation, String> extractor;
+    private final List<JarLocation> jars = new ArrayList<>(1);
+    private volatile boolean extracted;
+    private String version;
+
+    LazyVersion(Function<JarLocation, String> extractor) {
+      this.extractor = extractor;
+    }
+
+    void add(JarLocation jar) {
+      jars.add(jar);
+    }
+
+    String get() {
+      if (!extracted) {
+        synchronized (this) {
+          if (!extracted) {
+            for (int i = jars.size() - 1; i >= 0 && version == null; --i) {
+              version = extractor.apply(jars.get(i));
+            }
+            extracted = true;
+          }
+        }
+      }
+      return version;
+    }
+
+    /** The version; or null, if not yet extracted */
+    String peek() {
+      // the volatile read of extracted publishes the version
+      return extracted ? version : null;
+    }
+  }
 }
@@ -0,0 +1,305 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Flight Recorder events, defined through jdk.jfr.EventFactory by reflection so that this library
+ * still runs on a JDK without jdk.jfr. The event types are created when the first recording starts.
+ * Until then, and whenever no recording is running, {@link #isRecording()} is a single volatile
+ * read.
+ */
+final class JfrEvents {
+
+  private static final String TIMESPAN = "NANOSECONDS";
+  private static final String BYTES = "BYTES";
+
+  static final Definition JAR_SCAN =
+      new Definition(
+          "org.honton.chas.version.JarScan",
+          "Jar Scan",
+          "A jar read to extract its version",
+          true,
+          new Field(String.class, "jar", "Jar", null),
+          new Field(long.class, "scanDuration", "Scan Duration", TIMESPAN),
+          new Field(long.class, "bytesRead", "Bytes Read", BYTES),
+          new Field(int.class, "entriesVisited", "Entries Visited", null),
+          new Field(String.class, "version", "Version", null));
+
+  static final Definition PARSE_FAILURE =
+      new Definition(
+          "org.honton.chas.version.ParseFailure",
+          "Version Parse Failure",
+          "Text which is not a semantic version",
+          true,
+          new Field(String.class, "text", "Text", null));
+
+  /** Disabled by default, as matching is frequent */
+  static final Definition MATCH =
+      new Definition(
+          "org.honton.chas.version.Match",
+          "Version Match",
+          "An actual version matched against the supported versions",
+          false,
+          new Field(long.class, "matchDuration", "Match Duration", TIMESPAN),
+          new Field(int.class, "index", "Supported Version Index", null));
+
+  /** The jdk.jfr api; or null, if not available */
+  private static volatile Api api;
+  /** The running recordings */
+  private static final Set<Object> running = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  private static volatile boolean recording;
+
+  private JfrEvents() {}
+
+  /** Is any Flight Recorder recording running? */
+  static boolean isRecording() {
+    return recording;
+  }
+
+  /**
+   * Listen for recordings starting and stopping. Does nothing when jdk.jfr is not available.
+   *
+   * @param always Whether to listen when Flight Recorder is not yet initialized
+   */
+  static synchronized void register(boolean always) {
+    if (api != null) {
+      return;
+    }
+    try {
+      // the jdk.jfr classes are not loaded until needed
+      Method isInitialized = Api.type("FlightRecorder").getMethod("isInitialized");
+      if (!always && !(Boolean) isInitialized.invoke(null)) {
+        return;
+      }
+      Api reflected = new Api();
+      Object listener =
+          Proxy.newProxyInstance(
+              JfrEvents.class.getClassLoader(),
+              new Class<?>[] {reflected.listenerType},
+              new RecordingListener());
+      api = reflected;
+      reflected.addListener.invoke(null, listener);
+    } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+      api = null;
+      debug("Flight Recorder events are not available", e);
+    }
+  }
+
+  // the logger is created upon failure, so that parsing a version does not initialize logging
+  private static void debug(String message, Throwable e) {
+    LoggerFactory.getLogger(JfrEvents.class).debug(message, e);
+  }
+
+  /** A jdk.jfr.FlightRecorderListener */
+  private static class RecordingListener implements InvocationHandler {
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "recorderInitialized":
+          recorderInitialized(args[0]);
+          return null;
+        case "recordingStateChanged":
+          recordingStateChanged(args[0]);
+          return null;
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return JfrEvents.class.getName();
+        default:
+          return null;
+      }
+    }
+  }
+
+  private static void recorderInitialized(Object flightRecorder)
+      throws ReflectiveOperationException {
+    for (Object recording : (List<?>) api.getRecordings.invoke(flightRecorder)) {
+      recordingStateChanged(recording);
+    }
+  }
+
+  private static void recordingStateChanged(Object changed) throws ReflectiveOperationException {
+    boolean isRunning = "RUNNING".equals(((Enum<?>) api.getState.invoke(changed)).name());
+    synchronized (running) {
+      if (isRunning) {
+        running.add(changed);
+      } else {
+        running.remove(changed);
+      }
+      recording = !running.isEmpty();
+    }
+  }
+
+  /** A field of an event */
+  static final class Field {
+    private final Class<?> type;
+    private final String name;
+    private final String label;
+    /** The Timespan or DataAmount unit; or null */
+    private final String unit;
+
+    Field(Class<?> type, String name, String label, String unit) {
+      this.type = type;
+      this.name = name;
+      this.label = label;
+      this.unit = unit;
+    }
+  }
+
+  /** An event type, created upon first use during a recording */
+  static final class Definition {
+    private final String name;
+    private final String label;
+    private final String description;
+    private final boolean enabled;
+    private final Field[] fields;
+
+    /** The jdk.jfr.EventFactory; or null, until created */
+    private volatile Object factory;
+    /** The jdk.jfr.EventType of the factory */
+    private volatile Object eventType;
+
+    private volatile boolean failed;
+
+    Definition(String name, String label, String description, boolean enabled, Field... fields) {
+      this.name = name;
+      this.label = label;
+      this.description = description;
+      this.enabled = enabled;
+      this.fields = fields;
+    }
+
+    /** The event name */
+    String getName() {
+      return name;
+    }
+
+    /** Is this event enabled in a running recording? */
+    boolean isEnabled() {
+      if (!recording || !create()) {
+        return false;
+      }
+      try {
+        return (Boolean) api.isEnabled.invoke(eventType);
+      } catch (ReflectiveOperationException e) {
+        return false;
+      }
+    }
+
+    /**
+     * Commit an event, if enabled in a running recording.
+     *
+     * @param values The field values, in the order of the fields
+     */
+    void commit(Object... values) {
+      if (!isEnabled()) {
+        return;
+      }
+      try {
+        Object event = api.newEvent.invoke(factory);
+        for (int i = 0; i < values.length; ++i) {
+          api.set.invoke(event, i, values[i]);
+        }
+        api.commit.invoke(event);
+      } catch (ReflectiveOperationException e) {
+        debug("Unable to commit " + name, e);
+      }
+    }
+
+    private boolean create() {
+      if (factory != null) {
+        return true;
+      }
+      if (failed) {
+        return false;
+      }
+      synchronized (this) {
+        if (factory == null && !failed) {
+          try {
+            Object created = api.create.invoke(null, annotations(), values());
+            eventType = api.getEventType.invoke(created);
+            factory = created;
+          } catch (ReflectiveOperationException | RuntimeException e) {
+            failed = true;
+            debug("Unable to create " + name, e);
+          }
+        }
+        return factory != null;
+      }
+    }
+
+    private List<Object> annotations() throws ReflectiveOperationException {
+      return Arrays.asList(
+          api.annotation("Name", name),
+          api.annotation("Label", label),
+          api.annotation("Description", description),
+          api.annotation("Category", new String[] {"SemVer"}),
+          api.annotation("Enabled", enabled));
+    }
+
+    private List<Object> values() throws ReflectiveOperationException {
+      List<Object> values = new ArrayList<>(fields.length);
+      for (Field field : fields) {
+        List<Object> annotations = new ArrayList<>(2);
+        annotations.add(api.annotation("Label", field.label));
+        if (field.unit != null) {
+          annotations.add(
+              api.annotation(TIMESPAN.equals(field.unit) ? "Timespan" : "DataAmount", field.unit));
+        }
+        values.add(api.newValue.newInstance(field.type, field.name, annotations));
+      }
+      return values;
+    }
+  }
+
+  /** The reflected jdk.jfr classes and methods */
+  private static final class Api {
+    private final Class<?> listenerType = type("FlightRecorderListener");
+    private final Method addListener =
+        type("FlightRecorder").getMethod("addListener", listenerType);
+    private final Method getRecordings = type("FlightRecorder").getMethod("getRecordings");
+    private final Method getState = type("Recording").getMethod("getState");
+    private final Method create = type("EventFactory").getMethod("create", List.class, List.class);
+    private final Method newEvent = type("EventFactory").getMethod("newEvent");
+    private final Method getEventType = type("EventFactory").getMethod("getEventType");
+    private final Method isEnabled = type("EventType").getMethod("isEnabled");
+    private final Method set = type("Event").getMethod("set", int.class, Object.class);
+    private final Method commit = type("Event").getMethod("commit");
+    private final Constructor<?> newAnnotation =
+        type("AnnotationElement").getConstructor(Class.class, Object.class);
+    private final Constructor<?> newValue =
+        type("ValueDescriptor").getConstructor(Class.class, String.class, List.class);
+
+    Api() throws ReflectiveOperationException {}
+
+    private static Class<?> type(String simpleName) throws ClassNotFoundException {
+      return Class.forName("jdk.jfr." + simpleName);
+    }
+
+    Object annotation(String simpleName, Object value) throws ReflectiveOperationException {
+      return newAnnotation.newInstance(type(simpleName), value);
+    }
+  }
+}
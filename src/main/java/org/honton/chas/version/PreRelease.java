@@ -0,0 +1,168 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The dot separated identifiers of a pre-release qualifier, tokenized once so that comparisons only
+ * walk arrays. Identifiers consisting of only digits are numeric and order before alphanumeric
+ * identifiers. Empty identifiers are ignored.
+ */
+final class PreRelease implements Comparable<PreRelease> {
+
+  /** Marker in numbers for an alphanumeric identifier */
+  static final long ALPHANUMERIC = -1;
+  /** Marker in numbers for a numeric identifier too large for a long */
+  static final long LARGE_NUMERIC = -2;
+
+  // digits which always fit in a long
+  static final int MAX_LONG_DIGITS = 18;
+
+  private static final PreRelease EMPTY = new PreRelease(new long[0], new String[0]);
+
+  /** The value of each numeric identifier; or ALPHANUMERIC, or LARGE_NUMERIC */
+  private final long[] numbers;
+  /**
+   * The text of each alphanumeric identifier, or the digits without leading zeros of each
+   * LARGE_NUMERIC identifier; otherwise null
+   */
+  private final String[] identifiers;
+
+  private PreRelease(long[] numbers, String[] identifiers) {
+    this.numbers = numbers;
+    this.identifiers = identifiers;
+  }
+
+  /**
+   * Tokenize a pre-release qualifier.
+   *
+   * @param preRelease The qualifier, without the leading minus
+   * @return The identifiers of the qualifier
+   */
+  static PreRelease tokenize(@Nonnull String preRelease) {
+    int end = preRelease.length();
+    int count = 0;
+    for (int i = 0; i < end; ) {
+      int next = identifierEnd(preRelease, i, end);
+      if (next > i) {
+        ++count;
+      }
+      i = next + 1;
+    }
+    if (count == 0) {
+      return EMPTY;
+    }
+
+    long[] numbers = new long[count];
+    String[] identifiers = new String[count];
+    int t = 0;
+    for (int i = 0; i < end; ) {
+      int next = identifierEnd(preRelease, i, end);
+      if (next > i) {
+        tokenize(preRelease, i, next, numbers, identifiers, t++);
+      }
+      i = next + 1;
+    }
+    return new PreRelease(numbers, identifiers);
+  }
+
+  private static int identifierEnd(String preRelease, int i, int end) {
+    while (i < end && preRelease.charAt(i) != '.') {
+      ++i;
+    }
+    return i;
+  }
+
+  private static void tokenize(
+      String preRelease, int start, int end, long[] numbers, String[] identifiers, int t) {
+    int significant = -1;
+    long value = 0;
+    for (int i = start; i < end; ++i) {
+      char c = preRelease.charAt(i);
+      if (c < '0' || c > '9') {
+        numbers[t] = ALPHANUMERIC;
+        identifiers[t] = preRelease.substring(start, end);
+        return;
+      }
+      if (significant < 0 && c != '0') {
+        significant = i;
+      }
+      if (significant >= 0 && i - significant < MAX_LONG_DIGITS) {
+        value = value * 10 + c - '0';
+      }
+    }
+    if (significant >= 0 && end - significant > MAX_LONG_DIGITS) {
+      numbers[t] = LARGE_NUMERIC;
+      identifiers[t] = preRelease.substring(significant, end);
+    } else {
+      numbers[t] = value;
+    }
+  }
+
+  /** The number of identifiers */
+  int size() {
+    return numbers.length;
+  }
+
+  /** The value of the numeric identifier at index; or ALPHANUMERIC, or LARGE_NUMERIC */
+  long getNumber(int index) {
+    return numbers[index];
+  }
+
+  /** The text of the alphanumeric or LARGE_NUMERIC identifier at index; otherwise null */
+  String getIdentifier(int index) {
+    return identifiers[index];
+  }
+
+  /**
+   * Compare pre-release precedence following the rules at <a
+   * href="https://semver.org/#spec-item-11">semver.org</a>.
+   *
+   * @param other The other pre-release
+   * @return 0, if equal; &gt;0, if this is later; &lt;0, if this is earlier
+   */
+  @Override
+  public int compareTo(@Nonnull PreRelease other) {
+    int common = Math.min(numbers.length, other.numbers.length);
+    for (int i = 0; i < common; ++i) {
+      int cmp = compareIdentifier(i, other);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return numbers.length - other.numbers.length;
+  }
+
+  private int compareIdentifier(int i, PreRelease other) {
+    long left = numbers[i];
+    long right = other.numbers[i];
+    if (left >= 0 && right >= 0) {
+      return Long.compare(left, right);
+    }
+    if (left == right) {
+      String l = identifiers[i];
+      String r = other.identifiers[i];
+      if (left == LARGE_NUMERIC && l.length() != r.length()) {
+        return l.length() - r.length();
+      }
+      return l.compareTo(r);
+    }
+    if (left == ALPHANUMERIC) {
+      // Numbers are ordered earlier than alpha fields
+      return 1;
+    }
+    if (right == ALPHANUMERIC) {
+      return -1;
+    }
+    // one is LARGE_NUMERIC, the other fits in a long
+    return left == LARGE_NUMERIC ? 1 : -1;
+  }
+}
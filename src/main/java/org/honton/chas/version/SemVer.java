@@ -9,8 +9,7 @@
  */
 package org.honton.chas.version;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.nio.ByteBuffer;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import lombok.AccessLevel;
@@ -23,26 +22,24 @@ import lombok.RequiredArgsConstructor;
  * A semantic version mostly following the rules at <a href="https://semver.org">semver.org</a>. The
  * major.minor.patch numbering scheme is loosened. If minor or patch is not supplied, the minor and
  * patch attributes will be -1.
+ *
+ * <p>The natural ordering follows semver.org precedence; when the ordinals of one version are a
+ * prefix of the ordinals of another, the shorter version is earlier. Metadata is ignored, so the
+ * natural ordering is inconsistent with equals.
  */
 @Getter
 @EqualsAndHashCode(of = "version")
 @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
-public class SemVer {
-
-  private static final Pattern SEM_VER_EXACT =
-      Pattern.compile(
-          '^'
-              + "(((0|[1-9][0-9]*)(\\.(0|[1-9][0-9]*))*)"
-              + "(-([0-9A-Za-z-\\.]*))?)"
-              + "(\\+([0-9A-Za-z-\\.]*))?"
-              + '$');
-  private static final int ORDINAL_GROUP = 2;
-  private static final int PRE_RELEASE_GROUP = 7;
-  private static final int META_GROUP = 9;
-
-  private static final Pattern PRE_RELEASE = Pattern.compile("(([1-9]\\d*)|([0-9A-Za-z-]+))\\.?");
-  private static final int LEXICAL_GROUP = 1;
-  private static final int NUMERIC_GROUP = 2;
+public class SemVer implements Comparable<SemVer> {
+
+  // Versions are parsed by hand rather than with a regular expression; the accepted grammar is
+  // ^((0|[1-9][0-9]*)(\.(0|[1-9][0-9]*))*)(-([0-9A-Za-z-\.]*))?(\+([0-9A-Za-z-\.]*))?$
+  private static final int FAST_ORDINALS = 3;
+
+  // major, minor + 1, and patch + 1 are packed into 21 bit fields of the sort key
+  private static final int KEY_BITS = 21;
+  private static final int KEY_LIMIT = 1 << KEY_BITS;
+  private static final long NO_KEY = -1;
 
   /** The version as given in the constructor */
   private final String version;
@@ -57,6 +54,12 @@ public class SemVer {
    * 1.2.3+exp.sha.5114f85
    */
   private final String metadata;
+  /** The tokenized pre-release qualifier; or null, if there is no pre-release qualifier */
+  @Getter(AccessLevel.PACKAGE)
+  private final PreRelease preReleaseIdentifiers;
+  /** The packed major, minor, and patch; or NO_KEY, if an ordinal does not fit */
+  @Getter(AccessLevel.NONE)
+  private final long sortKey;
 
   /**
    * Create an instance from the string specification
@@ -69,27 +72,351 @@ public class SemVer {
     if (version == null) {
       return null;
     }
-    Matcher matcher = SEM_VER_EXACT.matcher(version);
-    if (!matcher.find()) {
+    SemVer semVer = parse(version, 0, version.length());
+    if (semVer == null) {
       throw new IllegalArgumentException(version + " is not a proper semantic version");
     }
+    return semVer;
+  }
+
+  /**
+   * Create an instance from the string specification without throwing when the string is not a
+   * semantic version. Useful for bulk ingestion where malformed input is expected.
+   *
+   * @param version The string
+   * @return A SemVer; or null, if version is null or is not a semantic version
+   */
+  public static SemVer tryParse(@Nullable String version) {
+    return version != null ? parse(version, 0, version.length()) : null;
+  }
+
+  /**
+   * Create an instance from a slice of characters.
+   *
+   * @param version The characters
+   * @param offset The index of the first character of the version
+   * @param length The number of characters in the version
+   * @return A SemVer
+   * @throws IllegalArgumentException when the slice is not a semantic version
+   * @throws IndexOutOfBoundsException when the slice is not within version
+   */
+  public static SemVer valueOf(@NonNull CharSequence version, int offset, int length) {
+    return proper(tryParse(version, offset, length), version, offset, length);
+  }
+
+  /**
+   * Create an instance from a slice of characters without throwing when the slice is not a semantic
+   * version.
+   *
+   * @param version The characters
+   * @param offset The index of the first character of the version
+   * @param length The number of characters in the version
+   * @return A SemVer; or null, if the slice is not a semantic version
+   * @throws IndexOutOfBoundsException when the slice is not within version
+   */
+  public static SemVer tryParse(@NonNull CharSequence version, int offset, int length) {
+    VersionText.checkSlice(offset, length, version.length());
+    return parse(version, offset, offset + length);
+  }
+
+  /**
+   * Create an instance from a slice of ASCII bytes.
+   *
+   * @param version The bytes
+   * @param offset The index of the first byte of the version
+   * @param length The number of bytes in the version
+   * @return A SemVer
+   * @throws IllegalArgumentException when the slice is not a semantic version
+   * @throws IndexOutOfBoundsException when the slice is not within version
+   */
+  public static SemVer valueOf(@NonNull byte[] version, int offset, int length) {
+    return proper(tryParse(version, offset, length), version, offset, length);
+  }
+
+  /**
+   * Create an instance from a slice of ASCII bytes without throwing when the slice is not a
+   * semantic version.
+   *
+   * @param version The bytes
+   * @param offset The index of the first byte of the version
+   * @param length The number of bytes in the version
+   * @return A SemVer; or null, if the slice is not a semantic version
+   * @throws IndexOutOfBoundsException when the slice is not within version
+   */
+  public static SemVer tryParse(@NonNull byte[] version, int offset, int length) {
+    VersionText.checkSlice(offset, length, version.length);
+    return parse(version, offset, offset + length);
+  }
+
+  /**
+   * Create an instance from a slice of ASCII bytes. The buffer's position is not changed.
+   *
+   * @param version The buffer
+   * @param offset The absolute index of the first byte of the version
+   * @param length The number of bytes in the version
+   * @return A SemVer
+   * @throws IllegalArgumentException when the slice is not a semantic version
+   * @throws IndexOutOfBoundsException when the slice is not within the buffer's limit
+   */
+  public static SemVer valueOf(@NonNull ByteBuffer version, int offset, int length) {
+    return proper(tryParse(version, offset, length), version, offset, length);
+  }
+
+  /**
+   * Create an instance from a slice of ASCII bytes without throwing when the slice is not a
+   * semantic version. The buffer's position is not changed.
+   *
+   * @param version The buffer
+   * @param offset The absolute index of the first byte of the version
+   * @param length The number of bytes in the version
+   * @return A SemVer; or null, if the slice is not a semantic version
+   * @throws IndexOutOfBoundsException when the slice is not within the buffer's limit
+   */
+  public static SemVer tryParse(@NonNull ByteBuffer version, int offset, int length) {
+    VersionText.checkSlice(offset, length, version.limit());
+    return parse(version, offset, offset + length);
+  }
+
+  private static SemVer proper(SemVer semVer, Object text, int offset, int length) {
+    if (semVer == null) {
+      throw new IllegalArgumentException(
+          VersionText.substring(text, offset, offset + length)
+              + " is not a proper semantic version");
+    }
+    return semVer;
+  }
+
+  /**
+   * Is a slice of characters a semantic version? Nothing is allocated.
+   *
+   * @param version The characters
+   * @param offset The index of the first character of the version
+   * @param length The number of characters in the version
+   * @return true, if valueOf would accept the slice
+   * @throws IndexOutOfBoundsException when the slice is not within version
+   */
+  public static boolean isValid(@NonNull CharSequence version, int offset, int length) {
+    VersionText.checkSlice(offset, length, version.length());
+    return VersionText.isValid(version, offset, offset + length);
+  }
+
+  /**
+   * Is a slice of ASCII bytes a semantic version? Nothing is allocated.
+   *
+   * @param version The bytes
+   * @param offset The index of the first byte of the version
+   * @param length The number of bytes in the version
+   * @return true, if valueOf would accept the slice
+   * @throws IndexOutOfBoundsException when the slice is not within version
+   */
+  public static boolean isValid(@NonNull byte[] version, int offset, int length) {
+    VersionText.checkSlice(offset, length, version.length);
+    return VersionText.isValid(version, offset, offset + length);
+  }
+
+  /**
+   * Is a slice of ASCII bytes a semantic version? Nothing is allocated, and the buffer's position
+   * is not changed.
+   *
+   * @param version The buffer
+   * @param offset The absolute index of the first byte of the version
+   * @param length The number of bytes in the version
+   * @return true, if valueOf would accept the slice
+   * @throws IndexOutOfBoundsException when the slice is not within the buffer's limit
+   */
+  public static boolean isValid(@NonNull ByteBuffer version, int offset, int length) {
+    VersionText.checkSlice(offset, length, version.limit());
+    return VersionText.isValid(version, offset, offset + length);
+  }
+
+  /**
+   * Does a slice of characters support the expected version, as {@link #isSupported(SemVer)}?
+   * Nothing is allocated.
+   *
+   * @param version The characters
+   * @param offset The index of the first character of the version
+   * @param length The number of characters in the version
+   * @param expected The desired version
+   * @return true, if the slice is a semantic version which supports the expected version
+   * @throws IndexOutOfBoundsException when the slice is not within version
+   */
+  public static boolean isSupported(
+      @NonNull CharSequence version, int offset, int length, @NonNull SemVer expected) {
+    VersionText.checkSlice(offset, length, version.length());
+    return VersionText.isSupported(version, offset, offset + length, expected);
+  }
+
+  /**
+   * Does a slice of ASCII bytes support the expected version, as {@link #isSupported(SemVer)}?
+   * Nothing is allocated.
+   *
+   * @param version The bytes
+   * @param offset The index of the first byte of the version
+   * @param length The number of bytes in the version
+   * @param expected The desired version
+   * @return true, if the slice is a semantic version which supports the expected version
+   * @throws IndexOutOfBoundsException when the slice is not within version
+   */
+  public static boolean isSupported(
+      @NonNull byte[] version, int offset, int length, @NonNull SemVer expected) {
+    VersionText.checkSlice(offset, length, version.length);
+    return VersionText.isSupported(version, offset, offset + length, expected);
+  }
+
+  /**
+   * Does a slice of ASCII bytes support the expected version, as {@link #isSupported(SemVer)}?
+   * Nothing is allocated, and the buffer's position is not changed.
+   *
+   * @param version The buffer
+   * @param offset The absolute index of the first byte of the version
+   * @param length The number of bytes in the version
+   * @param expected The desired version
+   * @return true, if the slice is a semantic version which supports the expected version
+   * @throws IndexOutOfBoundsException when the slice is not within the buffer's limit
+   */
+  public static boolean isSupported(
+      @NonNull ByteBuffer version, int offset, int length, @NonNull SemVer expected) {
+    VersionText.checkSlice(offset, length, version.limit());
+    return VersionText.isSupported(version, offset, offset + length, expected);
+  }
+
+  // return null, if text is not a semantic version
+  private static SemVer parse(Object text, int start, int end) {
+    SemVer semVer = scan(text, start, end);
+    if (semVer == null && VersionListeners.isEnabled()) {
+      VersionListeners.parseFailed(VersionText.substring(text, start, end));
+    }
+    return semVer;
+  }
+
+  /*
+   * Single pass over the version: ordinals, then an optional -preRelease, then an optional
+   * +metadata. The first three ordinals are held in locals so that the common case allocates
+   * only the SemVer, its ordinals array, and any preRelease or metadata strings.
+   * return null, if text is not a semantic version
+   */
+  private static SemVer scan(Object text, int start, int textEnd) {
+    int end = VersionText.contentEnd(text, start, textEnd);
+    int major = 0;
+    int minor = 0;
+    int patch = 0;
+    int count = 0;
+    int value = -1;
+    int i = start;
+    for (; i <= end; ++i) {
+      char c = i < end ? VersionText.charAt(text, i) : 0;
+      if (c >= '0' && c <= '9') {
+        int digit = c - '0';
+        if (value == 0 || value > (Integer.MAX_VALUE - digit) / 10) {
+          // leading zero or overflow
+          return null;
+        }
+        value = value < 0 ? digit : value * 10 + digit;
+        continue;
+      }
+      if (value < 0) {
+        // empty ordinal
+        return null;
+      }
+      switch (count++) {
+        case 0:
+          major = value;
+          break;
+        case 1:
+          minor = value;
+          break;
+        case 2:
+          patch = value;
+          break;
+        default:
+          break;
+      }
+      if (c != '.') {
+        break;
+      }
+      value = -1;
+    }
+    int ordinalEnd = i;
+
+    int preReleaseStart = -1;
+    if (i < end && VersionText.charAt(text, i) == '-') {
+      preReleaseStart = ++i;
+      i = VersionText.identifiersEnd(text, i, end);
+    }
+    int preReleaseEnd = i;
+
+    int metadataStart = -1;
+    if (i < end && VersionText.charAt(text, i) == '+') {
+      metadataStart = ++i;
+      i = VersionText.identifiersEnd(text, i, end);
+    }
+    if (i != end) {
+      return null;
+    }
+
+    int[] ordinals;
+    if (count <= FAST_ORDINALS) {
+      ordinals = new int[count];
+      ordinals[0] = major;
+      if (count > 1) {
+        ordinals[1] = minor;
+        if (count > 2) {
+          ordinals[2] = patch;
+        }
+      }
+    } else {
+      ordinals = rescanOrdinals(text, start, ordinalEnd, count);
+    }
+    String version =
+        text instanceof String && start == 0 && end == ((String) text).length()
+            ? (String) text
+            : VersionText.substring(text, start, end);
+    String preRelease =
+        preReleaseStart < 0
+            ? null
+            : version.substring(preReleaseStart - start, preReleaseEnd - start);
     return new SemVer(
-        matcher.group(0),
-        getOrdinals(matcher),
-        matcher.group(PRE_RELEASE_GROUP),
-        matcher.group(META_GROUP));
+        version,
+        ordinals,
+        preRelease,
+        metadataStart < 0 ? null : version.substring(metadataStart - start),
+        preRelease != null ? PreRelease.tokenize(preRelease) : null,
+        sortKey(ordinals));
   }
 
-  private static int[] getOrdinals(Matcher matcher) {
-    String group = matcher.group(ORDINAL_GROUP);
-    String[] segments = group.split("\\.");
-    int[] ordinals = new int[segments.length];
-    for (int i = 0; i < segments.length; ++i) {
-      ordinals[i] = Integer.parseInt(segments[i]);
+  // ordinals already validated by parse, only used when there are more than FAST_ORDINALS
+  private static int[] rescanOrdinals(Object text, int start, int ordinalEnd, int count) {
+    int[] ordinals = new int[count];
+    int o = 0;
+    for (int i = start; i < ordinalEnd; ++i) {
+      char c = VersionText.charAt(text, i);
+      if (c == '.') {
+        ++o;
+      } else {
+        ordinals[o] = ordinals[o] * 10 + c - '0';
+      }
     }
     return ordinals;
   }
 
+  /*
+   * Pack the first three ordinals such that comparing keys is the same as comparing ordinals.
+   * Missing minor or patch are -1, so one is added to each to keep them non-negative.
+   * return NO_KEY, if any of the ordinals do not fit in KEY_BITS
+   */
+  private static long sortKey(int[] ordinals) {
+    long key = 0;
+    for (int i = 0; i < FAST_ORDINALS; ++i) {
+      // as a long, so that adding one to Integer.MAX_VALUE does not overflow
+      long field = i == 0 ? ordinals[0] : i < ordinals.length ? ordinals[i] + 1L : 0;
+      if (field >= KEY_LIMIT) {
+        return NO_KEY;
+      }
+      key = (key << KEY_BITS) | field;
+    }
+    return key;
+  }
+
   /** The version as given in the constructor */
   public String getVersion() {
     return version;
@@ -143,51 +470,44 @@ public class SemVer {
     if (preRelease == null || expected.preRelease == null) {
       return preRelease == null;
     }
-    return preReleaseCompare(expected);
+    return preReleaseIdentifiers.compareTo(expected.preReleaseIdentifiers) >= 0;
   }
 
-  // pre-release comparisons...
-  private boolean preReleaseCompare(SemVer expected) {
-
-    Matcher a = PRE_RELEASE.matcher(preRelease);
-    Matcher e = PRE_RELEASE.matcher(expected.preRelease);
-    while (a.find()) {
-      if (!e.find()) {
-        return true;
-      }
-
-      int numberCmp = numberCompare(a.group(NUMERIC_GROUP), e.group(NUMERIC_GROUP));
-      if (numberCmp != 0) {
-        return numberCmp > 0;
+  /**
+   * Compare precedence with another version. Metadata is ignored.
+   *
+   * @param other The other version
+   * @return 0, if of equal precedence; &gt;0, if this is later; &lt;0, if this is earlier
+   */
+  @Override
+  public int compareTo(@NonNull SemVer other) {
+    int from = 0;
+    if (sortKey != NO_KEY && other.sortKey != NO_KEY) {
+      if (sortKey != other.sortKey) {
+        return Long.compare(sortKey, other.sortKey);
       }
+      // the first FAST_ORDINALS ordinals are equal
+      from = FAST_ORDINALS;
+    }
 
-      int lexicalCmp = a.group(LEXICAL_GROUP).compareTo(e.group(LEXICAL_GROUP));
-      if (lexicalCmp != 0) {
-        return lexicalCmp > 0;
+    int common = Math.min(ordinals.length, other.ordinals.length);
+    for (int i = from; i < common; ++i) {
+      if (ordinals[i] != other.ordinals[i]) {
+        return Integer.compare(ordinals[i], other.ordinals[i]);
       }
     }
-    return !e.find();
-  }
+    if (ordinals.length != other.ordinals.length) {
+      return ordinals.length - other.ordinals.length;
+    }
 
-  /*
-   * Compare a segment numerically
-   * return 0, if leftField and rightField are equal; >0, if leftField>rightField; <0, if leftField<rightField
-   */
-  private static int numberCompare(String leftField, String rightField) {
-    if (leftField != null) {
-      if (rightField == null) {
-        // leftField is number and rightField is not.  Numbers are ordered earlier than alpha fields
-        return -1;
-      }
-      // both are numbers, compare numerically
-      return Integer.parseInt(leftField) - Integer.parseInt(rightField);
-    } else if (rightField != null) {
-      // rightField is number and leftField is not.
-      // Numbers are ordered earlier than alpha fields
-      return 1;
-    }
-    // both are not numbers
-    return 0;
+    // a release is later than any of its pre-releases
+    if (preReleaseIdentifiers == null) {
+      return other.preReleaseIdentifiers == null ? 0 : 1;
+    }
+    if (other.preReleaseIdentifiers == null) {
+      return -1;
+    }
+    return preReleaseIdentifiers.compareTo(other.preReleaseIdentifiers);
   }
 
   /**
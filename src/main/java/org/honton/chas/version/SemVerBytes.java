@@ -0,0 +1,252 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import lombok.NonNull;
+
+/**
+ * A binary encoding of SemVer whose unsigned lexicographic byte order is SemVer precedence, so that
+ * encoded versions can be sorted and range scanned, as keys of a sorted store, without decoding.
+ * Metadata is not encoded, so versions which differ only in metadata have the same encoding, and a
+ * decoded version has no metadata. Numeric pre-release identifiers are decoded without leading
+ * zeros.
+ *
+ * <p>The encoding is
+ *
+ * <pre>
+ * version    = ordinal { ORDINAL ordinal } ( RELEASE | PRE_RELEASE { identifier } END )
+ * ordinal    = length(0-4) big-endian-bytes-without-leading-zeros
+ * identifier = NUMERIC digit-count digits | ALPHANUMERIC characters END
+ * </pre>
+ *
+ * where a digit-count below 255 is one byte, otherwise 255 followed by a four byte count.
+ */
+public final class SemVerBytes {
+
+  private static final byte END = 0;
+  private static final byte PRE_RELEASE = 1;
+  private static final byte RELEASE = 2;
+  private static final byte ORDINAL = 3;
+  private static final byte NUMERIC = 1;
+  private static final byte ALPHANUMERIC = 2;
+  private static final int LONG_COUNT = 0xFF;
+
+  private SemVerBytes() {}
+
+  /**
+   * The number of bytes needed to encode a version.
+   *
+   * @param version The version
+   * @return The encoded length
+   */
+  public static int encodedLength(@NonNull SemVer version) {
+    int[] ordinals = version.getOrdinals();
+    // a length byte for each ordinal, and a marker following each ordinal
+    int length = 2 * ordinals.length;
+    for (int ordinal : ordinals) {
+      length += ordinalBytes(ordinal);
+    }
+    PreRelease preRelease = version.getPreReleaseIdentifiers();
+    if (preRelease != null) {
+      length += 1;
+      for (int i = 0; i < preRelease.size(); ++i) {
+        long number = preRelease.getNumber(i);
+        if (number == PreRelease.ALPHANUMERIC) {
+          length += preRelease.getIdentifier(i).length() + 2;
+        } else {
+          int digits = number >= 0 ? digitCount(number) : preRelease.getIdentifier(i).length();
+          length += digits + (digits < LONG_COUNT ? 2 : 6);
+        }
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Encode a version.
+   *
+   * @param version The version
+   * @return The encoding
+   */
+  public static byte[] encode(@NonNull SemVer version) {
+    ByteBuffer buffer = ByteBuffer.allocate(encodedLength(version));
+    encode(version, buffer);
+    return buffer.array();
+  }
+
+  /**
+   * Encode a version at the buffer's position, advancing the position.
+   *
+   * @param version The version
+   * @param buffer The buffer, with at least {@link #encodedLength(SemVer)} bytes remaining
+   * @throws java.nio.BufferOverflowException when the buffer has insufficient space
+   */
+  public static void encode(@NonNull SemVer version, @NonNull ByteBuffer buffer) {
+    int[] ordinals = version.getOrdinals();
+    for (int i = 0; i < ordinals.length; ++i) {
+      if (i > 0) {
+        buffer.put(ORDINAL);
+      }
+      putOrdinal(ordinals[i], buffer);
+    }
+    PreRelease preRelease = version.getPreReleaseIdentifiers();
+    if (preRelease == null) {
+      buffer.put(RELEASE);
+      return;
+    }
+    buffer.put(PRE_RELEASE);
+    for (int i = 0; i < preRelease.size(); ++i) {
+      long number = preRelease.getNumber(i);
+      if (number == PreRelease.ALPHANUMERIC) {
+        buffer.put(ALPHANUMERIC);
+        putAscii(preRelease.getIdentifier(i), buffer);
+        buffer.put(END);
+      } else {
+        buffer.put(NUMERIC);
+        if (number >= 0) {
+          putCount(digitCount(number), buffer);
+          putDigits(number, buffer);
+        } else {
+          String digits = preRelease.getIdentifier(i);
+          putCount(digits.length(), buffer);
+          putAscii(digits, buffer);
+        }
+      }
+    }
+    buffer.put(END);
+  }
+
+  /**
+   * Decode a version from the buffer's position, advancing the position past the encoding.
+   *
+   * @param buffer The buffer
+   * @return The version, without metadata
+   * @throws IllegalArgumentException when the buffer does not hold an encoded version
+   */
+  public static SemVer decode(@NonNull ByteBuffer buffer) {
+    StringBuilder sb = new StringBuilder();
+    try {
+      sb.append(getOrdinal(buffer));
+      byte marker;
+      while ((marker = buffer.get()) == ORDINAL) {
+        sb.append('.').append(getOrdinal(buffer));
+      }
+      if (marker == PRE_RELEASE) {
+        sb.append('-');
+        boolean first = true;
+        for (byte tag; (tag = buffer.get()) != END; first = false) {
+          if (!first) {
+            sb.append('.');
+          }
+          if (tag == NUMERIC) {
+            for (int count = getCount(buffer); count > 0; --count) {
+              sb.append((char) buffer.get());
+            }
+          } else if (tag == ALPHANUMERIC) {
+            for (byte b; (b = buffer.get()) != END; ) {
+              sb.append((char) b);
+            }
+          } else {
+            throw new IllegalArgumentException("unknown identifier tag " + tag);
+          }
+        }
+      } else if (marker != RELEASE) {
+        throw new IllegalArgumentException("unknown marker " + marker);
+      }
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("truncated version encoding", e);
+    }
+    return SemVer.valueOf(sb.toString());
+  }
+
+  /**
+   * Compare the remaining bytes of two buffers as unsigned bytes, without changing the positions.
+   * For encoded versions, this is the precedence of the versions.
+   *
+   * @param left The first buffer
+   * @param right The second buffer
+   * @return 0, if equal; &gt;0, if left is later; &lt;0, if left is earlier
+   */
+  public static int compare(@NonNull ByteBuffer left, @NonNull ByteBuffer right) {
+    int l = left.position();
+    int r = right.position();
+    int common = Math.min(left.remaining(), right.remaining());
+    for (int i = 0; i < common; ++i) {
+      int cmp = Integer.compare(left.get(l + i) & 0xFF, right.get(r + i) & 0xFF);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return left.remaining() - right.remaining();
+  }
+
+  private static int ordinalBytes(int ordinal) {
+    return (Integer.SIZE - Integer.numberOfLeadingZeros(ordinal) + 7) / 8;
+  }
+
+  private static void putOrdinal(int ordinal, ByteBuffer buffer) {
+    int bytes = ordinalBytes(ordinal);
+    buffer.put((byte) bytes);
+    for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+      buffer.put((byte) (ordinal >>> shift));
+    }
+  }
+
+  private static int getOrdinal(ByteBuffer buffer) {
+    int bytes = buffer.get();
+    if (bytes < 0 || bytes > Integer.BYTES) {
+      throw new IllegalArgumentException("unknown ordinal length " + bytes);
+    }
+    int ordinal = 0;
+    for (int i = 0; i < bytes; ++i) {
+      ordinal = (ordinal << 8) | (buffer.get() & 0xFF);
+    }
+    return ordinal;
+  }
+
+  private static void putCount(int count, ByteBuffer buffer) {
+    if (count < LONG_COUNT) {
+      buffer.put((byte) count);
+    } else {
+      buffer.put((byte) LONG_COUNT).putInt(count);
+    }
+  }
+
+  private static int getCount(ByteBuffer buffer) {
+    int count = buffer.get() & 0xFF;
+    return count < LONG_COUNT ? count : buffer.getInt();
+  }
+
+  private static int digitCount(long number) {
+    int digits = 1;
+    for (long n = number / 10; n > 0; n /= 10) {
+      ++digits;
+    }
+    return digits;
+  }
+
+  private static void putDigits(long number, ByteBuffer buffer) {
+    long divisor = 1;
+    for (long n = number / 10; n > 0; n /= 10) {
+      divisor *= 10;
+    }
+    for (; divisor > 0; divisor /= 10) {
+      buffer.put((byte) ('0' + number / divisor % 10));
+    }
+  }
+
+  private static void putAscii(String text, ByteBuffer buffer) {
+    for (int i = 0; i < text.length(); ++i) {
+      buffer.put((byte) text.charAt(i));
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+
+/**
+ * A bounded cache of parsed versions, keyed by the version string, so that repeated parses of the
+ * same string return the same immutable SemVer. The cache is split into independently locked
+ * segments, each evicting its least recently used entry when full. Strings which are not semantic
+ * versions are not cached.
+ */
+public class SemVerCache {
+
+  private static final int MAX_SEGMENTS = 16;
+  // small segments evict too eagerly when versions collide
+  private static final int MIN_SEGMENT_SIZE = 32;
+
+  private final Segment[] segments;
+  private final int segmentMask;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Create a cache
+   *
+   * @param maximumSize The maximum number of versions held
+   * @throws IllegalArgumentException when maximumSize is not positive
+   */
+  public SemVerCache(int maximumSize) {
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("maximumSize must be positive");
+    }
+    int count = 1;
+    while (count < MAX_SEGMENTS && count * 2 * MIN_SEGMENT_SIZE <= maximumSize) {
+      count *= 2;
+    }
+    segments = new Segment[count];
+    for (int i = 0; i < count; ++i) {
+      // distribute any remainder to the first segments
+      segments[i] = new Segment(maximumSize / count + (i < maximumSize % count ? 1 : 0));
+    }
+    segmentMask = count - 1;
+  }
+
+  /**
+   * Get the cached instance for the string specification, parsing and caching it if not present.
+   *
+   * @param version The string
+   * @return A SemVer; or null, if version is null
+   * @throws IllegalArgumentException when version is not a semantic version
+   */
+  public SemVer valueOf(@Nullable String version) {
+    SemVer semVer = tryParse(version);
+    if (semVer == null && version != null) {
+      throw new IllegalArgumentException(version + " is not a proper semantic version");
+    }
+    return semVer;
+  }
+
+  /**
+   * Get the cached instance for the string specification, parsing and caching it if not present.
+   *
+   * @param version The string
+   * @return A SemVer; or null, if version is null or is not a semantic version
+   */
+  public SemVer tryParse(@Nullable String version) {
+    if (version == null) {
+      return null;
+    }
+    Segment segment = segmentFor(version);
+    SemVer semVer = segment.get(version);
+    if (VersionListeners.isEnabled()) {
+      VersionListeners.cacheLookup(SemVerCache.class.getSimpleName(), semVer != null);
+    }
+    if (semVer != null) {
+      hits.increment();
+      return semVer;
+    }
+    misses.increment();
+    // parse outside of the segment lock
+    semVer = SemVer.tryParse(version);
+    return semVer != null ? segment.putIfAbsent(version, semVer) : null;
+  }
+
+  private Segment segmentFor(String version) {
+    int h = version.hashCode();
+    return segments[(h ^ (h >>> 16)) & segmentMask];
+  }
+
+  /** The number of lookups which found a cached version */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /** The number of lookups which did not find a cached version */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /** The number of versions removed to keep the cache within its maximum size */
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /** The number of versions currently cached */
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  /** Remove all cached versions. The counters are not reset. */
+  public void clear() {
+    for (Segment segment : segments) {
+      segment.clear();
+    }
+  }
+
+  /** An access ordered map which removes its least recently used entry when over capacity */
+  private class Segment {
+
+    private final Map<String, SemVer> versions;
+
+    Segment(int capacity) {
+      versions =
+          new LinkedHashMap<String, SemVer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SemVer> eldest) {
+              if (size() > capacity) {
+                evictions.increment();
+                return true;
+              }
+              return false;
+            }
+          };
+    }
+
+    synchronized SemVer get(String version) {
+      return versions.get(version);
+    }
+
+    synchronized SemVer putIfAbsent(String version, SemVer semVer) {
+      SemVer prior = versions.putIfAbsent(version, semVer);
+      return prior != null ? prior : semVer;
+    }
+
+    synchronized int size() {
+      return versions.size();
+    }
+
+    synchronized void clear() {
+      versions.clear();
+    }
+  }
+}
@@ -9,14 +9,21 @@
  */
 package org.honton.chas.version;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Enumeration;
 import java.util.Properties;
 import java.util.function.Function;
+import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipException;
 import javax.annotation.Nullable;
 import lombok.extern.slf4j.Slf4j;
 
@@ -24,6 +31,10 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 class VersionExtractor {
 
+  private static final Attributes.Name BUNDLE_VERSION = new Attributes.Name("Bundle-Version");
+  private static final Attributes.Name AUTOMATIC_MODULE_NAME =
+      new Attributes.Name("Automatic-Module-Name");
+
   private VersionExtractor() {
     // utility class
   }
@@ -31,28 +42,158 @@ class VersionExtractor {
   /**
    * Extract the version and metadata from the contents of a jar. The version and metadata is found
    * in the maven generated pom.properties file. The metadata formated as
-   * <i>groupId</i>-<i>artifactId</i>.
+   * <i>groupId</i>-<i>artifactId</i>. When the jar has no pom.properties, the version is taken from
+   * the Implementation-Version or Bundle-Version manifest attribute, and the metadata from the
+   * Automatic-Module-Name attribute. A manifest version which is not a semantic version is ignored.
    *
    * @param file The file which must be a jar
    * @return null, if version information cannot be extracted from the jar
    */
   static @Nullable String extractVersion(File file) {
+    return extractVersion(new JarLocation(file));
+  }
+
+  /**
+   * Extract the version and metadata from the contents of a jar, which may be nested inside other
+   * jars. A nested jar must be stored rather than compressed; it is read in place, using positioned
+   * reads of the outer jar file.
+   *
+   * @param location The location of the jar
+   * @return null, if version information cannot be extracted from the jar
+   */
+  static @Nullable String extractVersion(JarLocation location) {
+    Scan scan = new Scan();
+    if (!VersionListeners.isEnabled()) {
+      return readVersion(location, scan);
+    }
+    long start = System.nanoTime();
+    String version = readVersion(location, scan);
+    VersionListeners.jarScanned(
+        location.toString(),
+        System.nanoTime() - start,
+        scan.bytesRead,
+        scan.entriesVisited,
+        version);
+    return version;
+  }
+
+  private static @Nullable String readVersion(JarLocation location, Scan scan) {
+    if (!location.isNested()) {
+      return readVersion(location.getFile(), scan);
+    }
+    Path path = location.getFile().toPath();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ZipArchive archive = ZipArchive.read(channel, 0, channel.size());
+      for (String nestedEntry : location.getNestedEntries()) {
+        ZipArchive.Entry entry = archive.findEntry(nestedEntry);
+        if (entry == null) {
+          log.warn("Unable to find " + location);
+          return null;
+        }
+        if (entry.getMethod() != ZipArchive.STORED) {
+          log.warn("Unable to read compressed nested jar " + location);
+          return null;
+        }
+        long position = archive.dataPosition(entry);
+        scan.bytesRead += archive.getBytesRead();
+        archive = ZipArchive.read(channel, position, entry.getSize());
+      }
+      return readVersion(archive, scan);
+    } catch (IOException e) {
+      log.warn("Unable to read " + location, e);
+      return null;
+    }
+  }
+
+  private static @Nullable String readVersion(File file, Scan scan) {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      return readVersion(ZipArchive.read(channel, 0, channel.size()), scan);
+    } catch (ZipException e) {
+      log.debug("Unable to read central directory of " + file.getName(), e);
+      return readJarFile(file, scan);
+    } catch (IOException e) {
+      log.warn("Unable to read " + file.getName(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Extract the version by iterating all of the entries of the jar. Used when the central directory
+   * of the jar cannot be read directly.
+   */
+  static @Nullable String extractVersionFromJarFile(File file) {
+    return readJarFile(file, new Scan());
+  }
+
+  private static @Nullable String readJarFile(File file, Scan scan) {
     try (JarFile jarFile = new JarFile(file)) {
-      return readVersion(jarFile);
+      // JarFile does not expose its reads, so count the whole jar
+      scan.bytesRead += file.length();
+      return readVersion(jarFile, scan);
     } catch (IOException e) {
       log.warn("Unable to read " + file.getName(), e);
       return null;
     }
   }
 
+  /**
+   * Read the version from an archive. Only the central directory and the pom.properties or manifest
+   * entries are read.
+   *
+   * @return A SemVer string
+   */
+  private static @Nullable String readVersion(ZipArchive archive, Scan scan) throws IOException {
+    ZipArchive.VersionEntries entries = archive.findVersionEntries();
+    scan.entriesVisited += entries.entriesVisited;
+    try {
+      if (entries.pomProperties != null) {
+        byte[] contents = archive.readContents(entries.pomProperties);
+        return readProperties(new ByteArrayInputStream(contents), GroupArtifactVersion::new)
+            .withMeta();
+      }
+      if (entries.manifest != null) {
+        byte[] contents = archive.readContents(entries.manifest);
+        return readManifestVersion(new Manifest(new ByteArrayInputStream(contents)));
+      }
+      return null;
+    } finally {
+      scan.bytesRead += archive.getBytesRead();
+    }
+  }
+
   /**
    * Read the version from the jar. Look for both server-version and pom.properties
    *
    * @return A SemVer string
    */
-  private static @Nullable String readVersion(JarFile jarFile) throws IOException {
-    GroupArtifactVersion pomMeta = readPomMeta(jarFile);
-    return pomMeta != null ? pomMeta.withMeta() : null;
+  private static @Nullable String readVersion(JarFile jarFile, Scan scan) throws IOException {
+    GroupArtifactVersion pomMeta = readPomMeta(jarFile, scan);
+    if (pomMeta != null) {
+      return pomMeta.withMeta();
+    }
+    Manifest manifest = jarFile.getManifest();
+    return manifest != null ? readManifestVersion(manifest) : null;
+  }
+
+  /*
+   * Manifest versions are free text, such as 5.3.10.RELEASE, so only a semantic version is
+   * returned. A module name which is not valid metadata, such as one with an underscore, is dropped.
+   */
+  private static @Nullable String readManifestVersion(Manifest manifest) {
+    Attributes attributes = manifest.getMainAttributes();
+    String version = attributes.getValue(Attributes.Name.IMPLEMENTATION_VERSION);
+    if (version == null) {
+      version = attributes.getValue(BUNDLE_VERSION);
+    }
+    if (version == null || !VersionText.isValid(version, 0, version.length())) {
+      return null;
+    }
+    String moduleName = attributes.getValue(AUTOMATIC_MODULE_NAME);
+    if (moduleName == null) {
+      return version;
+    }
+    String withModule = version + '+' + moduleName;
+    return VersionText.isValid(withModule, 0, withModule.length()) ? withModule : version;
   }
 
   /**
@@ -60,9 +201,11 @@ class VersionExtractor {
    *
    * @return Null or the GAV
    */
-  private static @Nullable GroupArtifactVersion readPomMeta(JarFile jarFile) throws IOException {
+  private static @Nullable GroupArtifactVersion readPomMeta(JarFile jarFile, Scan scan)
+      throws IOException {
     for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements(); ) {
       JarEntry jarEntry = entries.nextElement();
+      ++scan.entriesVisited;
       String name = jarEntry.getName();
       if (name.startsWith("META-INF/") && name.endsWith("/pom.properties")) {
         return readJarEntry(jarFile, jarEntry, GroupArtifactVersion::new);
@@ -73,7 +216,12 @@ class VersionExtractor {
 
   private static <T> T readJarEntry(
       JarFile jarFile, JarEntry jarEntry, Function<Properties, T> extractor) throws IOException {
-    try (InputStream is = jarFile.getInputStream(jarEntry)) {
+    return readProperties(jarFile.getInputStream(jarEntry), extractor);
+  }
+
+  private static <T> T readProperties(InputStream stream, Function<Properties, T> extractor)
+      throws IOException {
+    try (InputStream is = stream) {
       Properties properties = new Properties();
       properties.load(is);
       return extractor.apply(properties);
@@ -96,4 +244,10 @@ class VersionExtractor {
       return version + '+' + groupId + '-' + artifactId;
     }
   }
+
+  /** The work done reading one jar */
+  private static class Scan {
+    long bytesRead;
+    int entriesVisited;
+  }
 }
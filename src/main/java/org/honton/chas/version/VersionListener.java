@@ -0,0 +1,59 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import javax.annotation.Nullable;
+
+/**
+ * Receives measurements of jar scanning, parsing and matching. Register a listener with {@link
+ * VersionListeners#add(VersionListener)}, or as a service provider in
+ * <i>META-INF/services/org.honton.chas.version.VersionListener</i>. Measurements are only taken
+ * while a listener is registered or a Flight Recorder recording is running.
+ *
+ * <p>Listeners are called on the thread doing the work, so should return quickly and must be thread
+ * safe.
+ */
+public interface VersionListener {
+
+  /**
+   * A jar was read to extract its version.
+   *
+   * @param jar The location of the jar
+   * @param nanos The time taken to read the jar
+   * @param bytesRead The number of bytes read from the jar file
+   * @param entriesVisited The number of jar entries examined
+   * @param version The extracted version; or null, if none could be extracted
+   */
+  default void jarScanned(
+      String jar, long nanos, long bytesRead, int entriesVisited, @Nullable String version) {}
+
+  /**
+   * A cache was consulted.
+   *
+   * @param cache The simple class name of the cache
+   * @param hit Whether the cache held the value
+   */
+  default void cacheLookup(String cache, boolean hit) {}
+
+  /**
+   * Text which is not a semantic version was parsed.
+   *
+   * @param text The text
+   */
+  default void parseFailed(String text) {}
+
+  /**
+   * A VersionMatcher matched an actual version.
+   *
+   * @param nanos The time taken to match
+   * @param index The index of the matching supported version; or VersionMatcher.NO_MATCH
+   */
+  default void matched(long nanos, int index) {}
+}
@@ -0,0 +1,159 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.util.Arrays;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import javax.annotation.Nullable;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The registered VersionListeners. Service providers of VersionListener are registered when this
+ * class is loaded. When no listener is registered and no Flight Recorder recording is running,
+ * instrumented code pays a single volatile read.
+ *
+ * <p>Flight Recorder events are committed during recordings when Flight Recorder was already
+ * initialized as this class was loaded, such as with <i>-XX:StartFlightRecording</i>; otherwise,
+ * only after {@link #watchFlightRecorder()} is called.
+ */
+public final class VersionListeners {
+
+  private static final VersionListener[] NONE = {};
+
+  /** The listeners; replaced, never modified */
+  private static volatile VersionListener[] listeners = NONE;
+
+  static {
+    ClassLoader classLoader = VersionListeners.class.getClassLoader();
+    try {
+      // ServiceLoader is slow to initialize, so only use it when a provider is declared
+      if (classLoader != null
+          && classLoader.getResource("META-INF/services/" + VersionListener.class.getName())
+              != null) {
+        for (VersionListener listener : ServiceLoader.load(VersionListener.class, classLoader)) {
+          add(listener);
+        }
+      }
+    } catch (ServiceConfigurationError e) {
+      log().warn("Unable to load VersionListener service", e);
+    }
+    JfrEvents.register(false);
+  }
+
+  private VersionListeners() {}
+
+  // created upon failure, so that parsing a version does not initialize logging
+  private static Logger log() {
+    return LoggerFactory.getLogger(VersionListeners.class);
+  }
+
+  /**
+   * Commit Flight Recorder events during any recording, including recordings started later with
+   * jcmd or the JMX api. Listening for recordings costs tens of milliseconds when Flight Recorder
+   * is not yet initialized, so is not done by default. Does nothing on a JDK without Flight
+   * Recorder.
+   */
+  public static void watchFlightRecorder() {
+    JfrEvents.register(true);
+  }
+
+  /**
+   * Register a listener.
+   *
+   * @param listener The listener to add
+   */
+  public static synchronized void add(@NonNull VersionListener listener) {
+    VersionListener[] added = Arrays.copyOf(listeners, listeners.length + 1);
+    added[listeners.length] = listener;
+    listeners = added;
+  }
+
+  /**
+   * Unregister a listener.
+   *
+   * @param listener The listener to remove
+   * @return true, if the listener was registered
+   */
+  public static synchronized boolean remove(VersionListener listener) {
+    for (int i = 0; i < listeners.length; ++i) {
+      if (listeners[i] == listener) {
+        VersionListener[] removed = new VersionListener[listeners.length - 1];
+        System.arraycopy(listeners, 0, removed, 0, i);
+        System.arraycopy(listeners, i + 1, removed, i, removed.length - i);
+        listeners = removed;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Should jar scanning, parsing and caching be measured? */
+  static boolean isEnabled() {
+    return listeners.length != 0 || JfrEvents.isRecording();
+  }
+
+  /** Should matching be measured? */
+  static boolean isMatchEnabled() {
+    return listeners.length != 0 || (JfrEvents.isRecording() && JfrEvents.MATCH.isEnabled());
+  }
+
+  static void jarScanned(
+      String jar, long nanos, long bytesRead, int entriesVisited, @Nullable String version) {
+    for (VersionListener listener : listeners) {
+      try {
+        listener.jarScanned(jar, nanos, bytesRead, entriesVisited, version);
+      } catch (RuntimeException e) {
+        log().warn("VersionListener failed", e);
+      }
+    }
+    if (JfrEvents.isRecording()) {
+      JfrEvents.JAR_SCAN.commit(jar, nanos, bytesRead, entriesVisited, version);
+    }
+  }
+
+  static void cacheLookup(String cache, boolean hit) {
+    for (VersionListener listener : listeners) {
+      try {
+        listener.cacheLookup(cache, hit);
+      } catch (RuntimeException e) {
+        log().warn("VersionListener failed", e);
+      }
+    }
+  }
+
+  static void parseFailed(String text) {
+    for (VersionListener listener : listeners) {
+      try {
+        listener.parseFailed(text);
+      } catch (RuntimeException e) {
+        log().warn("VersionListener failed", e);
+      }
+    }
+    if (JfrEvents.isRecording()) {
+      JfrEvents.PARSE_FAILURE.commit(text);
+    }
+  }
+
+  static void matched(long nanos, int index) {
+    for (VersionListener listener : listeners) {
+      try {
+        listener.matched(nanos, index);
+      } catch (RuntimeException e) {
+        log().warn("VersionListener failed", e);
+      }
+    }
+    if (JfrEvents.isRecording()) {
+      JfrEvents.MATCH.commit(nanos, index);
+    }
+  }
+}
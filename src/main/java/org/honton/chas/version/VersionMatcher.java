@@ -10,13 +10,40 @@
 package org.honton.chas.version;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 
 /** Match semantic versions. */
 public class VersionMatcher {
 
+  /** Index returned when no expected version is supported by an actual version */
+  public static final int NO_MATCH = -1;
+  /** Index returned when an actual version string is not a semantic version */
+  public static final int IMPROPER_VERSION = -2;
+
+  private static final int DEFAULT_PARALLEL_THRESHOLD = 8192;
+
   private final List<SemVer> expectedVersions;
+  private final SemVerCache cache;
+  /** The distinct majors of the expected versions, ascending */
+  private final int[] majors;
+  /** The expected versions with the same major, parallel to majors */
+  private final Bucket[] buckets;
+
+  /** The memoized decisions for actual version strings; or null, when not memoizing */
+  private volatile Decisions decisions;
+
+  /** The minimum batch size matched in parallel on the common ForkJoinPool */
+  @Getter @Setter private volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
 
   /**
    * Create a matcher with expectations. At least one of the supportVersion or
@@ -26,11 +53,31 @@ public class VersionMatcher {
    * @param additionalSupportedVersions The additional versions that are supported.
    */
   public VersionMatcher(@NonNull String supportedVersion, String... additionalSupportedVersions) {
+    this(null, supportedVersion, additionalSupportedVersions);
+  }
+
+  /**
+   * Create a matcher with expectations which parses actual version strings through a cache. At
+   * least one of the supportVersion or additionalSupportedVersions must be matched
+   *
+   * @param cache The cache used to parse versions, or null to parse each time.
+   * @param supportedVersion The version that is supported.
+   * @param additionalSupportedVersions The additional versions that are supported.
+   */
+  public VersionMatcher(
+      SemVerCache cache, @NonNull String supportedVersion, String... additionalSupportedVersions) {
+    this.cache = cache;
     expectedVersions = new ArrayList<>(1 + additionalSupportedVersions.length);
     expectedVersions.add(SemVer.valueOf(supportedVersion));
     for (String additionalSupportedVersion : additionalSupportedVersions) {
       expectedVersions.add(SemVer.valueOf(additionalSupportedVersion));
     }
+
+    majors = expectedVersions.stream().mapToInt(SemVer::getMajor).distinct().sorted().toArray();
+    buckets = new Bucket[majors.length];
+    for (int b = 0; b < majors.length; ++b) {
+      buckets[b] = new Bucket(expectedVersions, majors[b]);
+    }
   }
 
   /**
@@ -40,7 +87,134 @@ public class VersionMatcher {
    * @return The matching supported version, or null.
    */
   public SemVer findMatchingVersion(SemVer actual) {
-    return actual.findSupported(expectedVersions);
+    int index = findMatchingIndex(actual);
+    return index >= 0 ? expectedVersions.get(index) : null;
+  }
+
+  /**
+   * Find the index of the first matching supported version.
+   *
+   * @param actual The version to match.
+   * @return The index of the matching supported version; or NO_MATCH.
+   */
+  public int findMatchingIndex(@NonNull SemVer actual) {
+    if (!VersionListeners.isMatchEnabled()) {
+      return match(actual);
+    }
+    long start = System.nanoTime();
+    int index = match(actual);
+    VersionListeners.matched(System.nanoTime() - start, index);
+    return index;
+  }
+
+  private int match(SemVer actual) {
+    int b = Arrays.binarySearch(majors, actual.getMajor());
+    return b >= 0 ? buckets[b].findMatchingIndex(actual) : NO_MATCH;
+  }
+
+  /**
+   * Get a supported version by index. Index 0 is the supportedVersion, followed by the
+   * additionalSupportedVersions.
+   *
+   * @param index The index returned from one of the findMatchingIndex methods.
+   * @return The supported version.
+   */
+  public SemVer getExpectedVersion(int index) {
+    return expectedVersions.get(index);
+  }
+
+  /**
+   * Find the matching supported version for each of a batch of versions. Batches of at least
+   * parallelThreshold versions are matched in parallel.
+   *
+   * @param actuals The versions to match.
+   * @return For each actual version, the index of the matching supported version; or NO_MATCH.
+   */
+  public int[] findMatchingIndices(@NonNull SemVer[] actuals) {
+    int[] indices = new int[actuals.length];
+    range(actuals.length).forEach(i -> indices[i] = findMatchingIndex(actuals[i]));
+    return indices;
+  }
+
+  /**
+   * Find the matching supported version for each of a batch of versions. Batches of at least
+   * parallelThreshold versions are matched in parallel.
+   *
+   * @param actuals The versions to match.
+   * @return For each actual version in iteration order, the index of the matching supported
+   *     version; or NO_MATCH.
+   */
+  public int[] findMatchingIndices(@NonNull Collection<SemVer> actuals) {
+    return findMatchingIndices(actuals.toArray(new SemVer[0]));
+  }
+
+  /**
+   * Find the matching supported version for each of a batch of version strings. Batches of at least
+   * parallelThreshold versions are matched in parallel.
+   *
+   * @param actuals The versions to match.
+   * @return For each actual version, the index of the matching supported version; NO_MATCH; or
+   *     IMPROPER_VERSION, if the string is not a semantic version.
+   */
+  public int[] findMatchingIndices(@NonNull String[] actuals) {
+    int[] indices = new int[actuals.length];
+    range(actuals.length).forEach(i -> indices[i] = findMatchingIndex(actuals[i]));
+    return indices;
+  }
+
+  /**
+   * Find the matching supported version for each of a stream of versions. The stream is matched in
+   * parallel if the supplied stream is parallel.
+   *
+   * @param actuals The versions to match.
+   * @return For each actual version, the index of the matching supported version; or NO_MATCH.
+   */
+  public IntStream findMatchingIndices(@NonNull Stream<SemVer> actuals) {
+    return actuals.mapToInt(this::findMatchingIndex);
+  }
+
+  /**
+   * Memoize the decision for each distinct actual version string, so that repeated matches of the
+   * same string are a single hash lookup. Error messages are built when first requested and then
+   * retained with the decision. Strings which are not semantic versions are memoized as improper.
+   * When more than maximumSize decisions are held, arbitrary decisions are discarded to make room.
+   *
+   * @param maximumSize The maximum number of decisions held
+   * @return this matcher
+   * @throws IllegalArgumentException when maximumSize is not positive
+   */
+  public VersionMatcher memoizeDecisions(int maximumSize) {
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("maximumSize must be positive");
+    }
+    decisions = new Decisions(maximumSize);
+    return this;
+  }
+
+  /** The number of lookups which found a memoized decision; or 0, when not memoizing */
+  public long getDecisionHits() {
+    Decisions current = decisions;
+    return current != null ? current.hits.sum() : 0;
+  }
+
+  /** The number of decisions currently memoized */
+  public int getDecisionCount() {
+    Decisions current = decisions;
+    return current != null ? current.decisions.size() : 0;
+  }
+
+  private int findMatchingIndex(String actual) {
+    Decisions current = decisions;
+    if (current != null && actual != null) {
+      return current.get(actual).index;
+    }
+    SemVer semVer = cache != null ? cache.tryParse(actual) : SemVer.tryParse(actual);
+    return semVer != null ? findMatchingIndex(semVer) : IMPROPER_VERSION;
+  }
+
+  private IntStream range(int size) {
+    IntStream range = IntStream.range(0, size);
+    return size >= parallelThreshold ? range.parallel() : range;
   }
 
   /**
@@ -53,7 +227,15 @@ public class VersionMatcher {
    *     message.
    */
   public String getErrorMessage(String actual) {
-    return getErrorMessage(SemVer.valueOf(actual));
+    Decisions current = decisions;
+    if (current != null && actual != null) {
+      Decision decision = current.get(actual);
+      if (decision.actual == null) {
+        throw new IllegalArgumentException(actual + " is not a proper semantic version");
+      }
+      return decision.getErrorMessage();
+    }
+    return getErrorMessage(cache != null ? cache.valueOf(actual) : SemVer.valueOf(actual));
   }
 
   /**
@@ -64,9 +246,10 @@ public class VersionMatcher {
    *     message.
    */
   public String getErrorMessage(SemVer actual) {
-    if (findMatchingVersion(actual) != null) {
-      return null;
-    }
+    return findMatchingVersion(actual) != null ? null : buildErrorMessage(actual);
+  }
+
+  private String buildErrorMessage(SemVer actual) {
     StringBuilder sb = new StringBuilder();
     for (SemVer expected : expectedVersions) {
       if (sb.length() == 0) {
@@ -81,4 +264,115 @@ public class VersionMatcher {
     }
     return sb.toString();
   }
+
+  /** The outcome of matching an actual version string */
+  private class Decision {
+    // the parsed actual version; or null, when actual is not a semantic version
+    private final SemVer actual;
+    private final int index;
+    // built on first request; racing threads build equal messages
+    private volatile String errorMessage;
+
+    Decision(SemVer actual) {
+      this.actual = actual;
+      index = actual != null ? findMatchingIndex(actual) : IMPROPER_VERSION;
+    }
+
+    String getErrorMessage() {
+      if (index >= 0) {
+        return null;
+      }
+      String message = errorMessage;
+      if (message == null) {
+        errorMessage = message = buildErrorMessage(actual);
+      }
+      return message;
+    }
+  }
+
+  /** A bounded concurrent map of actual version string to decision */
+  private class Decisions {
+    private final int maximumSize;
+    private final ConcurrentHashMap<String, Decision> decisions;
+    private final LongAdder hits = new LongAdder();
+
+    Decisions(int maximumSize) {
+      this.maximumSize = maximumSize;
+      decisions = new ConcurrentHashMap<>(Math.min(maximumSize, 1024));
+    }
+
+    /** @return the decision, which is improper when actual is not a semantic version */
+    Decision get(String actual) {
+      Decision decision = decisions.get(actual);
+      if (VersionListeners.isEnabled()) {
+        VersionListeners.cacheLookup(VersionMatcher.class.getSimpleName(), decision != null);
+      }
+      if (decision != null) {
+        hits.increment();
+        return decision;
+      }
+      SemVer semVer = cache != null ? cache.tryParse(actual) : SemVer.tryParse(actual);
+      Decision prior = decisions.putIfAbsent(actual, decision = new Decision(semVer));
+      if (prior != null) {
+        return prior;
+      }
+      // evict after inserting, so that racing inserts cannot leave more than maximumSize
+      Iterator<String> keys = decisions.keySet().iterator();
+      while (decisions.size() > maximumSize && keys.hasNext()) {
+        String key = keys.next();
+        if (!key.equals(actual)) {
+          decisions.remove(key);
+        }
+      }
+      return decision;
+    }
+  }
+
+  /**
+   * Expected versions with the same major. Within a major, actual supports expected exactly when
+   * expected does not have a later precedence than actual; so the supported expected versions are a
+   * prefix of the expected versions sorted by precedence.
+   */
+  private static class Bucket {
+    /** The expected versions in ascending precedence */
+    private final SemVer[] sorted;
+    /** The lowest index in expectedVersions of sorted[0] through sorted[i] */
+    private final int[] firstIndex;
+
+    Bucket(List<SemVer> expectedVersions, int major) {
+      Integer[] indices = new Integer[expectedVersions.size()];
+      int count = 0;
+      for (int i = 0; i < indices.length; ++i) {
+        if (expectedVersions.get(i).getMajor() == major) {
+          indices[count++] = i;
+        }
+      }
+      Arrays.sort(
+          indices, 0, count, (l, r) -> expectedVersions.get(l).compareTo(expectedVersions.get(r)));
+
+      sorted = new SemVer[count];
+      firstIndex = new int[count];
+      int first = Integer.MAX_VALUE;
+      for (int i = 0; i < count; ++i) {
+        sorted[i] = expectedVersions.get(indices[i]);
+        first = Math.min(first, indices[i]);
+        firstIndex[i] = first;
+      }
+    }
+
+    int findMatchingIndex(SemVer actual) {
+      // find the number of expected versions which do not have a later precedence than actual
+      int low = 0;
+      int high = sorted.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (sorted[mid].compareTo(actual) <= 0) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low > 0 ? firstIndex[low - 1] : -1;
+    }
+  }
 }
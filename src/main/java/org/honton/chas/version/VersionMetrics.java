@@ -0,0 +1,137 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+
+/**
+ * A VersionListener which accumulates counters and a match latency histogram. The histogram has a
+ * bucket for each power of two nanoseconds, so recording a latency is a single atomic increment.
+ */
+public class VersionMetrics implements VersionListener {
+
+  private static final int BUCKETS = Long.SIZE + 1;
+
+  private final LongAdder jarsScanned = new LongAdder();
+  private final LongAdder scanNanos = new LongAdder();
+  private final LongAdder bytesRead = new LongAdder();
+  private final LongAdder entriesVisited = new LongAdder();
+  private final LongAdder cacheHits = new LongAdder();
+  private final LongAdder cacheMisses = new LongAdder();
+  private final LongAdder parseFailures = new LongAdder();
+  /** bucket b counts latencies of at least 2^(b-1) and less than 2^b nanoseconds */
+  private final AtomicLongArray matchLatencies = new AtomicLongArray(BUCKETS);
+
+  @Override
+  public void jarScanned(
+      String jar, long nanos, long bytesRead, int entriesVisited, @Nullable String version) {
+    jarsScanned.increment();
+    scanNanos.add(nanos);
+    this.bytesRead.add(bytesRead);
+    this.entriesVisited.add(entriesVisited);
+  }
+
+  @Override
+  public void cacheLookup(String cache, boolean hit) {
+    (hit ? cacheHits : cacheMisses).increment();
+  }
+
+  @Override
+  public void parseFailed(String text) {
+    parseFailures.increment();
+  }
+
+  @Override
+  public void matched(long nanos, int index) {
+    matchLatencies.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(Math.max(nanos, 0)));
+  }
+
+  /** The number of jars read */
+  public long getJarsScanned() {
+    return jarsScanned.sum();
+  }
+
+  /** The total time spent reading jars, in nanoseconds */
+  public long getScanNanos() {
+    return scanNanos.sum();
+  }
+
+  /** The total bytes read from jars */
+  public long getBytesRead() {
+    return bytesRead.sum();
+  }
+
+  /** The total jar entries examined */
+  public long getEntriesVisited() {
+    return entriesVisited.sum();
+  }
+
+  /** The number of cache lookups which found a value */
+  public long getCacheHits() {
+    return cacheHits.sum();
+  }
+
+  /** The number of cache lookups which did not find a value */
+  public long getCacheMisses() {
+    return cacheMisses.sum();
+  }
+
+  /** The number of texts which were not semantic versions */
+  public long getParseFailures() {
+    return parseFailures.sum();
+  }
+
+  /** The number of matches measured */
+  public long getMatches() {
+    long matches = 0;
+    for (int b = 0; b < BUCKETS; ++b) {
+      matches += matchLatencies.get(b);
+    }
+    return matches;
+  }
+
+  /**
+   * The match latency histogram. Element b is the number of matches which took at least 2^(b-1) and
+   * less than 2^b nanoseconds; element 0 is the number which took no measurable time.
+   */
+  public long[] getMatchLatencyHistogram() {
+    long[] histogram = new long[BUCKETS];
+    for (int b = 0; b < BUCKETS; ++b) {
+      histogram[b] = matchLatencies.get(b);
+    }
+    return histogram;
+  }
+
+  /**
+   * An upper bound of a match latency percentile, accurate to a power of two.
+   *
+   * @param percentile The percentile, from 0 to 100
+   * @return The exclusive upper bound in nanoseconds of the bucket holding the percentile; or 0, if
+   *     no matches were measured
+   */
+  public long getMatchLatencyPercentile(double percentile) {
+    long[] histogram = getMatchLatencyHistogram();
+    long total = 0;
+    for (long count : histogram) {
+      total += count;
+    }
+    long rank = (long) Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100);
+    long seen = 0;
+    for (int b = 0; b < BUCKETS; ++b) {
+      seen += histogram[b];
+      if (seen >= rank && seen > 0) {
+        return b < Long.SIZE - 1 ? 1L << b : Long.MAX_VALUE;
+      }
+    }
+    return 0;
+  }
+}
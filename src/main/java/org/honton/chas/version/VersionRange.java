@@ -0,0 +1,544 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import javax.annotation.Nullable;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * A version constraint, compiled once into sorted disjoint intervals of SemVer precedence so that
+ * checking a version is a binary search without allocation.
+ *
+ * <p>Two syntaxes are accepted:
+ *
+ * <ul>
+ *   <li>Maven ranges, such as <i>[1.2,2.0)</i>, <i>(,1.0]</i>, <i>[1.5]</i> or
+ *       <i>(,1.0],[1.2,)</i>. The bounds are compared by SemVer precedence, so <i>2.0</i> and
+ *       <i>2.0.0</i> differ. Bounds which admit no version, such as <i>[2.0,1.0]</i> or
+ *       <i>[1.0,1.0)</i>, are rejected.
+ *   <li>npm ranges, such as <i>^1.2.3</i>, <i>~1.4</i>, <i>&gt;=2 &lt;3 || 4.x</i> or <i>1.2 -
+ *       2.3.4</i>. A partial version, with fewer than three ordinals or with an <i>x</i>, <i>X</i>
+ *       or <i>*</i> ordinal, stands for every version with that prefix, including pre-releases.
+ *       Unlike npm, pre-releases are not otherwise excluded.
+ * </ul>
+ */
+@EqualsAndHashCode(of = "expression")
+public final class VersionRange {
+
+  private static final Comparator<Interval> BY_LOWER =
+      (a, b) -> {
+        if (a.lower == null || b.lower == null) {
+          return a.lower == null ? (b.lower == null ? 0 : -1) : 1;
+        }
+        int cmp = a.lower.compareTo(b.lower);
+        // an inclusive bound admits more, so is earlier
+        return cmp != 0 ? cmp : Boolean.compare(b.lowerInclusive, a.lowerInclusive);
+      };
+
+  /** The normalized expression, in Maven syntax */
+  @Getter private final String expression;
+
+  // the intervals, parallel and ordered by lower bound; a null bound is unbounded
+  private final SemVer[] lowers;
+  private final boolean[] lowerInclusive;
+  private final SemVer[] uppers;
+  private final boolean[] upperInclusive;
+
+  private VersionRange(List<Interval> intervals) {
+    int size = intervals.size();
+    lowers = new SemVer[size];
+    lowerInclusive = new boolean[size];
+    uppers = new SemVer[size];
+    upperInclusive = new boolean[size];
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < size; ++i) {
+      Interval interval = intervals.get(i);
+      lowers[i] = interval.lower;
+      lowerInclusive[i] = interval.lowerInclusive;
+      uppers[i] = interval.upper;
+      upperInclusive[i] = interval.upperInclusive;
+      if (i > 0) {
+        sb.append(',');
+      }
+      interval.append(sb);
+    }
+    expression = sb.toString();
+  }
+
+  /**
+   * Compile a Maven or npm range.
+   *
+   * @param range The range expression
+   * @return The compiled range
+   * @throws IllegalArgumentException when range is not a proper version range
+   */
+  public static VersionRange valueOf(@NonNull String range) {
+    String trimmed = range.trim();
+    try {
+      List<Interval> intervals =
+          trimmed.startsWith("[") || trimmed.startsWith("(")
+              ? parseMaven(trimmed)
+              : parseNpm(trimmed);
+      return new VersionRange(normalize(intervals));
+    } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException(range + " is not a proper version range", e);
+    }
+  }
+
+  /**
+   * Is the version within the range?
+   *
+   * @param version The version to check
+   * @return true, if one of the intervals contains the version
+   */
+  public boolean contains(@NonNull SemVer version) {
+    // find the last interval whose lower bound admits the version
+    int low = 0;
+    int high = lowers.length - 1;
+    int found = -1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (admitsAbove(lowers[mid], lowerInclusive[mid], version)) {
+        found = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return found >= 0 && admitsBelow(uppers[found], upperInclusive[found], version);
+  }
+
+  /** Does the range exclude every version? */
+  public boolean isEmpty() {
+    return lowers.length == 0;
+  }
+
+  @Override
+  public String toString() {
+    return expression;
+  }
+
+  /** The number of intervals */
+  int intervalCount() {
+    return lowers.length;
+  }
+
+  /** The lower bound of an interval; or null, if unbounded */
+  SemVer getLower(int interval) {
+    return lowers[interval];
+  }
+
+  boolean isLowerInclusive(int interval) {
+    return lowerInclusive[interval];
+  }
+
+  /** The upper bound of an interval; or null, if unbounded */
+  SemVer getUpper(int interval) {
+    return uppers[interval];
+  }
+
+  boolean isUpperInclusive(int interval) {
+    return upperInclusive[interval];
+  }
+
+  private static boolean admitsAbove(SemVer lower, boolean inclusive, SemVer version) {
+    if (lower == null) {
+      return true;
+    }
+    int cmp = version.compareTo(lower);
+    return cmp > 0 || cmp == 0 && inclusive;
+  }
+
+  private static boolean admitsBelow(SemVer upper, boolean inclusive, SemVer version) {
+    if (upper == null) {
+      return true;
+    }
+    int cmp = version.compareTo(upper);
+    return cmp < 0 || cmp == 0 && inclusive;
+  }
+
+  // sort and merge overlapping or adjacent intervals
+  private static List<Interval> normalize(List<Interval> intervals) {
+    List<Interval> sorted = new ArrayList<>(intervals.size());
+    for (Interval interval : intervals) {
+      if (!interval.isEmpty()) {
+        sorted.add(interval);
+      }
+    }
+    sorted.sort(BY_LOWER);
+    List<Interval> merged = new ArrayList<>(sorted.size());
+    Interval current = null;
+    for (Interval next : sorted) {
+      if (current != null && current.touches(next)) {
+        current = current.span(next);
+      } else {
+        if (current != null) {
+          merged.add(current);
+        }
+        current = next;
+      }
+    }
+    if (current != null) {
+      merged.add(current);
+    }
+    return merged;
+  }
+
+  private static List<Interval> parseMaven(String range) {
+    List<Interval> intervals = new ArrayList<>();
+    int start = 0;
+    while (start < range.length()) {
+      char open = range.charAt(start);
+      if (open != '[' && open != '(') {
+        throw new IllegalArgumentException("expected [ or (");
+      }
+      int end = indexOfAny(range, start + 1, "])");
+      if (end < 0) {
+        throw new IllegalArgumentException("expected ] or )");
+      }
+      String bounds = range.substring(start + 1, end);
+      boolean lowerInclusive = open == '[';
+      boolean upperInclusive = range.charAt(end) == ']';
+      int comma = bounds.indexOf(',');
+      if (comma < 0) {
+        if (!lowerInclusive || !upperInclusive) {
+          throw new IllegalArgumentException("a single version requires [ and ]");
+        }
+        SemVer exact = SemVer.valueOf(bounds.trim());
+        intervals.add(new Interval(exact, true, exact, true));
+      } else {
+        Interval interval =
+            new Interval(
+                mavenBound(bounds.substring(0, comma)),
+                lowerInclusive,
+                mavenBound(bounds.substring(comma + 1)),
+                upperInclusive);
+        // as with Maven, a range whose bounds exclude every version is a mistake
+        if (interval.isEmpty()) {
+          throw new IllegalArgumentException("range defies version ordering");
+        }
+        intervals.add(interval);
+      }
+      start = end + 1;
+      while (start < range.length()
+          && (range.charAt(start) == ',' || Character.isWhitespace(range.charAt(start)))) {
+        ++start;
+      }
+    }
+    return intervals;
+  }
+
+  private static int indexOfAny(String range, int from, String chars) {
+    for (int i = from; i < range.length(); ++i) {
+      if (chars.indexOf(range.charAt(i)) >= 0) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Nullable
+  private static SemVer mavenBound(String bound) {
+    String trimmed = bound.trim();
+    return trimmed.isEmpty() ? null : SemVer.valueOf(trimmed);
+  }
+
+  private static List<Interval> parseNpm(String range) {
+    List<Interval> intervals = new ArrayList<>();
+    for (String set : range.split("\\|\\|", -1)) {
+      intervals.add(parseComparatorSet(set.trim()));
+    }
+    return intervals;
+  }
+
+  // the intersection of space separated comparators
+  private static Interval parseComparatorSet(String set) {
+    int hyphen = set.indexOf(" - ");
+    if (hyphen >= 0) {
+      Partial from = Partial.of(set.substring(0, hyphen).trim());
+      Partial to = Partial.of(set.substring(hyphen + 3).trim());
+      return from.atLeast().intersect(to.atMost());
+    }
+    Interval interval = Interval.ALL;
+    String[] tokens = set.isEmpty() ? new String[0] : set.split("\\s+");
+    for (int i = 0; i < tokens.length; ++i) {
+      String token = tokens[i];
+      // allow whitespace between an operator and its version
+      if (i + 1 < tokens.length && isOperator(token)) {
+        token += tokens[++i];
+      }
+      interval = interval.intersect(parseComparator(token));
+    }
+    return interval;
+  }
+
+  private static boolean isOperator(String token) {
+    for (int i = 0; i < token.length(); ++i) {
+      if ("<>=~^".indexOf(token.charAt(i)) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Interval parseComparator(String comparator) {
+    if (comparator.startsWith(">=")) {
+      return Partial.of(comparator.substring(2)).atLeast();
+    }
+    if (comparator.startsWith("<=")) {
+      return Partial.of(comparator.substring(2)).atMost();
+    }
+    if (comparator.startsWith(">")) {
+      return Partial.of(comparator.substring(1)).above();
+    }
+    if (comparator.startsWith("<")) {
+      return Partial.of(comparator.substring(1)).below();
+    }
+    if (comparator.startsWith("^")) {
+      return Partial.of(comparator.substring(1)).caret();
+    }
+    if (comparator.startsWith("~")) {
+      String tilde = comparator.substring(comparator.startsWith("~>") ? 2 : 1);
+      return Partial.of(tilde).tilde();
+    }
+    if (comparator.startsWith("=")) {
+      return Partial.of(comparator.substring(1)).exactly();
+    }
+    return Partial.of(comparator).exactly();
+  }
+
+  /**
+   * An npm version, which may be partial. A partial version stands for every version with its
+   * ordinals as prefix, from <i>prefix</i>-0 up to, but excluding, <i>next prefix</i>-0.
+   */
+  private static final class Partial {
+    private final int[] ordinals;
+    /** The full version; or null, if partial */
+    private final SemVer full;
+
+    private Partial(int[] ordinals, SemVer full) {
+      this.ordinals = ordinals;
+      this.full = full;
+    }
+
+    static Partial of(String version) {
+      String trimmed = version.trim();
+      if (trimmed.startsWith("v")) {
+        trimmed = trimmed.substring(1);
+      }
+      int suffix = indexOfAny(trimmed, 0, "-+");
+      String core = suffix < 0 ? trimmed : trimmed.substring(0, suffix);
+      String[] parts = core.split("\\.", -1);
+      int count = 0;
+      while (count < parts.length && !isWildcard(parts[count])) {
+        ++count;
+      }
+      for (int i = count; i < parts.length; ++i) {
+        if (!isWildcard(parts[i])) {
+          throw new IllegalArgumentException("ordinal follows wildcard");
+        }
+      }
+      if (count >= 3) {
+        SemVer full = SemVer.valueOf(trimmed);
+        return new Partial(full.getOrdinals(), full);
+      }
+      if (suffix >= 0) {
+        throw new IllegalArgumentException("partial version with pre-release or metadata");
+      }
+      int[] ordinals = new int[count];
+      for (int i = 0; i < count; ++i) {
+        // a single ordinal is a semantic version, so leading zeros and overflow are rejected
+        ordinals[i] = SemVer.valueOf(parts[i]).getOrdinals()[0];
+      }
+      return new Partial(ordinals, null);
+    }
+
+    private static boolean isWildcard(String part) {
+      return part.equals("x") || part.equals("X") || part.equals("*") || part.isEmpty();
+    }
+
+    /** The lowest version with the prefix; or null, for the empty prefix */
+    SemVer first() {
+      return full != null ? full : lowest(ordinals, ordinals.length);
+    }
+
+    /** The lowest version after the versions with the prefix; or null, for the empty prefix */
+    SemVer next() {
+      return ordinals.length == 0 ? null : lowest(ordinals, ordinals.length, 1);
+    }
+
+    Interval atLeast() {
+      return new Interval(first(), true, null, false);
+    }
+
+    Interval above() {
+      return full != null ? new Interval(full, false, null, false) : nextOrNone(true);
+    }
+
+    Interval below() {
+      return full != null ? new Interval(null, false, full, false) : firstOrNone();
+    }
+
+    Interval atMost() {
+      return full != null
+          ? new Interval(null, false, full, true)
+          : new Interval(null, false, next(), false);
+    }
+
+    Interval exactly() {
+      return full != null ? new Interval(full, true, full, true) : prefix(ordinals.length);
+    }
+
+    // a change of the last specified ordinal is not permitted; ~1 permits minor changes
+    Interval tilde() {
+      return prefix(Math.min(ordinals.length, 2));
+    }
+
+    // a change of the first non-zero ordinal is not permitted
+    Interval caret() {
+      int fixed = 0;
+      while (fixed < ordinals.length - 1 && ordinals[fixed] == 0) {
+        ++fixed;
+      }
+      return prefix(Math.min(fixed + 1, ordinals.length));
+    }
+
+    // from this version up to the versions with a different prefix of length
+    private Interval prefix(int length) {
+      if (length == 0) {
+        return Interval.ALL;
+      }
+      return new Interval(first(), true, lowest(ordinals, length, 1), false);
+    }
+
+    private Interval nextOrNone(boolean inclusive) {
+      SemVer next = next();
+      return next != null ? new Interval(next, inclusive, null, false) : Interval.NONE;
+    }
+
+    private Interval firstOrNone() {
+      SemVer first = first();
+      return first != null ? new Interval(null, false, first, false) : Interval.NONE;
+    }
+
+    private static SemVer lowest(int[] ordinals, int length) {
+      return length == 0 ? null : lowest(ordinals, length, 0);
+    }
+
+    // the lowest pre-release with the first length ordinals, the last incremented by increment
+    private static SemVer lowest(int[] ordinals, int length, int increment) {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < length; ++i) {
+        if (i > 0) {
+          sb.append('.');
+        }
+        sb.append(i == length - 1 ? ordinals[i] + increment : ordinals[i]);
+      }
+      return SemVer.valueOf(sb.append("-0").toString());
+    }
+  }
+
+  /** convenience immutable class to hold an interval while compiling */
+  private static final class Interval {
+    static final Interval ALL = new Interval(null, false, null, false);
+    static final Interval NONE = new Interval(null, false, null, false, true);
+
+    private final SemVer lower;
+    private final boolean lowerInclusive;
+    private final SemVer upper;
+    private final boolean upperInclusive;
+    private final boolean none;
+
+    Interval(SemVer lower, boolean lowerInclusive, SemVer upper, boolean upperInclusive) {
+      this(lower, lowerInclusive, upper, upperInclusive, false);
+    }
+
+    private Interval(
+        SemVer lower, boolean lowerInclusive, SemVer upper, boolean upperInclusive, boolean none) {
+      this.lower = lower;
+      this.lowerInclusive = lower != null && lowerInclusive;
+      this.upper = upper;
+      this.upperInclusive = upper != null && upperInclusive;
+      this.none = none;
+    }
+
+    boolean isEmpty() {
+      if (none) {
+        return true;
+      }
+      if (lower == null || upper == null) {
+        return false;
+      }
+      int cmp = lower.compareTo(upper);
+      return cmp > 0 || cmp == 0 && !(lowerInclusive && upperInclusive);
+    }
+
+    Interval intersect(Interval other) {
+      if (none || other.none) {
+        return NONE;
+      }
+      boolean otherLower =
+          lower == null || other.lower != null && BY_LOWER.compare(other, this) > 0;
+      boolean otherUpper =
+          upper == null
+              || other.upper != null
+                  && (other.upper.compareTo(upper) < 0
+                      || other.upper.compareTo(upper) == 0 && !other.upperInclusive);
+      Interval lowerFrom = otherLower ? other : this;
+      Interval upperFrom = otherUpper ? other : this;
+      return new Interval(
+          lowerFrom.lower, lowerFrom.lowerInclusive, upperFrom.upper, upperFrom.upperInclusive);
+    }
+
+    // does next, which is not earlier, overlap or abut this?
+    boolean touches(Interval next) {
+      if (upper == null || next.lower == null) {
+        return true;
+      }
+      int cmp = next.lower.compareTo(upper);
+      return cmp < 0 || cmp == 0 && (next.lowerInclusive || upperInclusive);
+    }
+
+    // the union of this and next, which touch
+    Interval span(Interval next) {
+      if (upper == null || next.upper == null) {
+        return new Interval(lower, lowerInclusive, null, false);
+      }
+      int cmp = next.upper.compareTo(upper);
+      Interval upperFrom = cmp > 0 || cmp == 0 && next.upperInclusive ? next : this;
+      return new Interval(lower, lowerInclusive, upperFrom.upper, upperFrom.upperInclusive);
+    }
+
+    void append(StringBuilder sb) {
+      if (lower != null
+          && upper != null
+          && lowerInclusive
+          && upperInclusive
+          && lower.compareTo(upper) == 0) {
+        sb.append('[').append(lower.getVersion()).append(']');
+        return;
+      }
+      sb.append(lowerInclusive ? '[' : '(');
+      if (lower != null) {
+        sb.append(lower.getVersion());
+      }
+      sb.append(',');
+      if (upper != null) {
+        sb.append(upper.getVersion());
+      }
+      sb.append(upperInclusive ? ']' : ')');
+    }
+  }
+}
@@ -0,0 +1,748 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Picks a version of each required artifact, such that every selected version is within the ranges
+ * required of its artifact by the roots and by the selected versions of other artifacts.
+ *
+ * <p>The search is depth first. The required artifact with the fewest remaining candidates is
+ * chosen next, and its newest candidate is tried first, so earlier choices get the newest version
+ * consistent with the rest. Selecting a version narrows the candidates of its dependencies, and a
+ * dependency left without candidates fails the version at once. When every candidate of an artifact
+ * fails, the search jumps back to the latest choice that contributed to the failures, rather than
+ * to the previous choice, and remembers the failing combination of choices as a nogood, so that the
+ * same sub-problem is not searched again. The candidates tried, the time taken and the nogoods
+ * remembered are bounded.
+ *
+ * <p>When there is no resolution, the conflict reported is an irreducible set of constraints: the
+ * constraints cannot all be satisfied, and removing any one of them removes the conflict.
+ */
+public final class VersionResolver {
+
+  private static final int ASSIGNED = 0;
+  private static final int EXHAUSTED = 1;
+  private static final int OUT_OF_BUDGET = 2;
+  // the number of steps between checks of the deadline
+  private static final int DEADLINE_INTERVAL = 1 << 8;
+
+  private final String[] names;
+  private final Map<String, Integer> artifacts;
+  /** The available versions of each artifact, newest first */
+  private final SemVer[][] versions;
+  /** The constraints required by each version of each artifact */
+  private final int[][][] dependencies;
+
+  private final Constraint[] constraints;
+  private final long maxSteps;
+  private final Duration timeout;
+  private final int maxNogoods;
+
+  private VersionResolver(Builder builder) {
+    artifacts = new HashMap<>();
+    Set<String> artifactNames = new LinkedHashSet<>(builder.available.keySet());
+    for (Dependency dependency : builder.dependencies) {
+      artifactNames.add(dependency.dependency);
+    }
+    names = artifactNames.toArray(new String[0]);
+    versions = new SemVer[names.length][];
+    dependencies = new int[names.length][][];
+    List<Map<SemVer, Integer>> versionIndices = new ArrayList<>();
+    for (int a = 0; a < names.length; ++a) {
+      artifacts.put(names[a], a);
+      VersionSet available = builder.available.get(names[a]);
+      versions[a] = new SemVer[available != null ? available.size() : 0];
+      Map<SemVer, Integer> indices = new HashMap<>();
+      for (int v = 0; v < versions[a].length; ++v) {
+        versions[a][v] = available.get(available.size() - 1 - v);
+        indices.put(versions[a][v], v);
+      }
+      versionIndices.add(indices);
+      dependencies[a] = new int[versions[a].length][];
+    }
+
+    // ranges are commonly shared, so the candidates within each range of an artifact are reused
+    List<Map<VersionRange, BitSet>> allowed = new ArrayList<>();
+    for (int a = 0; a < names.length; ++a) {
+      allowed.add(new HashMap<>());
+    }
+    constraints = new Constraint[builder.dependencies.size()];
+    int[][] counts = new int[names.length][];
+    for (int id = 0; id < constraints.length; ++id) {
+      Dependency dependency = builder.dependencies.get(id);
+      Integer owner = artifacts.get(dependency.artifact);
+      Integer ownerVersion =
+          owner != null ? versionIndices.get(owner).get(dependency.version) : null;
+      if (ownerVersion == null) {
+        throw new IllegalArgumentException(
+            dependency.artifact + " " + dependency.version + " is not an available version");
+      }
+      int target = artifacts.get(dependency.dependency);
+      BitSet candidates =
+          allowed.get(target).computeIfAbsent(dependency.range, r -> candidates(target, r));
+      constraints[id] = new Constraint(owner, ownerVersion, target, dependency.range, candidates);
+      if (counts[owner] == null) {
+        counts[owner] = new int[versions[owner].length];
+      }
+      ++counts[owner][ownerVersion];
+    }
+    for (int a = 0; a < names.length; ++a) {
+      for (int v = 0; v < versions[a].length; ++v) {
+        dependencies[a][v] = new int[counts[a] != null ? counts[a][v] : 0];
+      }
+    }
+    for (int id = constraints.length - 1; id >= 0; --id) {
+      Constraint constraint = constraints[id];
+      dependencies[constraint.owner][constraint.ownerVersion][
+              --counts[constraint.owner][constraint.ownerVersion]] =
+          id;
+    }
+
+    maxSteps = builder.maxSteps;
+    timeout = builder.timeout;
+    maxNogoods = builder.maxNogoods;
+  }
+
+  /** Create a builder, which collects the artifacts, their versions and their dependencies */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Pick the versions of the required artifacts and their dependencies.
+   *
+   * @param requirements The range required of each root artifact
+   * @return The resolution, the conflict, or that the budget was exceeded
+   */
+  public Resolution resolve(@NonNull Map<String, VersionRange> requirements) {
+    Budget budget = new Budget();
+    Constraint[] roots = new Constraint[requirements.size()];
+    int r = 0;
+    for (Map.Entry<String, VersionRange> requirement : requirements.entrySet()) {
+      Integer target = artifacts.get(requirement.getKey());
+      if (target == null) {
+        // an unknown artifact has no versions
+        return new Resolution(
+            Resolution.Outcome.CONFLICT,
+            Collections.emptyMap(),
+            Collections.singletonList(
+                "root requires " + requirement.getKey() + " " + requirement.getValue()),
+            0);
+      }
+      VersionRange range = requirement.getValue();
+      roots[r++] = new Constraint(-1, -1, target, range, candidates(target, range));
+    }
+
+    Search search = new Search(roots, null, budget);
+    switch (search.run()) {
+      case ASSIGNED:
+        Map<String, SemVer> selected = new TreeMap<>();
+        for (int a = 0; a < names.length; ++a) {
+          if (search.value[a] >= 0) {
+            selected.put(names[a], versions[a][search.value[a]]);
+          }
+        }
+        return new Resolution(
+            Resolution.Outcome.RESOLVED,
+            Collections.unmodifiableMap(selected),
+            Collections.emptyList(),
+            budget.steps);
+      case EXHAUSTED:
+        List<String> conflict = explain(roots, search.touched, budget);
+        return new Resolution(
+            Resolution.Outcome.CONFLICT, Collections.emptyMap(), conflict, budget.steps);
+      default:
+        return new Resolution(
+            Resolution.Outcome.BUDGET_EXCEEDED,
+            Collections.emptyMap(),
+            Collections.emptyList(),
+            budget.steps);
+    }
+  }
+
+  // the candidates of an artifact within a range
+  private BitSet candidates(int artifact, VersionRange range) {
+    BitSet candidates = new BitSet(versions[artifact].length);
+    for (int v = 0; v < versions[artifact].length; ++v) {
+      if (range.contains(versions[artifact][v])) {
+        candidates.set(v);
+      }
+    }
+    return candidates;
+  }
+
+  /*
+   * Reduce the constraints used by a failed search to an irreducible conflict. Constraints the
+   * search never applied cannot change its outcome, so the applied constraints conflict. When the
+   * budget runs out, the applied constraints are reported without reduction.
+   */
+  private List<String> explain(Constraint[] roots, BitSet touched, Budget budget) {
+    BitSet core = minimize(roots, budget, new BitSet(), false, touched);
+    if (!isConflict(roots, budget, core)) {
+      core = touched;
+    }
+    List<String> conflict = new ArrayList<>();
+    for (int id = core.nextSetBit(constraints.length); id >= 0; id = core.nextSetBit(id + 1)) {
+      conflict.add(describe(roots[id - constraints.length]));
+    }
+    for (int id = core.nextSetBit(0);
+        id >= 0 && id < constraints.length;
+        id = core.nextSetBit(id + 1)) {
+      conflict.add(describe(constraints[id]));
+    }
+    return Collections.unmodifiableList(conflict);
+  }
+
+  /*
+   * QuickXplain: the fewest of the candidate constraints which, with the background constraints,
+   * conflict. When the background has changed and alone conflicts, none of the candidates are
+   * needed.
+   */
+  private BitSet minimize(
+      Constraint[] roots, Budget budget, BitSet background, boolean changed, BitSet candidates) {
+    if (changed && isConflict(roots, budget, background)) {
+      return new BitSet();
+    }
+    if (candidates.cardinality() <= 1) {
+      return (BitSet) candidates.clone();
+    }
+    BitSet first = new BitSet();
+    BitSet second = new BitSet();
+    int half = candidates.cardinality() / 2;
+    for (int id = candidates.nextSetBit(0), i = 0; id >= 0; id = candidates.nextSetBit(id + 1)) {
+      (i++ < half ? first : second).set(id);
+    }
+    BitSet withFirst = (BitSet) background.clone();
+    withFirst.or(first);
+    BitSet fromSecond = minimize(roots, budget, withFirst, true, second);
+    BitSet withSecond = (BitSet) background.clone();
+    withSecond.or(fromSecond);
+    BitSet fromFirst = minimize(roots, budget, withSecond, !fromSecond.isEmpty(), first);
+    fromFirst.or(fromSecond);
+    return fromFirst;
+  }
+
+  // do the enabled constraints conflict? false, when the budget runs out
+  private boolean isConflict(Constraint[] roots, Budget budget, BitSet enabled) {
+    return new Search(roots, enabled, budget).run() == EXHAUSTED;
+  }
+
+  private String describe(Constraint constraint) {
+    String owner =
+        constraint.owner < 0
+            ? "root"
+            : names[constraint.owner] + " " + versions[constraint.owner][constraint.ownerVersion];
+    return owner + " requires " + names[constraint.target] + " " + constraint.range;
+  }
+
+  /** The steps taken and the deadline of one resolve, including any explanation of a conflict */
+  private final class Budget {
+    private final long deadline = System.nanoTime() + timeout.toNanos();
+    private long steps;
+
+    // take a step; false, when the budget is exhausted
+    boolean step() {
+      ++steps;
+      return steps <= maxSteps
+          && (steps % DEADLINE_INTERVAL != 0 || System.nanoTime() - deadline < 0);
+    }
+  }
+
+  /**
+   * One depth first search with conflict directed backjumping. Each decision level selects a
+   * version of one artifact. Applying a constraint narrows the candidates of its target, and is
+   * recorded on a trail so that it can be undone when its owner is unselected.
+   */
+  private final class Search {
+    private final Constraint[] roots;
+    /** The constraints which apply; null for all */
+    @Nullable private final BitSet enabled;
+
+    private final Budget budget;
+    /** The constraints applied at any time during the search */
+    private final BitSet touched = new BitSet();
+
+    /** The selected version of each artifact; or -1 */
+    private final int[] value;
+    /** The decision level of each artifact */
+    private final int[] level;
+    /** The candidates of each artifact; null before any constraint is applied */
+    private final BitSet[] domain;
+
+    private final int[] domainSize;
+    /** The applied constraints targeting each artifact */
+    private final int[][] active;
+
+    private final int[] activeCount;
+
+    /** The artifact, next candidate, trail length and conflicting levels of each decision level */
+    private final int[] artifactAt;
+
+    private final int[] nextCandidate;
+    private final int[] trailMark;
+    private final BitSet[] conflicts;
+
+    // the trail of applied constraints, with the candidates of the target before each
+    private int[] trailConstraint = new int[64];
+    private BitSet[] trailDomain = new BitSet[64];
+    private int[] trailSize = new int[64];
+    private int trailLength;
+
+    /** The nogoods, as artifact and version pairs, keyed by their latest selection */
+    private final Map<Long, List<int[]>> nogoods = new HashMap<>();
+
+    private final ArrayDeque<Long> nogoodKeys = new ArrayDeque<>();
+    private final ArrayDeque<int[]> nogoodOrder = new ArrayDeque<>();
+
+    Search(Constraint[] roots, @Nullable BitSet enabled, Budget budget) {
+      this.roots = roots;
+      this.enabled = enabled;
+      this.budget = budget;
+      int n = names.length;
+      value = new int[n];
+      Arrays.fill(value, -1);
+      level = new int[n];
+      domain = new BitSet[n];
+      domainSize = new int[n];
+      active = new int[n][];
+      activeCount = new int[n];
+      artifactAt = new int[n];
+      nextCandidate = new int[n];
+      trailMark = new int[n];
+      conflicts = new BitSet[n];
+    }
+
+    // ASSIGNED, if resolved; EXHAUSTED, if there is a conflict; or OUT_OF_BUDGET
+    int run() {
+      BitSet ignored = new BitSet();
+      for (int r = 0; r < roots.length; ++r) {
+        int id = constraints.length + r;
+        if (isEnabled(id) && !apply(id, ignored)) {
+          return EXHAUSTED;
+        }
+      }
+      for (int depth = 0; ; ++depth) {
+        int artifact = select();
+        if (artifact < 0) {
+          return ASSIGNED;
+        }
+        artifactAt[depth] = artifact;
+        level[artifact] = depth;
+        nextCandidate[depth] = 0;
+        trailMark[depth] = trailLength;
+        if (conflicts[depth] == null) {
+          conflicts[depth] = new BitSet();
+        } else {
+          conflicts[depth].clear();
+        }
+
+        int state;
+        while ((state = selectNext(depth)) == EXHAUSTED) {
+          BitSet culprits = conflicts[depth];
+          addOwnerLevels(artifact, culprits);
+          culprits.clear(depth);
+          int target = culprits.length() - 1;
+          if (target < 0) {
+            return EXHAUSTED;
+          }
+          learn(culprits);
+          undo(trailMark[target]);
+          for (int d = target; d < depth; ++d) {
+            value[artifactAt[d]] = -1;
+          }
+          culprits.clear(target);
+          conflicts[target].or(culprits);
+          depth = target;
+          artifact = artifactAt[depth];
+        }
+        if (state == OUT_OF_BUDGET) {
+          return OUT_OF_BUDGET;
+        }
+      }
+    }
+
+    private boolean isEnabled(int id) {
+      return enabled == null || enabled.get(id);
+    }
+
+    private Constraint constraint(int id) {
+      return id < constraints.length ? constraints[id] : roots[id - constraints.length];
+    }
+
+    // the unselected required artifact with the fewest candidates; or -1
+    private int select() {
+      int selected = -1;
+      for (int a = 0; a < names.length; ++a) {
+        if (activeCount[a] > 0
+            && value[a] < 0
+            && (selected < 0 || domainSize[a] < domainSize[selected])) {
+          selected = a;
+        }
+      }
+      return selected;
+    }
+
+    // select the next candidate of the artifact at depth
+    private int selectNext(int depth) {
+      int artifact = artifactAt[depth];
+      BitSet culprits = conflicts[depth];
+      for (int v = domain[artifact].nextSetBit(nextCandidate[depth]);
+          v >= 0;
+          v = domain[artifact].nextSetBit(v + 1)) {
+        if (!budget.step()) {
+          return OUT_OF_BUDGET;
+        }
+        nextCandidate[depth] = v + 1;
+        if (isNogood(artifact, v, culprits)) {
+          continue;
+        }
+        value[artifact] = v;
+        if (applyDependencies(artifact, v, culprits)) {
+          return ASSIGNED;
+        }
+        undo(trailMark[depth]);
+        value[artifact] = -1;
+      }
+      return EXHAUSTED;
+    }
+
+    private boolean applyDependencies(int artifact, int version, BitSet culprits) {
+      for (int id : dependencies[artifact][version]) {
+        if (isEnabled(id) && !apply(id, culprits)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    // apply a constraint; false, with the conflicting levels added to culprits, on a conflict
+    private boolean apply(int id, BitSet culprits) {
+      touched.set(id);
+      Constraint constraint = constraint(id);
+      int target = constraint.target;
+      push(id, target);
+      if (value[target] >= 0) {
+        if (constraint.allowed.get(value[target])) {
+          return true;
+        }
+        culprits.set(level[target]);
+        return false;
+      }
+      BitSet candidates = constraint.allowed;
+      if (domain[target] != null) {
+        // domains are replaced rather than changed, so that the trail can restore them
+        candidates = (BitSet) domain[target].clone();
+        candidates.and(constraint.allowed);
+      }
+      domain[target] = candidates;
+      domainSize[target] = candidates.cardinality();
+      if (domainSize[target] > 0) {
+        return true;
+      }
+      addOwnerLevels(target, culprits);
+      return false;
+    }
+
+    private void addOwnerLevels(int artifact, BitSet culprits) {
+      for (int i = 0; i < activeCount[artifact]; ++i) {
+        int owner = constraint(active[artifact][i]).owner;
+        if (owner >= 0) {
+          culprits.set(level[owner]);
+        }
+      }
+    }
+
+    private void push(int id, int target) {
+      if (trailLength == trailConstraint.length) {
+        trailConstraint = Arrays.copyOf(trailConstraint, trailLength * 2);
+        trailDomain = Arrays.copyOf(trailDomain, trailLength * 2);
+        trailSize = Arrays.copyOf(trailSize, trailLength * 2);
+      }
+      trailConstraint[trailLength] = id;
+      trailDomain[trailLength] = domain[target];
+      trailSize[trailLength] = domainSize[target];
+      ++trailLength;
+
+      if (active[target] == null) {
+        active[target] = new int[4];
+      } else if (activeCount[target] == active[target].length) {
+        active[target] = Arrays.copyOf(active[target], activeCount[target] * 2);
+      }
+      active[target][activeCount[target]++] = id;
+    }
+
+    // undo the constraints applied since the trail had a length
+    private void undo(int length) {
+      while (trailLength > length) {
+        --trailLength;
+        int target = constraint(trailConstraint[trailLength]).target;
+        domain[target] = trailDomain[trailLength];
+        domainSize[target] = trailSize[trailLength];
+        trailDomain[trailLength] = null;
+        --activeCount[target];
+      }
+    }
+
+    // remember that the selections at the culprit levels cannot all be kept
+    private void learn(BitSet culprits) {
+      if (maxNogoods == 0) {
+        return;
+      }
+      int latest = culprits.length() - 1;
+      int[] nogood = new int[2 * (culprits.cardinality() - 1)];
+      int i = 0;
+      for (int l = culprits.nextSetBit(0); l < latest; l = culprits.nextSetBit(l + 1)) {
+        nogood[i++] = artifactAt[l];
+        nogood[i++] = value[artifactAt[l]];
+      }
+      Long key = key(artifactAt[latest], value[artifactAt[latest]]);
+      if (nogoodOrder.size() == maxNogoods) {
+        // forget the oldest
+        nogoods.get(nogoodKeys.removeFirst()).remove(nogoodOrder.removeFirst());
+      }
+      nogoods.computeIfAbsent(key, k -> new ArrayList<>()).add(nogood);
+      nogoodKeys.addLast(key);
+      nogoodOrder.addLast(nogood);
+    }
+
+    // does selecting the version complete a nogood? if so, add the levels of its selections
+    private boolean isNogood(int artifact, int version, BitSet culprits) {
+      List<int[]> candidates = nogoods.get(key(artifact, version));
+      if (candidates == null) {
+        return false;
+      }
+      for (int[] nogood : candidates) {
+        if (isSelected(nogood)) {
+          for (int i = 0; i < nogood.length; i += 2) {
+            culprits.set(level[nogood[i]]);
+          }
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean isSelected(int[] nogood) {
+      for (int i = 0; i < nogood.length; i += 2) {
+        if (value[nogood[i]] != nogood[i + 1]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static long key(int artifact, int version) {
+    return (long) artifact << Integer.SIZE | version;
+  }
+
+  /** A range required of one artifact by a root or by a version of another artifact */
+  private static final class Constraint {
+    /** The requiring artifact; or -1, for a root */
+    final int owner;
+
+    final int ownerVersion;
+    final int target;
+    final VersionRange range;
+    /** The versions of target within range */
+    final BitSet allowed;
+
+    Constraint(int owner, int ownerVersion, int target, VersionRange range, BitSet allowed) {
+      this.owner = owner;
+      this.ownerVersion = ownerVersion;
+      this.target = target;
+      this.range = range;
+      this.allowed = allowed;
+    }
+  }
+
+  private static final class Dependency {
+    final String artifact;
+    final SemVer version;
+    final String dependency;
+    final VersionRange range;
+
+    Dependency(String artifact, SemVer version, String dependency, VersionRange range) {
+      this.artifact = artifact;
+      this.version = version;
+      this.dependency = dependency;
+      this.range = range;
+    }
+  }
+
+  /** The outcome of a resolve */
+  @Getter
+  public static final class Resolution {
+
+    /** How a resolve ended */
+    public enum Outcome {
+      /** Every required artifact has a selected version */
+      RESOLVED,
+      /** The constraints cannot all be satisfied */
+      CONFLICT,
+      /** The steps or time allowed ran out */
+      BUDGET_EXCEEDED
+    }
+
+    private final Outcome outcome;
+    /** The selected version of each required artifact; empty unless resolved */
+    private final Map<String, SemVer> versions;
+    /** The constraints which conflict; empty unless in conflict */
+    private final List<String> conflict;
+    /** The candidate versions tried, including while explaining a conflict */
+    private final long steps;
+
+    private Resolution(
+        Outcome outcome, Map<String, SemVer> versions, List<String> conflict, long steps) {
+      this.outcome = outcome;
+      this.versions = versions;
+      this.conflict = conflict;
+      this.steps = steps;
+    }
+
+    /** Does every required artifact have a selected version? */
+    public boolean isResolved() {
+      return outcome == Outcome.RESOLVED;
+    }
+  }
+
+  /** Collects the artifacts, their versions and their dependencies for a VersionResolver */
+  public static final class Builder {
+    private final Map<String, VersionSet> available = new LinkedHashMap<>();
+    private final List<Dependency> dependencies = new ArrayList<>();
+    private long maxSteps = 1 << 20;
+    private Duration timeout = Duration.ofSeconds(10);
+    private int maxNogoods = 1 << 16;
+
+    private Builder() {}
+
+    /**
+     * Set the versions of an artifact. An artifact without versions cannot be required.
+     *
+     * @param artifact The artifact
+     * @param versions The available versions
+     * @return This builder
+     * @throws IllegalArgumentException when the artifact already has versions
+     */
+    public Builder available(@NonNull String artifact, @NonNull VersionSet versions) {
+      if (available.putIfAbsent(artifact, versions) != null) {
+        throw new IllegalArgumentException(artifact + " already has versions");
+      }
+      return this;
+    }
+
+    /**
+     * Add a dependency of one version of an artifact.
+     *
+     * @param artifact The artifact
+     * @param version The available version of the artifact which has the dependency
+     * @param dependency The artifact required
+     * @param range The versions of dependency allowed
+     * @return This builder
+     */
+    public Builder requires(
+        @NonNull String artifact,
+        @NonNull SemVer version,
+        @NonNull String dependency,
+        @NonNull VersionRange range) {
+      dependencies.add(new Dependency(artifact, version, dependency, range));
+      return this;
+    }
+
+    /**
+     * Add a dependency of one version of an artifact.
+     *
+     * @param artifact The artifact
+     * @param version The available version of the artifact which has the dependency
+     * @param dependency The artifact required
+     * @param range The versions of dependency allowed
+     * @return This builder
+     * @throws IllegalArgumentException when version is not a semantic version, or range is not a
+     *     version range
+     */
+    public Builder requires(
+        @NonNull String artifact,
+        @NonNull String version,
+        @NonNull String dependency,
+        @NonNull String range) {
+      return requires(artifact, SemVer.valueOf(version), dependency, VersionRange.valueOf(range));
+    }
+
+    /**
+     * Set the number of candidate versions a resolve may try. The default is 1,048,576.
+     *
+     * @param maxSteps The number of steps
+     * @return This builder
+     */
+    public Builder maxSteps(long maxSteps) {
+      if (maxSteps <= 0) {
+        throw new IllegalArgumentException("maxSteps must be positive");
+      }
+      this.maxSteps = maxSteps;
+      return this;
+    }
+
+    /**
+     * Set the time a resolve may take. The default is ten seconds.
+     *
+     * @param timeout The time allowed
+     * @return This builder
+     */
+    public Builder timeout(@NonNull Duration timeout) {
+      if (timeout.isNegative() || timeout.isZero()) {
+        throw new IllegalArgumentException("timeout must be positive");
+      }
+      this.timeout = timeout;
+      return this;
+    }
+
+    /**
+     * Set the number of nogoods a resolve remembers; the oldest are forgotten first. The default is
+     * 65,536.
+     *
+     * @param maxNogoods The number of nogoods; 0 to remember none
+     * @return This builder
+     */
+    public Builder maxNogoods(int maxNogoods) {
+      if (maxNogoods < 0) {
+        throw new IllegalArgumentException("maxNogoods must not be negative");
+      }
+      this.maxNogoods = maxNogoods;
+      return this;
+    }
+
+    /**
+     * Create the resolver.
+     *
+     * @return The resolver
+     * @throws IllegalArgumentException when a dependency is of a version which is not available
+     */
+    public VersionResolver build() {
+      return new VersionResolver(this);
+    }
+  }
+}
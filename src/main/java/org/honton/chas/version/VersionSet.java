@@ -0,0 +1,456 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import javax.annotation.Nullable;
+import lombok.NonNull;
+
+/**
+ * An immutable set of versions in precedence order. The versions are held in primitive columns
+ * rather than as SemVer instances: the ordinals of all versions in one array, and the pre-release
+ * tokens only of pre-releases. Floor, ceiling, range and latest supporting queries are binary
+ * searches, and a SemVer is created only for each version returned.
+ *
+ * <p>Versions of equal precedence which differ in metadata are all kept, ordered by their string.
+ */
+public final class VersionSet implements Iterable<SemVer> {
+
+  private static final Comparator<SemVer> ORDER =
+      Comparator.<SemVer>naturalOrder().thenComparing(SemVer::getVersion);
+
+  // the minimum number of versions sorted in parallel
+  private static final int PARALLEL_SORT_THRESHOLD = 1 << 13;
+
+  private static final VersionSet EMPTY = new Builder().build();
+
+  /** The ordinals of version i are ordinals[ordinalStart[i]] until ordinals[ordinalStart[i+1]] */
+  private final int[] ordinalStart;
+
+  private final int[] ordinals;
+  /** The tokenized pre-release of each version; null for a release */
+  private final PreRelease[] preReleases;
+  /** The text following the ordinals of each version; null when there is none */
+  private final String[] suffixes;
+  /** The first version of this set within the columns */
+  private final int from;
+  /** The version after the last version of this set within the columns */
+  private final int to;
+
+  private VersionSet(
+      int[] ordinalStart,
+      int[] ordinals,
+      PreRelease[] preReleases,
+      String[] suffixes,
+      int from,
+      int to) {
+    this.ordinalStart = ordinalStart;
+    this.ordinals = ordinals;
+    this.preReleases = preReleases;
+    this.suffixes = suffixes;
+    this.from = from;
+    this.to = to;
+  }
+
+  /** Create a builder, which bulk loads versions */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Create a set of versions.
+   *
+   * @param versions The versions
+   * @return The set
+   */
+  public static VersionSet of(@NonNull Iterable<SemVer> versions) {
+    return builder().addAll(versions).build();
+  }
+
+  /** The number of versions */
+  public int size() {
+    return to - from;
+  }
+
+  /** Are there no versions? */
+  public boolean isEmpty() {
+    return to == from;
+  }
+
+  /**
+   * Get a version by position.
+   *
+   * @param index The position in precedence order
+   * @return The version
+   * @throws IndexOutOfBoundsException when index is not within the set
+   */
+  public SemVer get(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException(Integer.toString(index));
+    }
+    return semVer(from + index);
+  }
+
+  /** The earliest version; or null, if empty */
+  @Nullable
+  public SemVer first() {
+    return orNull(from);
+  }
+
+  /** The latest version; or null, if empty */
+  @Nullable
+  public SemVer last() {
+    return orNull(to - 1);
+  }
+
+  /**
+   * The latest version earlier than or equal to a version.
+   *
+   * @param version The version
+   * @return The matching version; or null, if there is none
+   */
+  @Nullable
+  public SemVer floor(@NonNull SemVer version) {
+    return orNull(search(version, true) - 1);
+  }
+
+  /**
+   * The latest version earlier than a version.
+   *
+   * @param version The version
+   * @return The matching version; or null, if there is none
+   */
+  @Nullable
+  public SemVer lower(@NonNull SemVer version) {
+    return orNull(search(version, false) - 1);
+  }
+
+  /**
+   * The earliest version later than or equal to a version.
+   *
+   * @param version The version
+   * @return The matching version; or null, if there is none
+   */
+  @Nullable
+  public SemVer ceiling(@NonNull SemVer version) {
+    return orNull(search(version, false));
+  }
+
+  /**
+   * The earliest version later than a version.
+   *
+   * @param version The version
+   * @return The matching version; or null, if there is none
+   */
+  @Nullable
+  public SemVer higher(@NonNull SemVer version) {
+    return orNull(search(version, true));
+  }
+
+  /**
+   * The earliest version later than a version with the same major and minor ordinals.
+   *
+   * @param version The version, which has at least a major and minor ordinal
+   * @return The next patch; or null, if there is none
+   */
+  @Nullable
+  public SemVer nextPatch(@NonNull SemVer version) {
+    int[] expected = version.getOrdinals();
+    int next = search(version, true);
+    if (next == to || expected.length < 2 || ordinalCount(next) < 2) {
+      return null;
+    }
+    int start = ordinalStart[next];
+    return ordinals[start] == expected[0] && ordinals[start + 1] == expected[1]
+        ? semVer(next)
+        : null;
+  }
+
+  /**
+   * The latest version which supports an expected version, as determined by {@link
+   * SemVer#isSupported(SemVer)}.
+   *
+   * @param expected The expected version
+   * @return The latest supporting version; or null, if there is none
+   */
+  @Nullable
+  public SemVer latestSupporting(@NonNull SemVer expected) {
+    // supporting versions have the same major and do not precede the expected version
+    int major = expected.getOrdinals()[0];
+    int low = from;
+    int high = to;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (ordinals[ordinalStart[mid]] <= major) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    int latest = low - 1;
+    return latest >= from
+            && ordinals[ordinalStart[latest]] == major
+            && compare(latest, expected) >= 0
+        ? semVer(latest)
+        : null;
+  }
+
+  /**
+   * The versions within a range.
+   *
+   * @param range The range
+   * @return The versions, in precedence order
+   */
+  public List<SemVer> matching(@NonNull VersionRange range) {
+    List<SemVer> matches = new ArrayList<>();
+    for (int interval = 0; interval < range.intervalCount(); ++interval) {
+      for (int i = start(range, interval), end = end(range, interval); i < end; ++i) {
+        matches.add(semVer(i));
+      }
+    }
+    return matches;
+  }
+
+  /**
+   * The latest version within a range.
+   *
+   * @param range The range
+   * @return The latest version; or null, if no version is within the range
+   */
+  @Nullable
+  public SemVer latest(@NonNull VersionRange range) {
+    for (int interval = range.intervalCount() - 1; interval >= 0; --interval) {
+      int end = end(range, interval);
+      if (end > start(range, interval)) {
+        return semVer(end - 1);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * The versions between two bounds. The subset shares the columns of this set.
+   *
+   * @param fromVersion The lower bound; or null, for no lower bound
+   * @param fromInclusive Whether a version equal to the lower bound is included
+   * @param toVersion The upper bound; or null, for no upper bound
+   * @param toInclusive Whether a version equal to the upper bound is included
+   * @return The subset
+   */
+  public VersionSet subSet(
+      @Nullable SemVer fromVersion,
+      boolean fromInclusive,
+      @Nullable SemVer toVersion,
+      boolean toInclusive) {
+    int start = fromVersion == null ? from : search(fromVersion, !fromInclusive);
+    int end = toVersion == null ? to : search(toVersion, toInclusive);
+    if (end <= start) {
+      return EMPTY;
+    }
+    return new VersionSet(ordinalStart, ordinals, preReleases, suffixes, start, end);
+  }
+
+  @Override
+  public Iterator<SemVer> iterator() {
+    return new Iterator<SemVer>() {
+      private int next = from;
+
+      @Override
+      public boolean hasNext() {
+        return next < to;
+      }
+
+      @Override
+      public SemVer next() {
+        if (next >= to) {
+          throw new NoSuchElementException();
+        }
+        return semVer(next++);
+      }
+    };
+  }
+
+  private int start(VersionRange range, int interval) {
+    SemVer lower = range.getLower(interval);
+    return lower == null ? from : search(lower, !range.isLowerInclusive(interval));
+  }
+
+  private int end(VersionRange range, int interval) {
+    SemVer upper = range.getUpper(interval);
+    return upper == null ? to : search(upper, range.isUpperInclusive(interval));
+  }
+
+  /**
+   * Find the first version later than, or when not pastEqual, later than or equal to, a version.
+   */
+  private int search(SemVer version, boolean pastEqual) {
+    int low = from;
+    int high = to;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      int cmp = compare(mid, version);
+      if (cmp < 0 || cmp == 0 && pastEqual) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /** Compare the precedence of version i with a version, as {@link SemVer#compareTo} does. */
+  private int compare(int i, SemVer version) {
+    int start = ordinalStart[i];
+    int count = ordinalStart[i + 1] - start;
+    int[] other = version.getOrdinals();
+    // as with the packed sort key, an absent minor or patch precedes any value
+    for (int o = 0; o < 3; ++o) {
+      int left = o < count ? ordinals[start + o] : -1;
+      int right = o < other.length ? other[o] : -1;
+      if (left != right) {
+        return Integer.compare(left, right);
+      }
+    }
+    int common = Math.min(count, other.length);
+    for (int o = 3; o < common; ++o) {
+      if (ordinals[start + o] != other[o]) {
+        return Integer.compare(ordinals[start + o], other[o]);
+      }
+    }
+    if (count != other.length) {
+      return count - other.length;
+    }
+    PreRelease left = preReleases[i];
+    PreRelease right = version.getPreReleaseIdentifiers();
+    if (left == null) {
+      return right == null ? 0 : 1;
+    }
+    return right == null ? -1 : left.compareTo(right);
+  }
+
+  private int ordinalCount(int i) {
+    return ordinalStart[i + 1] - ordinalStart[i];
+  }
+
+  @Nullable
+  private SemVer orNull(int i) {
+    return i >= from && i < to ? semVer(i) : null;
+  }
+
+  private SemVer semVer(int i) {
+    StringBuilder sb = new StringBuilder();
+    for (int o = ordinalStart[i]; o < ordinalStart[i + 1]; ++o) {
+      if (o > ordinalStart[i]) {
+        sb.append('.');
+      }
+      sb.append(ordinals[o]);
+    }
+    if (suffixes[i] != null) {
+      sb.append(suffixes[i]);
+    }
+    return SemVer.valueOf(sb.toString());
+  }
+
+  /** Collects versions for a VersionSet. A builder may not be used after build is called. */
+  public static final class Builder {
+    private SemVer[] versions = new SemVer[16];
+    private int size;
+
+    private Builder() {}
+
+    /**
+     * Add a version.
+     *
+     * @param version The version
+     * @return This builder
+     * @throws IllegalArgumentException when version is not a semantic version
+     */
+    public Builder add(@NonNull String version) {
+      return add(SemVer.valueOf(version));
+    }
+
+    /**
+     * Add a version.
+     *
+     * @param version The version
+     * @return This builder
+     */
+    public Builder add(@NonNull SemVer version) {
+      if (size == versions.length) {
+        versions = Arrays.copyOf(versions, size * 2);
+      }
+      versions[size++] = version;
+      return this;
+    }
+
+    /**
+     * Add versions.
+     *
+     * @param versions The versions
+     * @return This builder
+     */
+    public Builder addAll(@NonNull Iterable<SemVer> versions) {
+      versions.forEach(this::add);
+      return this;
+    }
+
+    /** Create the set, dropping duplicate versions */
+    public VersionSet build() {
+      if (size >= PARALLEL_SORT_THRESHOLD) {
+        Arrays.parallelSort(versions, 0, size, ORDER);
+      } else {
+        Arrays.sort(versions, 0, size, ORDER);
+      }
+      int distinct = 0;
+      int ordinalCount = 0;
+      for (int i = 0; i < size; ++i) {
+        if (distinct == 0 || !versions[i].equals(versions[distinct - 1])) {
+          versions[distinct++] = versions[i];
+          ordinalCount += versions[i].getOrdinals().length;
+        }
+      }
+
+      int[] ordinalStart = new int[distinct + 1];
+      int[] ordinals = new int[ordinalCount];
+      PreRelease[] preReleases = new PreRelease[distinct];
+      String[] suffixes = new String[distinct];
+      int next = 0;
+      for (int i = 0; i < distinct; ++i) {
+        SemVer version = versions[i];
+        int[] versionOrdinals = version.getOrdinals();
+        ordinalStart[i] = next;
+        System.arraycopy(versionOrdinals, 0, ordinals, next, versionOrdinals.length);
+        next += versionOrdinals.length;
+        preReleases[i] = version.getPreReleaseIdentifiers();
+        int suffix = ordinalsLength(versionOrdinals);
+        if (suffix < version.getVersion().length()) {
+          suffixes[i] = version.getVersion().substring(suffix);
+        }
+      }
+      ordinalStart[distinct] = next;
+      versions = null;
+      return new VersionSet(ordinalStart, ordinals, preReleases, suffixes, 0, distinct);
+    }
+
+    // the length of the ordinals as text, which has no leading zeros
+    private static int ordinalsLength(int[] ordinals) {
+      int length = ordinals.length - 1;
+      for (int ordinal : ordinals) {
+        length += Integer.toString(ordinal).length();
+      }
+      return length;
+    }
+  }
+}
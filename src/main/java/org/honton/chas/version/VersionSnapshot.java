@@ -0,0 +1,653 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+import lombok.NonNull;
+
+/**
+ * A compact binary format for jar inventories and version collections. A snapshot is a sequence of
+ * entries, each a name and an optional version; a version collection uses empty names. Entries are
+ * written and read one at a time, so that neither side holds the whole collection.
+ *
+ * <p>The encoding is
+ *
+ * <pre>
+ * snapshot = 'S' 'V' 'S' FORMAT { entry } END
+ * entry    = kind+flags [ name ] [ semver | text ]
+ * kind     = NO_VERSION | SEMVER | TEXT
+ * flags    = NAME, when the name differs from the previous name; PRE_RELEASE; METADATA
+ * name     = varint(bytes shared with the previous name) varint(length) utf-8-suffix
+ * semver   = varint(ordinal count &lt;&lt; 4 | ordinals shared with the previous semver) { varint }
+ *            [ string(pre-release) ] [ string(groupId) string(artifactId) ]
+ * text     = varint(length) utf-8
+ * string   = varint(0) | varint(1) varint(length) utf-8 | varint(2 + string table index)
+ * </pre>
+ *
+ * where a string of varint(0) is absent. Names and ordinals are delta encoded, so sorted entries
+ * encode most compactly; a patch release following its predecessor takes three bytes. Pre-release
+ * qualifiers and the groupId and artifactId parts of metadata are entered in a string table the
+ * first time they are written, and are referenced by index thereafter. The artifactId is present
+ * when the metadata contains a '-'. Versions which are not semantic versions are written as text.
+ */
+public final class VersionSnapshot {
+
+  private static final byte[] MAGIC = {'S', 'V', 'S'};
+  private static final int FORMAT = 1;
+
+  private static final int END = 0;
+  private static final int NO_VERSION = 1;
+  private static final int SEMVER = 2;
+  private static final int TEXT = 3;
+  private static final int KIND_MASK = 3;
+  private static final int NAME = 4;
+  private static final int PRE_RELEASE = 8;
+  private static final int METADATA = 16;
+  /** The bits of the ordinal count varint holding the number of shared ordinals */
+  private static final int SHARED_BITS = 4;
+
+  private static final int MAX_SHARED = (1 << SHARED_BITS) - 1;
+
+  private static final int ABSENT = 0;
+  private static final int LITERAL = 1;
+  private static final int REFERENCE = 2;
+
+  /** Guard against corrupt lengths allocating huge arrays */
+  private static final int MAX_LENGTH = 1 << 20;
+
+  private VersionSnapshot() {}
+
+  /**
+   * Start writing a snapshot.
+   *
+   * @param out The stream, which is closed when the writer is closed
+   * @return The writer
+   */
+  public static Writer writer(@NonNull OutputStream out) throws IOException {
+    return new Writer(out);
+  }
+
+  /**
+   * Start reading a snapshot from a stream.
+   *
+   * @param in The stream, which is closed when the reader is closed
+   * @return The reader
+   * @throws IOException when the stream does not start with a snapshot header
+   */
+  public static Reader reader(@NonNull InputStream in) throws IOException {
+    return new Reader(new StreamSource(in));
+  }
+
+  /**
+   * Read a snapshot in place from a buffer, such as a mapped file. Ordinals are decoded directly
+   * from the buffer, and strings are only created when requested. The buffer's position is not
+   * changed.
+   *
+   * @param buffer The buffer, holding the snapshot from its position to its limit
+   * @return The reader
+   * @throws IOException when the buffer does not start with a snapshot header
+   */
+  public static Reader reader(@NonNull ByteBuffer buffer) throws IOException {
+    return new Reader(new BufferSource(buffer.duplicate()));
+  }
+
+  /**
+   * Write a jar inventory, such as {@link JarVersions#getDependentJars()}, sorted by jar name.
+   *
+   * @param out The stream, which is closed
+   * @param jars The version of each jar, keyed by jar name
+   */
+  public static void write(@NonNull OutputStream out, @NonNull Map<String, String> jars)
+      throws IOException {
+    Map<String, String> sorted = jars instanceof SortedMap ? jars : new TreeMap<>(jars);
+    try (Writer writer = writer(out)) {
+      for (Map.Entry<String, String> jar : sorted.entrySet()) {
+        writer.write(jar.getKey(), jar.getValue());
+      }
+    }
+  }
+
+  /**
+   * Write a version collection. A VersionSet is in precedence order, which encodes compactly.
+   *
+   * @param out The stream, which is closed
+   * @param versions The versions
+   */
+  public static void write(@NonNull OutputStream out, @NonNull Iterable<SemVer> versions)
+      throws IOException {
+    try (Writer writer = writer(out)) {
+      for (SemVer version : versions) {
+        writer.write(version);
+      }
+    }
+  }
+
+  /** Writes entries to a stream. */
+  public static final class Writer implements Closeable, Flushable {
+
+    private final OutputStream out;
+    private final Map<String, Integer> strings = new HashMap<>();
+    private byte[] previousName = new byte[0];
+    private int[] previousOrdinals = new int[0];
+    private boolean closed;
+
+    private Writer(OutputStream out) throws IOException {
+      this.out = new BufferedOutputStream(out);
+      this.out.write(MAGIC);
+      this.out.write(FORMAT);
+    }
+
+    /**
+     * Write a version collection entry.
+     *
+     * @param version The version
+     */
+    public void write(@NonNull SemVer version) throws IOException {
+      write("", version);
+    }
+
+    /**
+     * Write an entry.
+     *
+     * @param name The name, such as a jar file name
+     * @param version The version
+     */
+    public void write(@NonNull String name, @NonNull SemVer version) throws IOException {
+      int flags = SEMVER;
+      if (version.getPreRelease() != null) {
+        flags |= PRE_RELEASE;
+      }
+      if (version.getMetadata() != null) {
+        flags |= METADATA;
+      }
+      writeName(name, flags);
+      writeSemVer(version);
+    }
+
+    /**
+     * Write an entry. A version which is a semantic version is written as its parts; any other
+     * version is written as text.
+     *
+     * @param name The name, such as a jar file name
+     * @param version The version; or null
+     */
+    public void write(@NonNull String name, @Nullable String version) throws IOException {
+      if (version == null) {
+        writeName(name, NO_VERSION);
+        return;
+      }
+      SemVer semVer = SemVer.tryParse(version);
+      // a trailing line terminator is accepted by the parser, but not reproduced from the parts
+      if (semVer != null && semVer.getVersion().length() == version.length()) {
+        write(name, semVer);
+        return;
+      }
+      writeName(name, TEXT);
+      writeUtf8(version);
+    }
+
+    // write the entry header and, if changed, the name
+    private void writeName(String name, int flags) throws IOException {
+      byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+      if (Arrays.equals(bytes, previousName)) {
+        out.write(flags);
+        return;
+      }
+      out.write(flags | NAME);
+      int shared = 0;
+      int common = Math.min(bytes.length, previousName.length);
+      while (shared < common && bytes[shared] == previousName[shared]) {
+        ++shared;
+      }
+      writeVarint(shared);
+      writeVarint(bytes.length - shared);
+      out.write(bytes, shared, bytes.length - shared);
+      previousName = bytes;
+    }
+
+    private void writeSemVer(SemVer version) throws IOException {
+      int[] ordinals = version.getOrdinals();
+      int shared = 0;
+      int common = Math.min(ordinals.length, previousOrdinals.length);
+      while (shared < common && ordinals[shared] == previousOrdinals[shared]) {
+        ++shared;
+      }
+      shared = Math.min(shared, MAX_SHARED);
+      writeVarint(ordinals.length << SHARED_BITS | shared);
+      for (int i = shared; i < ordinals.length; ++i) {
+        writeVarint(ordinals[i]);
+      }
+      previousOrdinals = ordinals;
+
+      if (version.getPreRelease() != null) {
+        writeString(version.getPreRelease());
+      }
+      String metadata = version.getMetadata();
+      if (metadata == null) {
+        return;
+      }
+      int dash = metadata.indexOf('-');
+      writeString(dash < 0 ? metadata : metadata.substring(0, dash));
+      writeString(dash < 0 ? null : metadata.substring(dash + 1));
+    }
+
+    private void writeString(@Nullable String value) throws IOException {
+      if (value == null) {
+        writeVarint(ABSENT);
+        return;
+      }
+      Integer index = strings.get(value);
+      if (index != null) {
+        writeVarint(REFERENCE + index);
+        return;
+      }
+      strings.put(value, strings.size());
+      writeVarint(LITERAL);
+      writeUtf8(value);
+    }
+
+    private void writeUtf8(String value) throws IOException {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeVarint(bytes.length);
+      out.write(bytes);
+    }
+
+    private void writeVarint(int value) throws IOException {
+      while ((value & ~0x7F) != 0) {
+        out.write((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      out.write(value);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      out.flush();
+    }
+
+    /** Write the end of the snapshot, and close the stream. */
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        try {
+          out.write(END);
+        } finally {
+          out.close();
+        }
+      }
+    }
+  }
+
+  /** Reads entries one at a time. */
+  public static final class Reader implements Closeable {
+
+    private final Source source;
+    private final List<String> strings = new ArrayList<>();
+    private byte[] name = new byte[32];
+    private int nameLength;
+    private int[] ordinals = new int[0];
+    private int ordinalCount;
+
+    private int kind = NO_VERSION;
+    private String preRelease;
+    private String group;
+    private String artifact;
+    private String text;
+    /** The name and version of the current entry, created upon request */
+    private String nameString;
+
+    private String version;
+
+    private Reader(Source source) throws IOException {
+      this.source = source;
+      for (byte b : MAGIC) {
+        if (source.read() != b) {
+          throw new IOException("not a version snapshot");
+        }
+      }
+      int format = source.read();
+      if (format != FORMAT) {
+        throw new IOException("unknown version snapshot format " + format);
+      }
+    }
+
+    /**
+     * Advance to the next entry.
+     *
+     * @return false, at the end of the snapshot
+     * @throws IOException when the snapshot is malformed or truncated
+     */
+    public boolean next() throws IOException {
+      if (kind == END) {
+        return false;
+      }
+      int header = source.read();
+      if (header == END) {
+        kind = END;
+        return false;
+      }
+      if ((header & ~(KIND_MASK | NAME | PRE_RELEASE | METADATA)) != 0
+          || (header & KIND_MASK) == END) {
+        throw new IOException("unknown entry header " + header);
+      }
+      kind = header & KIND_MASK;
+      version = null;
+      if ((header & NAME) != 0) {
+        nameString = null;
+        readName();
+      }
+      if (kind == SEMVER) {
+        readSemVer(header);
+      } else if (kind == TEXT) {
+        text = readUtf8();
+      }
+      return true;
+    }
+
+    /** The name of the current entry; empty for a version collection */
+    public String getName() {
+      if (nameString == null) {
+        nameString = new String(name, 0, nameLength, StandardCharsets.UTF_8);
+      }
+      return nameString;
+    }
+
+    /** The version of the current entry; or null, if the entry has no version */
+    public @Nullable String getVersion() {
+      if (version == null) {
+        if (kind == TEXT) {
+          version = text;
+        } else if (kind == SEMVER) {
+          version = buildVersion();
+        }
+      }
+      return version;
+    }
+
+    /** The version of the current entry; or null, if the entry has no semantic version */
+    public @Nullable SemVer getSemVer() {
+      String current = getVersion();
+      return current != null ? SemVer.tryParse(current) : null;
+    }
+
+    /** The major version of the current entry, read without creating a version; or -1 */
+    public int getMajor() {
+      return kind == SEMVER ? ordinals[0] : -1;
+    }
+
+    /**
+     * Read the remaining entries into a map, such as a jar inventory.
+     *
+     * @return The versions keyed by name
+     */
+    public Map<String, String> toMap() throws IOException {
+      Map<String, String> map = new TreeMap<>();
+      while (next()) {
+        map.put(getName(), getVersion());
+      }
+      return map;
+    }
+
+    /**
+     * Read the remaining semantic versions into a VersionSet. Entries without a semantic version
+     * are skipped.
+     *
+     * @return The versions
+     */
+    public VersionSet toVersionSet() throws IOException {
+      VersionSet.Builder builder = VersionSet.builder();
+      while (next()) {
+        SemVer semVer = getSemVer();
+        if (semVer != null) {
+          builder.add(semVer);
+        }
+      }
+      return builder.build();
+    }
+
+    private String buildVersion() {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < ordinalCount; ++i) {
+        if (i > 0) {
+          sb.append('.');
+        }
+        sb.append(ordinals[i]);
+      }
+      if (preRelease != null) {
+        sb.append('-').append(preRelease);
+      }
+      if (group != null) {
+        sb.append('+').append(group);
+        if (artifact != null) {
+          sb.append('-').append(artifact);
+        }
+      }
+      return sb.toString();
+    }
+
+    private void readName() throws IOException {
+      int shared = readVarint();
+      int suffix = readLength();
+      if (shared > nameLength) {
+        throw new IOException("invalid name prefix " + shared);
+      }
+      int length = shared + suffix;
+      if (length > name.length) {
+        byte[] grown = new byte[Math.max(length, name.length * 2)];
+        System.arraycopy(name, 0, grown, 0, shared);
+        name = grown;
+      }
+      source.readFully(name, shared, suffix);
+      nameLength = length;
+    }
+
+    private void readSemVer(int header) throws IOException {
+      int packed = readVarint();
+      int count = packed >>> SHARED_BITS;
+      int shared = packed & MAX_SHARED;
+      if (count == 0 || count > MAX_LENGTH || shared > Math.min(count, ordinalCount)) {
+        throw new IOException("invalid ordinals");
+      }
+      if (count > ordinals.length) {
+        int[] grown = new int[Math.max(count, 4)];
+        System.arraycopy(ordinals, 0, grown, 0, shared);
+        ordinals = grown;
+      }
+      for (int i = shared; i < count; ++i) {
+        ordinals[i] = readVarint();
+      }
+      ordinalCount = count;
+      preRelease = (header & PRE_RELEASE) != 0 ? readPresentString() : null;
+      group = (header & METADATA) != 0 ? readPresentString() : null;
+      artifact = group != null ? readString() : null;
+    }
+
+    private @Nullable String readString() throws IOException {
+      int ref = readVarint();
+      if (ref == ABSENT) {
+        return null;
+      }
+      if (ref == LITERAL) {
+        String value = readUtf8();
+        strings.add(value);
+        return value;
+      }
+      int index = ref - REFERENCE;
+      if (index >= strings.size()) {
+        throw new IOException("invalid string reference " + ref);
+      }
+      return strings.get(index);
+    }
+
+    private String readPresentString() throws IOException {
+      String value = readString();
+      if (value == null) {
+        throw new IOException("missing string");
+      }
+      return value;
+    }
+
+    private String readUtf8() throws IOException {
+      int length = readLength();
+      return source.readUtf8(length);
+    }
+
+    private int readLength() throws IOException {
+      int length = readVarint();
+      if (length > MAX_LENGTH) {
+        throw new IOException("invalid length " + length);
+      }
+      return length;
+    }
+
+    private int readVarint() throws IOException {
+      int value = 0;
+      for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+        int b = source.read();
+        value |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          if (value < 0) {
+            break;
+          }
+          return value;
+        }
+      }
+      throw new IOException("invalid varint");
+    }
+
+    @Override
+    public void close() throws IOException {
+      source.close();
+    }
+  }
+
+  /** The bytes of a snapshot */
+  private interface Source extends Closeable {
+    /** @return the next byte, unsigned */
+    int read() throws IOException;
+
+    void readFully(byte[] bytes, int offset, int length) throws IOException;
+
+    String readUtf8(int length) throws IOException;
+  }
+
+  private static final class StreamSource implements Source {
+    private final InputStream in;
+
+    StreamSource(InputStream in) {
+      this.in = new BufferedInputStream(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = in.read();
+      if (b < 0) {
+        throw new EOFException("truncated version snapshot");
+      }
+      return b;
+    }
+
+    @Override
+    public void readFully(byte[] bytes, int offset, int length) throws IOException {
+      while (length > 0) {
+        int n = in.read(bytes, offset, length);
+        if (n < 0) {
+          throw new EOFException("truncated version snapshot");
+        }
+        offset += n;
+        length -= n;
+      }
+    }
+
+    @Override
+    public String readUtf8(int length) throws IOException {
+      byte[] bytes = new byte[length];
+      readFully(bytes, 0, length);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+
+  private static final class BufferSource implements Source {
+    private final ByteBuffer buffer;
+
+    BufferSource(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() throws IOException {
+      try {
+        return buffer.get() & 0xFF;
+      } catch (BufferUnderflowException e) {
+        throw new EOFException("truncated version snapshot");
+      }
+    }
+
+    @Override
+    public void readFully(byte[] bytes, int offset, int length) throws IOException {
+      try {
+        buffer.get(bytes, offset, length);
+      } catch (BufferUnderflowException e) {
+        throw new EOFException("truncated version snapshot");
+      }
+    }
+
+    @Override
+    public String readUtf8(int length) throws IOException {
+      if (length > buffer.remaining()) {
+        throw new EOFException("truncated version snapshot");
+      }
+      String value;
+      if (buffer.hasArray()) {
+        value =
+            new String(
+                buffer.array(),
+                buffer.arrayOffset() + buffer.position(),
+                length,
+                StandardCharsets.UTF_8);
+      } else {
+        ByteBuffer slice = buffer.slice();
+        slice.limit(length);
+        value = StandardCharsets.UTF_8.decode(slice).toString();
+      }
+      buffer.position(buffer.position() + length);
+      return value;
+    }
+
+    @Override
+    public void close() {
+      // the buffer belongs to the caller
+    }
+  }
+}
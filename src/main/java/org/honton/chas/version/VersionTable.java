@@ -0,0 +1,639 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import lombok.NonNull;
+
+/**
+ * A table of versions held off the heap, in the columns of a direct or memory mapped buffer. The
+ * ordinals of every version are packed in one int column, and each distinct pre-release and
+ * metadata is held once in a string arena. A table written to a file is reopened by mapping the
+ * file, without reading or parsing the versions.
+ *
+ * <p>Rows are addressed by their index, in the order the versions were added. Checking support,
+ * filtering and sorting read the columns directly, and no SemVer is created unless {@link
+ * #get(int)} is called. The layout is
+ *
+ * <pre>
+ * table  = 'S' 'V' 'T' FORMAT int(count) int(ordinal count) int(arena length)
+ *          int(ordinal start){count + 1} int(ordinal){ordinal count}
+ *          int(pre-release){count} int(metadata){count} arena
+ * arena  = { int(length) ascii }
+ * </pre>
+ *
+ * where the pre-release and metadata columns hold an offset in the arena, or -1 when absent. As the
+ * buffer is indexed by int, a table is limited to 2GB.
+ */
+public final class VersionTable {
+
+  private static final byte[] MAGIC = {'S', 'V', 'T'};
+  private static final int FORMAT = 1;
+  private static final int HEADER = 16;
+  private static final int ABSENT = -1;
+
+  // the bits of each ordinal in a sort key, as in SemVer
+  private static final int KEY_BITS = 21;
+  private static final int KEY_LIMIT = 1 << KEY_BITS;
+  private static final long NO_KEY = -1;
+  // below this, runs are sorted by insertion
+  private static final int INSERTION_SORT_THRESHOLD = 16;
+
+  private final ByteBuffer buffer;
+  private final int count;
+  private final int ordinalStarts;
+  private final int ordinals;
+  private final int preReleases;
+  private final int metadata;
+  private final int arena;
+
+  private VersionTable(ByteBuffer buffer) {
+    this.buffer = buffer;
+    if (buffer.limit() < HEADER
+        || buffer.get(0) != MAGIC[0]
+        || buffer.get(1) != MAGIC[1]
+        || buffer.get(2) != MAGIC[2]) {
+      throw new IllegalArgumentException("not a version table");
+    }
+    if (buffer.get(3) != FORMAT) {
+      throw new IllegalArgumentException("unknown version table format " + buffer.get(3));
+    }
+    count = buffer.getInt(4);
+    int ordinalCount = buffer.getInt(8);
+    int arenaLength = buffer.getInt(12);
+    if (count < 0
+        || ordinalCount < 0
+        || arenaLength < 0
+        || size(count, ordinalCount, arenaLength) > buffer.limit()) {
+      throw new IllegalArgumentException("truncated version table");
+    }
+    ordinalStarts = HEADER;
+    ordinals = ordinalStarts + Integer.BYTES * (count + 1);
+    preReleases = ordinals + Integer.BYTES * ordinalCount;
+    metadata = preReleases + Integer.BYTES * count;
+    arena = metadata + Integer.BYTES * count;
+  }
+
+  /** Create a builder, which collects versions in primitive columns */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Read a table from a buffer, which is used in place rather than copied. The buffer's position is
+   * not changed.
+   *
+   * @param buffer The buffer, whose remaining bytes hold a table
+   * @return The table
+   * @throws IllegalArgumentException when the buffer does not hold a table
+   */
+  public static VersionTable wrap(@NonNull ByteBuffer buffer) {
+    return new VersionTable(buffer.slice());
+  }
+
+  /**
+   * Open a table written by {@link Builder#build(Path)}, by mapping the file read only. The mapping
+   * is released when the table is garbage collected.
+   *
+   * @param file The file
+   * @return The table
+   * @throws IOException when the file cannot be mapped
+   * @throws IllegalArgumentException when the file does not hold a table
+   */
+  public static VersionTable open(@NonNull Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return new VersionTable(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  // the bytes of a table, which must be indexable by int
+  private static long size(long count, long ordinalCount, long arenaLength) {
+    return HEADER + Integer.BYTES * (3 * count + 1 + ordinalCount) + arenaLength;
+  }
+
+  /** The number of versions */
+  public int size() {
+    return count;
+  }
+
+  /** A read only view of the buffer holding the table */
+  public ByteBuffer getBuffer() {
+    return buffer.asReadOnlyBuffer();
+  }
+
+  /**
+   * The number of ordinals of a version.
+   *
+   * @param row The row of the version
+   * @return The number of ordinals
+   * @throws IndexOutOfBoundsException when row is not within the table
+   */
+  public int getOrdinalCount(int row) {
+    checkRow(row);
+    return ordinalStart(row + 1) - ordinalStart(row);
+  }
+
+  /**
+   * An ordinal of a version.
+   *
+   * @param row The row of the version
+   * @param index The index of the ordinal; 0 for the major version
+   * @return The ordinal
+   * @throws IndexOutOfBoundsException when row or index are not within the table
+   */
+  public int getOrdinal(int row, int index) {
+    if (index < 0 || index >= getOrdinalCount(row)) {
+      throw new IndexOutOfBoundsException(Integer.toString(index));
+    }
+    return ordinal(ordinalStart(row) + index);
+  }
+
+  /**
+   * The pre-release qualifier of a version.
+   *
+   * @param row The row of the version
+   * @return The qualifier; or null, if the version is a release
+   * @throws IndexOutOfBoundsException when row is not within the table
+   */
+  @Nullable
+  public String getPreRelease(int row) {
+    checkRow(row);
+    return string(buffer.getInt(preReleases + Integer.BYTES * row));
+  }
+
+  /**
+   * The metadata of a version.
+   *
+   * @param row The row of the version
+   * @return The metadata; or null, if the version has no metadata
+   * @throws IndexOutOfBoundsException when row is not within the table
+   */
+  @Nullable
+  public String getMetadata(int row) {
+    checkRow(row);
+    return string(buffer.getInt(metadata + Integer.BYTES * row));
+  }
+
+  /**
+   * The text of a version, without any line terminator it was added with.
+   *
+   * @param row The row of the version
+   * @return The text
+   * @throws IndexOutOfBoundsException when row is not within the table
+   */
+  public String getVersion(int row) {
+    checkRow(row);
+    StringBuilder sb = new StringBuilder();
+    for (int o = ordinalStart(row), end = ordinalStart(row + 1); o < end; ++o) {
+      if (sb.length() > 0) {
+        sb.append('.');
+      }
+      sb.append(ordinal(o));
+    }
+    String preRelease = getPreRelease(row);
+    if (preRelease != null) {
+      sb.append('-').append(preRelease);
+    }
+    String metadataText = getMetadata(row);
+    if (metadataText != null) {
+      sb.append('+').append(metadataText);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Create the SemVer of a version.
+   *
+   * @param row The row of the version
+   * @return The version
+   * @throws IndexOutOfBoundsException when row is not within the table
+   */
+  public SemVer get(int row) {
+    return SemVer.valueOf(getVersion(row));
+  }
+
+  /**
+   * Does a version support the expected version, as {@link SemVer#isSupported(SemVer)}?
+   *
+   * @param row The row of the version
+   * @param expected The desired version
+   * @return true, if the version supports the expected version
+   * @throws IndexOutOfBoundsException when row is not within the table
+   */
+  public boolean isSupported(int row, @NonNull SemVer expected) {
+    checkRow(row);
+    return supports(row, expected);
+  }
+
+  /**
+   * Find the versions which support the expected version, as {@link SemVer#isSupported(SemVer)}.
+   *
+   * @param expected The desired version
+   * @return The rows of the supporting versions, in row order
+   */
+  public int[] filterSupported(@NonNull SemVer expected) {
+    int[] rows = new int[16];
+    int found = 0;
+    for (int row = 0; row < count; ++row) {
+      if (supports(row, expected)) {
+        if (found == rows.length) {
+          rows = Arrays.copyOf(rows, found * 2);
+        }
+        rows[found++] = row;
+      }
+    }
+    return Arrays.copyOf(rows, found);
+  }
+
+  /**
+   * Compare the precedence of two versions, as {@link SemVer#compareTo(SemVer)}. Metadata is
+   * ignored.
+   *
+   * @param left The row of the first version
+   * @param right The row of the second version
+   * @return 0, if of equal precedence; &gt;0, if left is later; &lt;0, if left is earlier
+   * @throws IndexOutOfBoundsException when left or right are not within the table
+   */
+  public int compare(int left, int right) {
+    checkRow(left);
+    checkRow(right);
+    return precedence(left, right);
+  }
+
+  /** The rows of all versions, in precedence order; rows of equal precedence are in row order */
+  public int[] sortedRows() {
+    int[] rows = new int[count];
+    for (int row = 0; row < count; ++row) {
+      rows[row] = row;
+    }
+    return sort(rows);
+  }
+
+  /**
+   * Sort rows in precedence order. The sort is stable, so rows of equal precedence keep their
+   * order.
+   *
+   * @param rows The rows, which are sorted in place
+   * @return rows
+   * @throws IndexOutOfBoundsException when a row is not within the table
+   */
+  public int[] sort(@NonNull int[] rows) {
+    long[] keys = new long[rows.length];
+    for (int i = 0; i < rows.length; ++i) {
+      checkRow(rows[i]);
+      keys[i] = sortKey(rows[i]);
+    }
+    mergeSort(rows.clone(), keys.clone(), rows, keys, 0, rows.length);
+    return rows;
+  }
+
+  private void checkRow(int row) {
+    if (row < 0 || row >= count) {
+      throw new IndexOutOfBoundsException(Integer.toString(row));
+    }
+  }
+
+  private int ordinalStart(int row) {
+    return buffer.getInt(ordinalStarts + Integer.BYTES * row);
+  }
+
+  private int ordinal(int index) {
+    return buffer.getInt(ordinals + Integer.BYTES * index);
+  }
+
+  // the absolute index of a string in the arena; or ABSENT
+  private int preRelease(int row) {
+    int offset = buffer.getInt(preReleases + Integer.BYTES * row);
+    return offset == ABSENT ? ABSENT : arena + offset;
+  }
+
+  @Nullable
+  private String string(int offset) {
+    if (offset == ABSENT) {
+      return null;
+    }
+    int start = arena + offset + Integer.BYTES;
+    return VersionText.substring(buffer, start, start + buffer.getInt(arena + offset));
+  }
+
+  // as SemVer.isSupported
+  private boolean supports(int row, SemVer expected) {
+    int start = ordinalStart(row);
+    int ordinalCount = ordinalStart(row + 1) - start;
+    int[] expectedOrdinals = expected.getOrdinals();
+    if (ordinal(start) != expectedOrdinals[0]) {
+      return false;
+    }
+    for (int i = 1; i < ordinalCount; ++i) {
+      if (i == expectedOrdinals.length) {
+        return true;
+      }
+      int diff = ordinal(start + i) - expectedOrdinals[i];
+      if (diff != 0) {
+        return diff > 0;
+      }
+    }
+    if (ordinalCount < expectedOrdinals.length) {
+      return false;
+    }
+
+    int preRelease = preRelease(row);
+    PreRelease expectedPreRelease = expected.getPreReleaseIdentifiers();
+    if (preRelease == ABSENT || expectedPreRelease == null) {
+      return preRelease == ABSENT;
+    }
+    int text = preRelease + Integer.BYTES;
+    return VersionText.comparePreRelease(
+            buffer, text, text + buffer.getInt(preRelease), expectedPreRelease)
+        >= 0;
+  }
+
+  // as SemVer.compareTo
+  private int precedence(int left, int right) {
+    int l = ordinalStart(left);
+    int leftCount = ordinalStart(left + 1) - l;
+    int r = ordinalStart(right);
+    int rightCount = ordinalStart(right + 1) - r;
+    int common = Math.min(leftCount, rightCount);
+    for (int i = 0; i < common; ++i) {
+      int cmp = Integer.compare(ordinal(l + i), ordinal(r + i));
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    if (leftCount != rightCount) {
+      return leftCount - rightCount;
+    }
+
+    // a release is later than any of its pre-releases
+    int leftPreRelease = preRelease(left);
+    int rightPreRelease = preRelease(right);
+    if (leftPreRelease == rightPreRelease) {
+      // both releases, or the same pre-release in the arena
+      return 0;
+    }
+    if (leftPreRelease == ABSENT || rightPreRelease == ABSENT) {
+      return leftPreRelease == ABSENT ? 1 : -1;
+    }
+    int leftText = leftPreRelease + Integer.BYTES;
+    int rightText = rightPreRelease + Integer.BYTES;
+    return VersionText.comparePreRelease(
+        buffer,
+        leftText,
+        leftText + buffer.getInt(leftPreRelease),
+        buffer,
+        rightText,
+        rightText + buffer.getInt(rightPreRelease));
+  }
+
+  // the packed major, minor and patch, as in SemVer; or NO_KEY, if an ordinal does not fit
+  private long sortKey(int row) {
+    int start = ordinalStart(row);
+    int ordinalCount = ordinalStart(row + 1) - start;
+    long key = 0;
+    for (int i = 0; i < 3; ++i) {
+      int field = i == 0 ? ordinal(start) : i < ordinalCount ? ordinal(start + i) + 1 : 0;
+      if (field >= KEY_LIMIT || field < 0) {
+        return NO_KEY;
+      }
+      key = (key << KEY_BITS) | field;
+    }
+    return key;
+  }
+
+  private int compare(int leftRow, long leftKey, int rightRow, long rightKey) {
+    if (leftKey != NO_KEY && rightKey != NO_KEY && leftKey != rightKey) {
+      return Long.compare(leftKey, rightKey);
+    }
+    return precedence(leftRow, rightRow);
+  }
+
+  // sort from[start, end) into to[start, end), with the keys moving with the rows
+  private void mergeSort(
+      int[] fromRows, long[] fromKeys, int[] toRows, long[] toKeys, int start, int end) {
+    if (end - start < INSERTION_SORT_THRESHOLD) {
+      for (int i = start + 1; i < end; ++i) {
+        int row = toRows[i];
+        long key = toKeys[i];
+        int j = i;
+        for (; j > start && compare(toRows[j - 1], toKeys[j - 1], row, key) > 0; --j) {
+          toRows[j] = toRows[j - 1];
+          toKeys[j] = toKeys[j - 1];
+        }
+        toRows[j] = row;
+        toKeys[j] = key;
+      }
+      return;
+    }
+    int middle = (start + end) >>> 1;
+    // the halves are sorted into the source arrays, then merged into the destination arrays
+    mergeSort(toRows, toKeys, fromRows, fromKeys, start, middle);
+    mergeSort(toRows, toKeys, fromRows, fromKeys, middle, end);
+    int l = start;
+    int r = middle;
+    for (int i = start; i < end; ++i) {
+      if (r == end
+          || l < middle && compare(fromRows[l], fromKeys[l], fromRows[r], fromKeys[r]) <= 0) {
+        toRows[i] = fromRows[l];
+        toKeys[i] = fromKeys[l++];
+      } else {
+        toRows[i] = fromRows[r];
+        toKeys[i] = fromKeys[r++];
+      }
+    }
+  }
+
+  /**
+   * Collects versions for a VersionTable in primitive columns on the heap. Each distinct
+   * pre-release and metadata is kept once. A builder may not be used after build is called.
+   */
+  public static final class Builder {
+    private int[] ordinalStarts = new int[17];
+    private int[] ordinals = new int[48];
+    private int[] preReleases = new int[16];
+    private int[] metadata = new int[16];
+    private byte[] arena = new byte[256];
+    private int count;
+    private int ordinalCount;
+    private int arenaLength;
+    /** The arena offset of each distinct string */
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    private Builder() {}
+
+    /**
+     * Add a version. The text is parsed into the columns without creating a SemVer.
+     *
+     * @param version The version
+     * @return This builder
+     * @throws IllegalArgumentException when version is not a semantic version
+     */
+    public Builder add(@NonNull CharSequence version) {
+      int end = version.length();
+      if (!VersionText.isValid(version, 0, end)) {
+        throw new IllegalArgumentException(version + " is not a proper semantic version");
+      }
+      end = VersionText.contentEnd(version, 0, end);
+      int i = 0;
+      while (true) {
+        int value = 0;
+        for (char c; i < end && (c = version.charAt(i)) >= '0' && c <= '9'; ++i) {
+          value = value * 10 + c - '0';
+        }
+        addOrdinal(value);
+        if (i == end || version.charAt(i) != '.') {
+          break;
+        }
+        ++i;
+      }
+      String preRelease = null;
+      if (i < end && version.charAt(i) == '-') {
+        int preReleaseEnd = VersionText.identifiersEnd(version, i + 1, end);
+        preRelease = VersionText.substring(version, i + 1, preReleaseEnd);
+        i = preReleaseEnd;
+      }
+      String metadataText = i < end ? VersionText.substring(version, i + 1, end) : null;
+      return addRow(preRelease, metadataText);
+    }
+
+    /**
+     * Add a version.
+     *
+     * @param version The version
+     * @return This builder
+     */
+    public Builder add(@NonNull SemVer version) {
+      for (int ordinal : version.getOrdinals()) {
+        addOrdinal(ordinal);
+      }
+      return addRow(version.getPreRelease(), version.getMetadata());
+    }
+
+    /**
+     * Add versions.
+     *
+     * @param versions The versions
+     * @return This builder
+     */
+    public Builder addAll(@NonNull Iterable<SemVer> versions) {
+      versions.forEach(this::add);
+      return this;
+    }
+
+    /**
+     * Create a table in a direct buffer.
+     *
+     * @return The table
+     * @throws IllegalStateException when the table would exceed 2GB
+     */
+    public VersionTable build() {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(size());
+      write(buffer);
+      return new VersionTable(buffer);
+    }
+
+    /**
+     * Write a table to a file, replacing any existing file, and map the file. The table can later
+     * be reopened with {@link VersionTable#open(Path)}.
+     *
+     * @param file The file
+     * @return The table
+     * @throws IOException when the file cannot be written
+     * @throws IllegalStateException when the table would exceed 2GB
+     */
+    public VersionTable build(@NonNull Path file) throws IOException {
+      int size = size();
+      try (FileChannel channel =
+          FileChannel.open(
+              file,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING,
+              StandardOpenOption.READ,
+              StandardOpenOption.WRITE)) {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        write(buffer);
+        buffer.force();
+        return new VersionTable(buffer.asReadOnlyBuffer());
+      }
+    }
+
+    private int size() {
+      long size = VersionTable.size(count, ordinalCount, arenaLength);
+      if (size > Integer.MAX_VALUE) {
+        throw new IllegalStateException("version table of " + size + " bytes exceeds 2GB");
+      }
+      return (int) size;
+    }
+
+    private void write(ByteBuffer buffer) {
+      buffer.put(MAGIC).put((byte) FORMAT);
+      buffer.putInt(count).putInt(ordinalCount).putInt(arenaLength);
+      buffer.asIntBuffer().put(ordinalStarts, 0, count + 1);
+      buffer.position(buffer.position() + Integer.BYTES * (count + 1));
+      buffer.asIntBuffer().put(ordinals, 0, ordinalCount);
+      buffer.position(buffer.position() + Integer.BYTES * ordinalCount);
+      buffer.asIntBuffer().put(preReleases, 0, count).put(metadata, 0, count);
+      buffer.position(buffer.position() + Integer.BYTES * 2 * count);
+      buffer.put(arena, 0, arenaLength);
+      buffer.flip();
+    }
+
+    private void addOrdinal(int ordinal) {
+      if (ordinalCount == ordinals.length) {
+        ordinals = Arrays.copyOf(ordinals, ordinalCount * 2);
+      }
+      ordinals[ordinalCount++] = ordinal;
+    }
+
+    private Builder addRow(@Nullable String preRelease, @Nullable String metadataText) {
+      if (count == preReleases.length) {
+        preReleases = Arrays.copyOf(preReleases, count * 2);
+        metadata = Arrays.copyOf(metadata, count * 2);
+        ordinalStarts = Arrays.copyOf(ordinalStarts, count * 2 + 1);
+      }
+      preReleases[count] = intern(preRelease);
+      metadata[count] = intern(metadataText);
+      ordinalStarts[++count] = ordinalCount;
+      return this;
+    }
+
+    // the arena offset of a string, adding it if not yet present
+    private int intern(@Nullable String text) {
+      if (text == null) {
+        return ABSENT;
+      }
+      Integer present = strings.get(text);
+      if (present != null) {
+        return present;
+      }
+      byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+      int length = Integer.BYTES + bytes.length;
+      if (arenaLength + length > arena.length) {
+        arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaLength + length));
+      }
+      ByteBuffer.wrap(arena, arenaLength, Integer.BYTES).putInt(bytes.length);
+      System.arraycopy(bytes, 0, arena, arenaLength + Integer.BYTES, bytes.length);
+      int offset = arenaLength;
+      strings.put(text, offset);
+      arenaLength += length;
+      return offset;
+    }
+  }
+}
@@ -0,0 +1,345 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Scans version text held in a String, another CharSequence, an ASCII byte[], or an ASCII
+ * ByteBuffer. The text is passed as an Object, rather than wrapped, so that validation and checks
+ * allocate nothing. ByteBuffer indices are absolute, so the buffer's position is not changed.
+ */
+final class VersionText {
+
+  private VersionText() {}
+
+  static char charAt(Object text, int index) {
+    if (text instanceof String) {
+      return ((String) text).charAt(index);
+    }
+    if (text instanceof byte[]) {
+      return (char) (((byte[]) text)[index] & 0xFF);
+    }
+    if (text instanceof ByteBuffer) {
+      return (char) (((ByteBuffer) text).get(index) & 0xFF);
+    }
+    return ((CharSequence) text).charAt(index);
+  }
+
+  static String substring(Object text, int start, int end) {
+    if (text instanceof String) {
+      return ((String) text).substring(start, end);
+    }
+    if (text instanceof byte[]) {
+      return new String((byte[]) text, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+    if (text instanceof ByteBuffer) {
+      char[] chars = new char[end - start];
+      for (int i = start; i < end; ++i) {
+        chars[i - start] = charAt(text, i);
+      }
+      return new String(chars);
+    }
+    return ((CharSequence) text).subSequence(start, end).toString();
+  }
+
+  /**
+   * Check that a slice lies within text of a size.
+   *
+   * @throws IndexOutOfBoundsException when the slice is not within the text
+   */
+  static void checkSlice(int offset, int length, int size) {
+    if (offset < 0 || length < 0 || offset > size - length) {
+      throw new IndexOutOfBoundsException(
+          "offset " + offset + ", length " + length + ", size " + size);
+    }
+  }
+
+  /*
+   * Like the regular expression $, allow a single trailing line terminator
+   * return the end of the text without the line terminator
+   */
+  static int contentEnd(Object text, int start, int end) {
+    if (end == start) {
+      return end;
+    }
+    switch (charAt(text, end - 1)) {
+      case '\n':
+        return end - 1 > start && charAt(text, end - 2) == '\r' ? end - 2 : end - 1;
+      case '\r':
+      case '\u0085':
+      case '\u2028':
+      case '\u2029':
+        return end - 1;
+      default:
+        return end;
+    }
+  }
+
+  /*
+   * Scan the characters allowed in preRelease and metadata: [0-9A-Za-z-\.]
+   * return the index of the first character not allowed
+   */
+  static int identifiersEnd(Object text, int i, int end) {
+    for (; i < end; ++i) {
+      if (!isIdentifierChar(charAt(text, i))) {
+        break;
+      }
+    }
+    return i;
+  }
+
+  private static boolean isIdentifierChar(char c) {
+    return (c >= '0' && c <= '9')
+        || (c >= 'A' && c <= 'Z')
+        || (c >= 'a' && c <= 'z')
+        || c == '-'
+        || c == '.';
+  }
+
+  /** Is the text a semantic version, as accepted by SemVer.valueOf? */
+  static boolean isValid(Object text, int start, int end) {
+    int contentEnd = contentEnd(text, start, end);
+    int i = ordinalsEnd(text, start, contentEnd);
+    if (i < 0) {
+      return false;
+    }
+    if (i < contentEnd && charAt(text, i) == '-') {
+      i = identifiersEnd(text, i + 1, contentEnd);
+    }
+    if (i < contentEnd && charAt(text, i) == '+') {
+      i = identifiersEnd(text, i + 1, contentEnd);
+    }
+    return i == contentEnd;
+  }
+
+  // return the end of valid ordinals; or -1, if the ordinals are not valid
+  private static int ordinalsEnd(Object text, int start, int end) {
+    int value = -1;
+    for (int i = start; i <= end; ++i) {
+      char c = i < end ? charAt(text, i) : 0;
+      if (c >= '0' && c <= '9') {
+        int digit = c - '0';
+        if (value == 0 || value > (Integer.MAX_VALUE - digit) / 10) {
+          // leading zero or overflow
+          return -1;
+        }
+        value = value < 0 ? digit : value * 10 + digit;
+        continue;
+      }
+      if (value < 0) {
+        // empty ordinal
+        return -1;
+      }
+      if (c != '.') {
+        return i;
+      }
+      value = -1;
+    }
+    return end;
+  }
+
+  /**
+   * Does the text, as a version, support the expected version? This follows {@link
+   * SemVer#isSupported(SemVer)} without creating a SemVer.
+   *
+   * @return false, if the text is not a semantic version or does not support expected
+   */
+  static boolean isSupported(Object text, int start, int end, SemVer expected) {
+    if (!isValid(text, start, end)) {
+      return false;
+    }
+    int contentEnd = contentEnd(text, start, end);
+    int[] expectedOrdinals = expected.getOrdinals();
+    int i = start;
+    int o = 0;
+    while (true) {
+      int value = 0;
+      for (char c; i < contentEnd && (c = charAt(text, i)) >= '0' && c <= '9'; ++i) {
+        value = value * 10 + c - '0';
+      }
+      if (o == 0) {
+        if (value != expectedOrdinals[0]) {
+          return false;
+        }
+      } else {
+        if (o == expectedOrdinals.length) {
+          return true;
+        }
+        if (value != expectedOrdinals[o]) {
+          return value > expectedOrdinals[o];
+        }
+      }
+      ++o;
+      if (i == contentEnd || charAt(text, i) != '.') {
+        break;
+      }
+      ++i;
+    }
+    if (o < expectedOrdinals.length) {
+      return false;
+    }
+
+    boolean preRelease = i < contentEnd && charAt(text, i) == '-';
+    PreRelease expectedPreRelease = expected.getPreReleaseIdentifiers();
+    if (!preRelease || expectedPreRelease == null) {
+      return !preRelease;
+    }
+    int preReleaseEnd = identifiersEnd(text, i + 1, contentEnd);
+    return comparePreRelease(text, i + 1, preReleaseEnd, expectedPreRelease) >= 0;
+  }
+
+  /** Compare a pre-release qualifier in text as {@link PreRelease#compareTo} does. */
+  static int comparePreRelease(Object text, int start, int end, PreRelease expected) {
+    int count = 0;
+    for (int i = start; i < end; ) {
+      int next = i;
+      while (next < end && charAt(text, next) != '.') {
+        ++next;
+      }
+      if (next > i) {
+        if (count == expected.size()) {
+          return 1;
+        }
+        int cmp = compareIdentifier(text, i, next, expected, count++);
+        if (cmp != 0) {
+          return cmp;
+        }
+      }
+      i = next + 1;
+    }
+    return count - expected.size();
+  }
+
+  /** Compare two pre-release qualifiers in text as {@link PreRelease#compareTo} does. */
+  static int comparePreRelease(
+      Object left, int leftStart, int leftEnd, Object right, int rightStart, int rightEnd) {
+    int l = leftStart;
+    int r = rightStart;
+    while (true) {
+      // empty identifiers are ignored
+      while (l < leftEnd && charAt(left, l) == '.') {
+        ++l;
+      }
+      while (r < rightEnd && charAt(right, r) == '.') {
+        ++r;
+      }
+      if (l == leftEnd || r == rightEnd) {
+        return (l == leftEnd ? 0 : 1) - (r == rightEnd ? 0 : 1);
+      }
+      int leftNext = l;
+      while (leftNext < leftEnd && charAt(left, leftNext) != '.') {
+        ++leftNext;
+      }
+      int rightNext = r;
+      while (rightNext < rightEnd && charAt(right, rightNext) != '.') {
+        ++rightNext;
+      }
+      int cmp = compareIdentifiers(left, l, leftNext, right, r, rightNext);
+      if (cmp != 0) {
+        return cmp;
+      }
+      l = leftNext;
+      r = rightNext;
+    }
+  }
+
+  private static int compareIdentifiers(
+      Object left, int leftStart, int leftEnd, Object right, int rightStart, int rightEnd) {
+    boolean leftNumeric = isNumeric(left, leftStart, leftEnd);
+    if (leftNumeric != isNumeric(right, rightStart, rightEnd)) {
+      // Numbers are ordered earlier than alpha fields
+      return leftNumeric ? -1 : 1;
+    }
+    if (leftNumeric) {
+      // without leading zeros, a longer number is larger
+      while (leftStart < leftEnd && charAt(left, leftStart) == '0') {
+        ++leftStart;
+      }
+      while (rightStart < rightEnd && charAt(right, rightStart) == '0') {
+        ++rightStart;
+      }
+      if (leftEnd - leftStart != rightEnd - rightStart) {
+        return (leftEnd - leftStart) - (rightEnd - rightStart);
+      }
+    }
+    int common = Math.min(leftEnd - leftStart, rightEnd - rightStart);
+    for (int i = 0; i < common; ++i) {
+      char l = charAt(left, leftStart + i);
+      char r = charAt(right, rightStart + i);
+      if (l != r) {
+        return l - r;
+      }
+    }
+    return (leftEnd - leftStart) - (rightEnd - rightStart);
+  }
+
+  private static boolean isNumeric(Object text, int start, int end) {
+    for (int i = start; i < end; ++i) {
+      char c = charAt(text, i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int compareIdentifier(
+      Object text, int start, int end, PreRelease expected, int index) {
+    long right = expected.getNumber(index);
+    int significant = -1;
+    long value = 0;
+    for (int i = start; i < end; ++i) {
+      char c = charAt(text, i);
+      if (c < '0' || c > '9') {
+        return right == PreRelease.ALPHANUMERIC
+            ? compareText(text, start, end, expected, index)
+            : 1;
+      }
+      if (significant < 0 && c != '0') {
+        significant = i;
+      }
+      if (significant >= 0 && i - significant < PreRelease.MAX_LONG_DIGITS) {
+        value = value * 10 + c - '0';
+      }
+    }
+    if (right == PreRelease.ALPHANUMERIC) {
+      // Numbers are ordered earlier than alpha fields
+      return -1;
+    }
+    boolean large = significant >= 0 && end - significant > PreRelease.MAX_LONG_DIGITS;
+    if (!large) {
+      return right == PreRelease.LARGE_NUMERIC ? -1 : Long.compare(value, right);
+    }
+    if (right != PreRelease.LARGE_NUMERIC) {
+      return 1;
+    }
+    String digits = expected.getIdentifier(index);
+    if (end - significant != digits.length()) {
+      return end - significant - digits.length();
+    }
+    return compareText(text, significant, end, expected, index);
+  }
+
+  // as String.compareTo
+  private static int compareText(Object text, int start, int end, PreRelease expected, int index) {
+    String identifier = expected.getIdentifier(index);
+    int length = end - start;
+    int common = Math.min(length, identifier.length());
+    for (int i = 0; i < common; ++i) {
+      char c = charAt(text, start + i);
+      if (c != identifier.charAt(i)) {
+        return c - identifier.charAt(i);
+      }
+    }
+    return length - identifier.length();
+  }
+}
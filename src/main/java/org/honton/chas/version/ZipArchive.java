@@ -0,0 +1,341 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Read selected entries of a zip archive using positioned reads of the central directory. Only the
+ * central directory and the selected entries are read; no other entry is inflated. The archive may
+ * be a region of a larger file, such as a jar stored inside another jar.
+ */
+final class ZipArchive {
+
+  private static final int EOCD_SIG = 0x06054b50;
+  private static final int EOCD_SIZE = 22;
+  private static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+  private static final int ZIP64_LOCATOR_SIZE = 20;
+  private static final int ZIP64_EOCD_SIG = 0x06064b50;
+  private static final int ZIP64_EOCD_SIZE = 56;
+  private static final int CEN_SIG = 0x02014b50;
+  private static final int CEN_SIZE = 46;
+  private static final int LOC_SIG = 0x04034b50;
+  private static final int LOC_SIZE = 30;
+  private static final int MAX_COMMENT = 0xFFFF;
+  private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+  static final int STORED = 0;
+  static final int DEFLATED = 8;
+
+  private static final byte[] META_INF = bytes("META-INF/");
+  private static final byte[] POM_PROPERTIES = bytes("/pom.properties");
+  private static final byte[] MANIFEST = bytes("META-INF/MANIFEST.MF");
+
+  private final FileChannel channel;
+  /** The position in channel of the start of the archive */
+  private final long base;
+  /** The central directory */
+  private final ByteBuffer cen;
+  /** The number of bytes read from the channel */
+  private long bytesRead;
+
+  private ZipArchive(FileChannel channel, long base, ByteBuffer cen, long bytesRead) {
+    this.channel = channel;
+    this.base = base;
+    this.cen = cen;
+    this.bytesRead = bytesRead;
+  }
+
+  private static byte[] bytes(String ascii) {
+    return ascii.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Read the central directory of the archive which ends at position start + length of channel.
+   *
+   * @param channel The channel holding the archive
+   * @param start The position in channel of the start of the archive
+   * @param length The length of the archive
+   * @return The archive
+   * @throws ZipException when the region is not a zip archive, or uses unsupported features
+   */
+  static ZipArchive read(FileChannel channel, long start, long length) throws IOException {
+    int tailLength = (int) Math.min(length, EOCD_SIZE + MAX_COMMENT);
+    ByteBuffer tail = readFully(channel, start + length - tailLength, tailLength);
+
+    int eocd = findEndOfCentralDirectory(tail);
+    long cenSize = tail.getInt(eocd + 12) & ZIP64_MAGIC;
+    long cenOffset = tail.getInt(eocd + 16) & ZIP64_MAGIC;
+    long cenEnd = start + length - tailLength + eocd;
+    long bytesRead = tailLength;
+
+    if (cenSize == ZIP64_MAGIC || cenOffset == ZIP64_MAGIC) {
+      int locator = eocd - ZIP64_LOCATOR_SIZE;
+      if (locator < 0 || tail.getInt(locator) != ZIP64_LOCATOR_SIG) {
+        throw new ZipException("missing zip64 end of central directory locator");
+      }
+      long zip64Eocd = start + tail.getLong(locator + 8);
+      ByteBuffer zip64 = readFully(channel, zip64Eocd, ZIP64_EOCD_SIZE);
+      bytesRead += ZIP64_EOCD_SIZE;
+      if (zip64.getInt(0) != ZIP64_EOCD_SIG) {
+        throw new ZipException("invalid zip64 end of central directory");
+      }
+      cenSize = zip64.getLong(40);
+      cenOffset = zip64.getLong(48);
+      cenEnd = zip64Eocd;
+    }
+
+    long cenStart = cenEnd - cenSize;
+    if (cenSize > Integer.MAX_VALUE || cenStart < start || cenOffset > cenStart - start) {
+      throw new ZipException("invalid central directory");
+    }
+    // any bytes prepended to the archive, such as a launch script, shift all of the offsets
+    long base = cenStart - cenOffset;
+    ByteBuffer cen = readFully(channel, cenStart, (int) cenSize);
+    return new ZipArchive(channel, base, cen, bytesRead + cenSize);
+  }
+
+  private static int findEndOfCentralDirectory(ByteBuffer tail) throws ZipException {
+    for (int eocd = tail.limit() - EOCD_SIZE; eocd >= 0; --eocd) {
+      if (tail.getInt(eocd) == EOCD_SIG
+          && eocd + EOCD_SIZE + (tail.getShort(eocd + 20) & 0xFFFF) == tail.limit()) {
+        return eocd;
+      }
+    }
+    throw new ZipException("missing end of central directory");
+  }
+
+  private static ByteBuffer readFully(FileChannel channel, long position, int length)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException();
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  /** The number of bytes read from the channel for this archive */
+  long getBytesRead() {
+    return bytesRead;
+  }
+
+  /** The location of an entry's data */
+  static final class Entry {
+    private final int method;
+    private final long compressedSize;
+    private final long size;
+    private final long localHeaderOffset;
+
+    private Entry(int method, long compressedSize, long size, long localHeaderOffset) {
+      this.method = method;
+      this.compressedSize = compressedSize;
+      this.size = size;
+      this.localHeaderOffset = localHeaderOffset;
+    }
+
+    /** The compression method; STORED or DEFLATED */
+    int getMethod() {
+      return method;
+    }
+
+    /** The size of the entry's data */
+    long getSize() {
+      return size;
+    }
+  }
+
+  /** The entries of interest when extracting the version of a jar */
+  static final class VersionEntries {
+    /** The first META-INF/.../pom.properties, or null */
+    Entry pomProperties;
+    /** The META-INF/MANIFEST.MF, or null */
+    Entry manifest;
+    /** The number of central directory entries examined */
+    int entriesVisited;
+  }
+
+  /**
+   * Walk the central directory to find the first pom.properties and the manifest. The walk stops at
+   * the first pom.properties.
+   *
+   * @return The entries found
+   * @throws ZipException when the central directory is malformed
+   */
+  VersionEntries findVersionEntries() throws ZipException {
+    VersionEntries found = new VersionEntries();
+    for (int pos = 0; pos + CEN_SIZE <= cen.limit(); ) {
+      if (cen.getInt(pos) != CEN_SIG) {
+        throw new ZipException("invalid central directory header");
+      }
+      ++found.entriesVisited;
+      int nameLength = cen.getShort(pos + 28) & 0xFFFF;
+      int extraLength = cen.getShort(pos + 30) & 0xFFFF;
+      int commentLength = cen.getShort(pos + 32) & 0xFFFF;
+      int name = pos + CEN_SIZE;
+      if (name + nameLength > cen.limit()) {
+        throw new ZipException("invalid central directory header");
+      }
+      if (startsWith(name, nameLength, META_INF) && endsWith(name, nameLength, POM_PROPERTIES)) {
+        found.pomProperties = entry(pos);
+        break;
+      }
+      if (found.manifest == null && equalsIgnoreCase(name, nameLength, MANIFEST)) {
+        found.manifest = entry(pos);
+      }
+      pos = name + nameLength + extraLength + commentLength;
+    }
+    return found;
+  }
+
+  /**
+   * Walk the central directory to find an entry.
+   *
+   * @param name The full name of the entry
+   * @return The entry; or null, if not found
+   * @throws ZipException when the central directory is malformed
+   */
+  Entry findEntry(String name) throws ZipException {
+    byte[] target = name.getBytes(StandardCharsets.UTF_8);
+    for (int pos = 0; pos + CEN_SIZE <= cen.limit(); ) {
+      if (cen.getInt(pos) != CEN_SIG) {
+        throw new ZipException("invalid central directory header");
+      }
+      int nameLength = cen.getShort(pos + 28) & 0xFFFF;
+      if (pos + CEN_SIZE + nameLength > cen.limit()) {
+        throw new ZipException("invalid central directory header");
+      }
+      if (nameLength == target.length && regionMatches(pos + CEN_SIZE, target, false)) {
+        return entry(pos);
+      }
+      pos +=
+          CEN_SIZE
+              + nameLength
+              + (cen.getShort(pos + 30) & 0xFFFF)
+              + (cen.getShort(pos + 32) & 0xFFFF);
+    }
+    return null;
+  }
+
+  private Entry entry(int pos) throws ZipException {
+    long compressedSize = cen.getInt(pos + 20) & ZIP64_MAGIC;
+    long size = cen.getInt(pos + 24) & ZIP64_MAGIC;
+    long localHeaderOffset = cen.getInt(pos + 42) & ZIP64_MAGIC;
+    if (compressedSize == ZIP64_MAGIC || size == ZIP64_MAGIC || localHeaderOffset == ZIP64_MAGIC) {
+      throw new ZipException("zip64 entries are not supported");
+    }
+    return new Entry(cen.getShort(pos + 10) & 0xFFFF, compressedSize, size, localHeaderOffset);
+  }
+
+  private boolean startsWith(int name, int nameLength, byte[] prefix) {
+    return nameLength >= prefix.length && regionMatches(name, prefix, false);
+  }
+
+  private boolean endsWith(int name, int nameLength, byte[] suffix) {
+    return nameLength >= suffix.length
+        && regionMatches(name + nameLength - suffix.length, suffix, false);
+  }
+
+  private boolean equalsIgnoreCase(int name, int nameLength, byte[] other) {
+    return nameLength == other.length && regionMatches(name, other, true);
+  }
+
+  private boolean regionMatches(int offset, byte[] ascii, boolean ignoreCase) {
+    for (int i = 0; i < ascii.length; ++i) {
+      byte b = cen.get(offset + i);
+      if (b != ascii[i] && !(ignoreCase && toUpper(b) == toUpper(ascii[i]))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static byte toUpper(byte b) {
+    return b >= 'a' && b <= 'z' ? (byte) (b - ('a' - 'A')) : b;
+  }
+
+  /**
+   * The position in the channel of the first byte of an entry's data.
+   *
+   * @param entry An entry of this archive
+   * @return The channel position
+   */
+  long dataPosition(Entry entry) throws IOException {
+    long local = base + entry.localHeaderOffset;
+    ByteBuffer header = readFully(channel, local, LOC_SIZE);
+    bytesRead += LOC_SIZE;
+    if (header.getInt(0) != LOC_SIG) {
+      throw new ZipException("invalid local file header");
+    }
+    return local + LOC_SIZE + (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+  }
+
+  /**
+   * Read and, if needed, inflate the contents of an entry.
+   *
+   * @param entry An entry of this archive
+   * @return The uncompressed contents
+   * @throws ZipException when the entry is malformed or uses an unsupported compression method
+   */
+  byte[] readContents(Entry entry) throws IOException {
+    if (entry.size > Integer.MAX_VALUE || entry.compressedSize > Integer.MAX_VALUE - 1) {
+      throw new ZipException("entry too large");
+    }
+    long position = dataPosition(entry);
+    if (entry.method == STORED) {
+      bytesRead += entry.size;
+      return readFully(channel, position, (int) entry.size).array();
+    }
+    if (entry.method != DEFLATED) {
+      throw new ZipException("unsupported compression method " + entry.method);
+    }
+
+    // nowrap inflation requires an extra dummy byte
+    bytesRead += entry.compressedSize;
+    byte[] compressed = new byte[(int) entry.compressedSize + 1];
+    ByteBuffer buffer = ByteBuffer.wrap(compressed, 0, (int) entry.compressedSize);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException();
+      }
+    }
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(compressed);
+      byte[] contents = new byte[(int) entry.size];
+      int inflated = 0;
+      while (inflated < contents.length && !inflater.finished()) {
+        int n = inflater.inflate(contents, inflated, contents.length - inflated);
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new ZipException("truncated deflated entry");
+        }
+        inflated += n;
+      }
+      if (inflated != contents.length) {
+        throw new ZipException("entry size mismatch");
+      }
+      return contents;
+    } catch (DataFormatException e) {
+      throw new ZipException(e.getMessage());
+    } finally {
+      inflater.end();
+    }
+  }
+}
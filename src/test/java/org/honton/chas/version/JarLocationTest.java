@@ -0,0 +1,55 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.io.File;
+import java.net.URI;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JarLocationTest {
+
+  @Test
+  public void fileUri() {
+    JarLocation location = JarLocation.of(URI.create("file:/lib/foo-1.0.jar"));
+    Assert.assertFalse(location.isNested());
+    Assert.assertEquals(new File("/lib/foo-1.0.jar"), location.getFile());
+    Assert.assertEquals("foo-1.0.jar", location.getName());
+  }
+
+  @Test
+  public void jarUri() {
+    JarLocation location =
+        JarLocation.of(URI.create("jar:file:/lib/foo-1.0.jar!/META-INF/MANIFEST.MF"));
+    Assert.assertFalse(location.isNested());
+    Assert.assertEquals("foo-1.0.jar", location.getName());
+  }
+
+  @Test
+  public void nestedUri() {
+    JarLocation location =
+        JarLocation.of(
+            URI.create("jar:file:/app.jar!/BOOT-INF/lib/my%20lib-1.0.jar!/META-INF/MANIFEST.MF"));
+    Assert.assertTrue(location.isNested());
+    Assert.assertEquals(new File("/app.jar"), location.getFile());
+    Assert.assertEquals(
+        Collections.singletonList("BOOT-INF/lib/my lib-1.0.jar"), location.getNestedEntries());
+    Assert.assertEquals("my lib-1.0.jar", location.getName());
+    Assert.assertEquals(
+        new File("/app.jar").getPath() + "!/BOOT-INF/lib/my lib-1.0.jar", location.toString());
+  }
+
+  @Test
+  public void nestedCodeSource() {
+    JarLocation location = JarLocation.of(URI.create("jar:file:/app.jar!/BOOT-INF/lib/foo.jar!/"));
+    Assert.assertEquals("foo.jar", location.getName());
+  }
+}
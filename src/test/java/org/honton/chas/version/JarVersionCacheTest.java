@@ -0,0 +1,130 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JarVersionCacheTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void warmStart() throws IOException {
+    Path cacheFile = folder.getRoot().toPath().resolve("versions.cache");
+    File jar = TestJars.mavenJar(folder.newFile("a.jar"), "g", "a", "1.0", 1, false);
+
+    JarVersionCache cold = JarVersionCache.open(cacheFile);
+    Assert.assertEquals("1.0+g-a", cold.extractVersion(new JarLocation(jar)));
+    Assert.assertEquals(1, cold.getMisses());
+    cold.save();
+
+    JarVersionCache warm = JarVersionCache.open(cacheFile);
+    Assert.assertEquals("1.0+g-a", warm.extractVersion(new JarLocation(jar)));
+    Assert.assertEquals(1, warm.getHits());
+    Assert.assertEquals(0, warm.getMisses());
+  }
+
+  @Test
+  public void invalidateChangedJar() throws IOException {
+    Path cacheFile = folder.getRoot().toPath().resolve("versions.cache");
+    File jar = TestJars.mavenJar(folder.newFile("a.jar"), "g", "a", "1.0", 1, false);
+    JarVersionCache cache = JarVersionCache.open(cacheFile, true);
+    Assert.assertEquals("1.0+g-a", cache.extractVersion(new JarLocation(jar)));
+    cache.save();
+
+    long lastModified = jar.lastModified();
+    TestJars.mavenJar(jar, "g", "a", "2.0", 1, false);
+    Assert.assertTrue(jar.setLastModified(lastModified));
+    JarVersionCache reopened = JarVersionCache.open(cacheFile, true);
+    Assert.assertEquals("2.0+g-a", reopened.extractVersion(new JarLocation(jar)));
+    Assert.assertEquals(1, reopened.getMisses());
+  }
+
+  @Test
+  public void mergeConcurrentWriters() throws IOException {
+    Path cacheFile = folder.getRoot().toPath().resolve("versions.cache");
+    File a = TestJars.mavenJar(folder.newFile("a.jar"), "g", "a", "1.0", 1, false);
+    File b = TestJars.mavenJar(folder.newFile("b.jar"), "g", "b", "2.0", 1, false);
+
+    JarVersionCache first = JarVersionCache.open(cacheFile);
+    JarVersionCache second = JarVersionCache.open(cacheFile);
+    first.extractVersion(new JarLocation(a));
+    second.extractVersion(new JarLocation(b));
+    first.save();
+    second.save();
+
+    JarVersionCache merged = JarVersionCache.open(cacheFile);
+    merged.extractVersion(new JarLocation(a));
+    merged.extractVersion(new JarLocation(b));
+    Assert.assertEquals(2, merged.getHits());
+  }
+
+  @Test
+  public void pruneDeletedJars() throws IOException {
+    Path cacheFile = folder.getRoot().toPath().resolve("versions.cache");
+    File a = TestJars.mavenJar(folder.newFile("a.jar"), "g", "a", "1.0", 1, false);
+    File b = TestJars.mavenJar(folder.newFile("b.jar"), "g", "b", "2.0", 1, false);
+    JarVersionCache first = JarVersionCache.open(cacheFile);
+    first.extractVersion(new JarLocation(a));
+    first.extractVersion(new JarLocation(b));
+    first.save();
+
+    long lastModified = b.lastModified();
+    Assert.assertTrue(b.delete());
+    File c = TestJars.mavenJar(folder.newFile("c.jar"), "g", "c", "3.0", 1, false);
+    JarVersionCache second = JarVersionCache.open(cacheFile);
+    second.extractVersion(new JarLocation(c));
+    second.save();
+
+    // the same jar, restored after the save, is no longer cached
+    TestJars.mavenJar(b, "g", "b", "2.0", 1, false);
+    Assert.assertTrue(b.setLastModified(lastModified));
+    JarVersionCache pruned = JarVersionCache.open(cacheFile);
+    pruned.extractVersion(new JarLocation(a));
+    pruned.extractVersion(new JarLocation(b));
+    Assert.assertEquals(1, pruned.getHits());
+    Assert.assertEquals(1, pruned.getMisses());
+  }
+
+  @Test
+  public void ignoreCorruptCache() throws IOException {
+    Path cacheFile = folder.newFile("versions.cache").toPath();
+    Files.write(cacheFile, new byte[] {1, 2, 3});
+    File jar = TestJars.mavenJar(folder.newFile("a.jar"), "g", "a", "1.0", 1, false);
+    JarVersionCache cache = JarVersionCache.open(cacheFile);
+    Assert.assertEquals("1.0+g-a", cache.extractVersion(new JarLocation(jar)));
+    cache.save();
+    JarVersionCache reopened = JarVersionCache.open(cacheFile);
+    reopened.extractVersion(new JarLocation(jar));
+    Assert.assertEquals(1, reopened.getHits());
+  }
+
+  @Test
+  public void scanWithCache() {
+    Path cacheFile = folder.getRoot().toPath().resolve("versions.cache");
+    ClassLoader classLoader = getClass().getClassLoader();
+    Map<String, String> expected = new JarVersions(classLoader).getDependentJars();
+
+    JarVersionCache cold = JarVersionCache.open(cacheFile);
+    Assert.assertEquals(expected, new JarVersions(classLoader, null, cold).getDependentJars());
+    JarVersionCache warm = JarVersionCache.open(cacheFile);
+    Assert.assertEquals(expected, new JarVersions(classLoader, null, warm).getDependentJars());
+    Assert.assertEquals(0, warm.getMisses());
+    Assert.assertEquals(cold.getMisses(), warm.getHits());
+  }
+}
@@ -0,0 +1,75 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JarVersionIndexTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private ClassLoader withIndex(Map<String, String> versions) throws IOException {
+    File root = folder.newFolder();
+    JarVersionIndex.write(root.toPath().resolve(JarVersionIndex.RESOURCE), versions);
+    return new URLClassLoader(new URL[] {root.toURI().toURL()}, getClass().getClassLoader());
+  }
+
+  @Test
+  public void indexedJarsNotRead() throws IOException {
+    Map<String, String> versions = new HashMap<>();
+    versions.put("slf4j-api-1.7.30.jar", "9.9.9+indexed");
+    versions.put("jsr305-3.0.1.jar", null);
+    ClassLoader classLoader = withIndex(versions);
+
+    Map<String, String> scanned = new JarVersions(classLoader).getDependentJars();
+    Assert.assertEquals("9.9.9+indexed", scanned.get("slf4j-api-1.7.30.jar"));
+    Assert.assertFalse(scanned.containsKey("jsr305-3.0.1.jar"));
+    Assert.assertEquals(
+        "3.0.1+com.google.code.findbugs-annotations", scanned.get("annotations-3.0.1.jar"));
+
+    AtomicInteger extractions = new AtomicInteger();
+    JarVersions lazy =
+        JarVersions.lazy(
+            classLoader,
+            location -> {
+              extractions.incrementAndGet();
+              return VersionExtractor.extractVersion(location);
+            });
+    Assert.assertEquals("9.9.9+indexed", lazy.getVersion("slf4j-api-1.7.30.jar"));
+    Assert.assertEquals(0, extractions.get());
+  }
+
+  @Test
+  public void generate() throws IOException {
+    File jar = TestJars.mavenJar(folder.newFile("a-1.0.jar"), "g", "a", "1.0", 1, false);
+    Path output = folder.getRoot().toPath().resolve("out/" + JarVersionIndex.RESOURCE);
+    JarVersionIndex.main(new String[] {output.toString(), jar.getPath()});
+
+    ClassLoader classLoader =
+        new URLClassLoader(new URL[] {folder.getRoot().toPath().resolve("out").toUri().toURL()});
+    JarVersionIndex index = JarVersionIndex.load(classLoader);
+    Assert.assertEquals(
+        "1.0+g-a",
+        index.wrap(location -> null).apply(new JarLocation(new File("elsewhere/a-1.0.jar"))));
+    Assert.assertEquals(
+        "fallback", index.wrap(location -> "fallback").apply(new JarLocation(new File("b.jar"))));
+  }
+}
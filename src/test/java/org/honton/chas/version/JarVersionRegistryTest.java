@@ -0,0 +1,143 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Enumeration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+
+public class JarVersionRegistryTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private URL[] urls;
+
+  @Before
+  public void createJars() throws IOException {
+    File a = TestJars.mavenJar(folder.newFile("a-1.0.jar"), "g", "a", "1.0", 2, false);
+    File b = TestJars.mavenJar(folder.newFile("b-2.0.jar"), "g", "b", "2.0", 2, false);
+    urls = new URL[] {a.toURI().toURL(), b.toURI().toURL()};
+  }
+
+  private URLClassLoader newClassLoader() {
+    // no parent, so only the test jars are seen
+    return new URLClassLoader(urls, null);
+  }
+
+  @Test
+  public void jarsReadOnceAcrossClassLoaders() throws IOException {
+    JarVersionRegistry registry = new JarVersionRegistry();
+    try (URLClassLoader first = newClassLoader();
+        URLClassLoader second = newClassLoader()) {
+      JarVersions firstVersions = registry.getJarVersions(first);
+      JarVersions secondVersions = registry.getJarVersions(second);
+      Assert.assertEquals("1.0+g-a", firstVersions.getVersion("a-1.0.jar"));
+      Assert.assertEquals(firstVersions.getDependentJars(), secondVersions.getDependentJars());
+      Assert.assertEquals(2, registry.getReads());
+      Assert.assertEquals(2, registry.size());
+
+      Assert.assertSame(firstVersions, registry.getJarVersions(first));
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void classLoadersBuiltConcurrently() throws Exception {
+    JarVersionRegistry registry = new JarVersionRegistry();
+    CountDownLatch scanning = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    try (URLClassLoader blocked =
+            new URLClassLoader(urls, null) {
+              @Override
+              public Enumeration<URL> getResources(String name) throws IOException {
+                if (name.equals("META-INF/MANIFEST.MF")) {
+                  scanning.countDown();
+                  try {
+                    release.await();
+                  } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                  }
+                }
+                return super.getResources(name);
+              }
+            };
+        URLClassLoader other = newClassLoader()) {
+      CompletableFuture<JarVersions> first =
+          CompletableFuture.supplyAsync(() -> registry.getJarVersions(blocked));
+      CompletableFuture<JarVersions> second =
+          CompletableFuture.supplyAsync(() -> registry.getJarVersions(blocked));
+      scanning.await();
+
+      // the blocked scan does not hold up another ClassLoader
+      Assert.assertEquals("2.0+g-b", registry.getJarVersions(other).getVersion("b-2.0.jar"));
+      Assert.assertFalse(first.isDone());
+
+      release.countDown();
+      Assert.assertSame(first.get(), second.get());
+      Assert.assertEquals("1.0+g-a", first.get().getVersion("a-1.0.jar"));
+    }
+  }
+
+  @Test
+  public void sharedViewsReadOnly() {
+    JarVersionRegistry registry = new JarVersionRegistry();
+    ClassLoader classLoader = getClass().getClassLoader();
+    SemVer expected = SemVer.valueOf("1.7.30+org.slf4j-slf4j-api");
+    Assert.assertEquals(
+        expected, registry.getJarVersions(classLoader).removePrincipal(Logger.class));
+    Assert.assertEquals(
+        expected, registry.getJarVersions(classLoader).removePrincipal(Logger.class));
+    Assert.assertEquals(
+        expected.getVersion(),
+        registry.getJarVersions(classLoader).getVersion("slf4j-api-1.7.30.jar"));
+  }
+
+  @Test
+  public void changedJarReread() throws IOException {
+    JarVersionRegistry registry = new JarVersionRegistry();
+    try (URLClassLoader first = newClassLoader()) {
+      registry.getJarVersions(first);
+      File a = new File(folder.getRoot(), "a-1.0.jar");
+      TestJars.mavenJar(a, "g", "a", "1.1", 3, false);
+      Assert.assertTrue(a.setLastModified(a.lastModified() + 2000));
+      try (URLClassLoader second = newClassLoader()) {
+        Assert.assertEquals("1.1+g-a", registry.getJarVersions(second).getVersion("a-1.0.jar"));
+        Assert.assertEquals(3, registry.getReads());
+      }
+    }
+  }
+
+  @Test
+  public void collectedClassLoadersReleased() throws Exception {
+    JarVersionRegistry registry = new JarVersionRegistry();
+    register(registry);
+    Assert.assertEquals(2, registry.size());
+    for (int i = 0; i < 50 && registry.size() > 0; ++i) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(0, registry.size());
+  }
+
+  private void register(JarVersionRegistry registry) throws IOException {
+    try (URLClassLoader classLoader = newClassLoader()) {
+      registry.getJarVersions(classLoader);
+    }
+  }
+}
@@ -0,0 +1,146 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JarVersionWatcherTest {
+
+  private static final long TIMEOUT_MILLIS = 30_000;
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private final Map<String, Integer> reads = Collections.synchronizedMap(new TreeMap<>());
+
+  // the differences accumulated over refreshes, by kind
+  private final Map<String, String> added = new TreeMap<>();
+  private final Map<String, String> changed = new TreeMap<>();
+  private final Map<String, String> removed = new TreeMap<>();
+
+  private JarVersionWatcher newWatcher(File... jars) throws IOException {
+    URL[] urls = new URL[jars.length];
+    for (int i = 0; i < jars.length; ++i) {
+      urls[i] = jars[i].toURI().toURL();
+    }
+    try (URLClassLoader classLoader = new URLClassLoader(urls, null)) {
+      return new JarVersionWatcher(
+          classLoader,
+          jar -> {
+            reads.merge(jar.getName(), 1, Integer::sum);
+            return VersionExtractor.extractVersion(jar);
+          });
+    }
+  }
+
+  private void awaitChanges(JarVersionWatcher watcher, int expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (added.size() + changed.size() + removed.size() < expected
+        && System.currentTimeMillis() < deadline) {
+      JarVersionWatcher.Diff diff = watcher.refresh();
+      added.putAll(diff.getAdded());
+      changed.putAll(diff.getChanged());
+      removed.putAll(diff.getRemoved());
+      Thread.sleep(50);
+    }
+  }
+
+  // replace atomically, so that a partially written jar is never read
+  private void writeJar(File jar, String artifactId, String version) throws IOException {
+    File temp = folder.newFile();
+    TestJars.mavenJar(temp, "g", artifactId, version, 2, false);
+    Files.move(temp.toPath(), jar.toPath(), StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  @Test
+  public void initialSnapshot() throws IOException {
+    File a = TestJars.mavenJar(folder.newFile("a-1.0.jar"), "g", "a", "1.0", 1, false);
+    // a jar without version information
+    File b = TestJars.fatJar(folder.newFile("b.jar"), Collections.emptyMap(), false);
+    try (JarVersionWatcher watcher = newWatcher(a, b)) {
+      Assert.assertEquals(
+          Collections.singletonMap("a-1.0.jar", "1.0+g-a"),
+          watcher.getSnapshot().getDependentJars());
+      Assert.assertTrue(watcher.refresh().isEmpty());
+    }
+  }
+
+  @Test
+  public void snapshotRemovePrincipal() throws IOException {
+    File a = TestJars.mavenJar(folder.newFile("a-1.0.jar"), "g", "a", "1.0", 1, false);
+    try (JarVersionWatcher watcher = newWatcher(a)) {
+      JarVersions snapshot = watcher.getSnapshot();
+      // the principal is not a watched jar, and a shared snapshot is not changed
+      Assert.assertNull(snapshot.removePrincipal(JarVersionWatcherTest.class));
+      Assert.assertEquals(
+          Collections.singletonMap("a-1.0.jar", "1.0+g-a"), snapshot.getDependentJars());
+    }
+  }
+
+  @Test
+  public void onlyChangedJarsRead() throws Exception {
+    File a = TestJars.mavenJar(folder.newFile("a-1.0.jar"), "g", "a", "1.0", 1, false);
+    File b = TestJars.mavenJar(folder.newFile("b.jar"), "g", "b", "1.0", 1, false);
+    File c = TestJars.mavenJar(folder.newFile("c.jar"), "g", "c", "1.0", 1, false);
+    try (JarVersionWatcher watcher = newWatcher(a, b, c)) {
+      JarVersions initial = watcher.getSnapshot();
+      List<JarVersionWatcher.Diff> notified = new CopyOnWriteArrayList<>();
+      watcher.addListener(notified::add);
+
+      writeJar(b, "b", "2.0");
+      Assert.assertTrue(c.delete());
+      writeJar(new File(folder.getRoot(), "d.jar"), "d", "1.0");
+
+      awaitChanges(watcher, 3);
+      Assert.assertEquals(Collections.singletonMap("d.jar", "1.0+g-d"), added);
+      Assert.assertEquals(Collections.singletonMap("b.jar", "2.0+g-b"), changed);
+      Assert.assertEquals(Collections.singletonMap("c.jar", "1.0+g-c"), removed);
+      Assert.assertFalse(notified.isEmpty());
+
+      Map<String, String> expected = new TreeMap<>();
+      expected.put("a-1.0.jar", "1.0+g-a");
+      expected.put("b.jar", "2.0+g-b");
+      expected.put("d.jar", "1.0+g-d");
+      Assert.assertEquals(expected, watcher.getSnapshot().getDependentJars());
+      // the prior snapshot is unchanged
+      Assert.assertEquals("1.0+g-c", initial.getVersion("c.jar"));
+      // the unchanged jar was not read again
+      Assert.assertEquals(Integer.valueOf(1), reads.get("a-1.0.jar"));
+    }
+  }
+
+  @Test
+  public void backgroundRefresh() throws Exception {
+    File a = TestJars.mavenJar(folder.newFile("a.jar"), "g", "a", "1.0", 1, false);
+    try (JarVersionWatcher watcher = newWatcher(a)) {
+      watcher.start();
+      writeJar(a, "a", "1.1");
+      long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+      while (!"1.1+g-a".equals(watcher.getSnapshot().getVersion("a.jar"))
+          && System.currentTimeMillis() < deadline) {
+        Thread.sleep(50);
+      }
+      Assert.assertEquals("1.1+g-a", watcher.getSnapshot().getVersion("a.jar"));
+    }
+  }
+}
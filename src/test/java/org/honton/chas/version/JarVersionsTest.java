@@ -9,13 +9,32 @@
  */
 package org.honton.chas.version;
 
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.slf4j.Logger;
 
 public class JarVersionsTest {
 
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
   @Test
   public void testExtractMavenJars() {
     Map<String, String> actual = new JarVersions(getClass().getClassLoader()).getDependentJars();
@@ -33,4 +52,159 @@ public class JarVersionsTest {
     Assert.assertEquals("1.7.30+org.slf4j-slf4j-api", semVer.getVersion());
     Assert.assertFalse(jarVersions.getDependentJars().containsKey("slf4j-api-1.7.30.jar"));
   }
+
+  @Test
+  public void testSuppliedVersions() {
+    Map<String, String> supplied = new LinkedHashMap<>();
+    supplied.put("slf4j-api-1.7.30.jar", "1.7.30+org.slf4j-slf4j-api");
+    supplied.put("annotations-3.0.1.jar", "3.0.1+com.google.code.findbugs-annotations");
+    JarVersions jarVersions = new JarVersions(Collections.unmodifiableMap(supplied));
+    Assert.assertEquals(
+        Arrays.asList("annotations-3.0.1.jar", "slf4j-api-1.7.30.jar"),
+        new ArrayList<>(jarVersions.getDependentJars().keySet()));
+
+    SemVer semVer = jarVersions.removePrincipal(Logger.class);
+    Assert.assertEquals("1.7.30+org.slf4j-slf4j-api", semVer.getVersion());
+    Assert.assertFalse(jarVersions.getDependentJars().containsKey("slf4j-api-1.7.30.jar"));
+    Assert.assertEquals(2, supplied.size());
+  }
+
+  @Test
+  public void testReadOnlyRemovePrincipal() {
+    JarVersions jarVersions =
+        JarVersions.readOnly(
+            Collections.singletonMap("slf4j-api-1.7.30.jar", "1.7.30+org.slf4j-slf4j-api"));
+    SemVer semVer = jarVersions.removePrincipal(Logger.class);
+    Assert.assertEquals("1.7.30+org.slf4j-slf4j-api", semVer.getVersion());
+    Assert.assertTrue(jarVersions.getDependentJars().containsKey("slf4j-api-1.7.30.jar"));
+  }
+
+  @Test
+  public void testConcurrentScan() {
+    ClassLoader classLoader = getClass().getClassLoader();
+    JarVersions sequential = new JarVersions(classLoader);
+    JarVersions concurrent = JarVersions.scanConcurrently(classLoader);
+    Assert.assertEquals(sequential.getDependentJars(), concurrent.getDependentJars());
+    Assert.assertTrue(concurrent.getScanDuration().toNanos() > 0);
+    Assert.assertTrue(sequential.getScanDuration().toNanos() > 0);
+  }
+
+  @Test
+  public void testLazy() {
+    ClassLoader classLoader = getClass().getClassLoader();
+    AtomicInteger extractions = new AtomicInteger();
+    JarVersions lazy =
+        JarVersions.lazy(
+            classLoader,
+            file -> {
+              extractions.incrementAndGet();
+              return VersionExtractor.extractVersion(file);
+            });
+    Assert.assertEquals(0, extractions.get());
+    Assert.assertEquals("1.7.30+org.slf4j-slf4j-api", lazy.getVersion("slf4j-api-1.7.30.jar"));
+    Assert.assertEquals("1.7.30+org.slf4j-slf4j-api", lazy.getVersion("slf4j-api-1.7.30.jar"));
+    Assert.assertEquals(1, extractions.get());
+
+    Assert.assertEquals(new JarVersions(classLoader).getDependentJars(), lazy.getDependentJars());
+  }
+
+  @Test
+  public void testLazyRemovePrincipal() {
+    JarVersions jarVersions = JarVersions.lazy(getClass().getClassLoader());
+    SemVer semVer = jarVersions.removePrincipal(Logger.class);
+    Assert.assertEquals("1.7.30+org.slf4j-slf4j-api", semVer.getVersion());
+    Assert.assertNull(jarVersions.getVersion("slf4j-api-1.7.30.jar"));
+    Assert.assertFalse(jarVersions.getDependentJars().containsKey("slf4j-api-1.7.30.jar"));
+  }
+
+  @Test
+  public void testLazyConcurrentFirstAccess() throws Exception {
+    AtomicInteger extractions = new AtomicInteger();
+    JarVersions lazy =
+        JarVersions.lazy(
+            getClass().getClassLoader(),
+            file -> {
+              extractions.incrementAndGet();
+              return VersionExtractor.extractVersion(file);
+            });
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<String>> futures = new ArrayList<>();
+      for (int i = 0; i < 32; ++i) {
+        futures.add(executor.submit(() -> lazy.getVersion("jsr305-3.0.1.jar")));
+      }
+      for (Future<String> future : futures) {
+        Assert.assertEquals("3.0.1+com.google.code.findbugs-jsr305", future.get());
+      }
+      Assert.assertEquals(1, extractions.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testScanAsync() {
+    ClassLoader classLoader = getClass().getClassLoader();
+    List<Runnable> pending = new ArrayList<>();
+    JarVersions async = JarVersions.scanAsync(classLoader, pending::add);
+    // queryable before the executor has read any jar
+    Assert.assertTrue(async.getScannedJars().isEmpty());
+    Assert.assertFalse(async.getScan().isDone());
+    Assert.assertSame(async.getScan(), async.startScan(null));
+
+    pending.forEach(Runnable::run);
+    Assert.assertSame(async, async.getScan().join());
+    Map<String, String> expected = new JarVersions(classLoader).getDependentJars();
+    Assert.assertEquals(expected, async.getScannedJars());
+    Assert.assertTrue(new JarVersions(classLoader).getScan().isDone());
+    Assert.assertNull(JarVersions.lazy(classLoader).getScan());
+  }
+
+  @Test
+  public void testPartialScan() {
+    ClassLoader classLoader = getClass().getClassLoader();
+    JarVersions jarVersions = JarVersions.lazy(classLoader);
+    List<Runnable> pending = new ArrayList<>();
+    CompletableFuture<JarVersions> scanned = jarVersions.startScan(pending::add);
+    Assert.assertTrue(jarVersions.getScannedJars().isEmpty());
+
+    pending.get(0).run();
+    Assert.assertFalse(scanned.isDone());
+    // a jar not yet reached by the executor is read on demand
+    Assert.assertEquals(
+        "1.7.30+org.slf4j-slf4j-api", jarVersions.getVersion("slf4j-api-1.7.30.jar"));
+    Assert.assertEquals(
+        "1.7.30+org.slf4j-slf4j-api", jarVersions.getScannedJars().get("slf4j-api-1.7.30.jar"));
+
+    pending.forEach(Runnable::run);
+    Assert.assertSame(jarVersions, scanned.join());
+    Map<String, String> expected = new JarVersions(classLoader).getDependentJars();
+    Assert.assertEquals(expected, jarVersions.getScannedJars());
+    Assert.assertEquals(expected, jarVersions.getDependentJars());
+  }
+
+  @Test
+  public void testNestedJars() throws IOException {
+    Map<String, byte[]> nested = new LinkedHashMap<>();
+    nested.put("BOOT-INF/lib/a-1.0.jar", TestJars.mavenJar("g", "a", "1.0", 10, false));
+    nested.put("BOOT-INF/lib/b-2.0.jar", TestJars.mavenJar("g", "b", "2.0", 10, false));
+    File fatJar = TestJars.fatJar(folder.newFile("app.jar"), nested, true);
+
+    List<URL> manifests = new ArrayList<>();
+    for (String entry : nested.keySet()) {
+      manifests.add(new URL("jar:" + fatJar.toURI() + "!/" + entry + "!/META-INF/MANIFEST.MF"));
+    }
+    ClassLoader fatJarLoader =
+        new ClassLoader(null) {
+          @Override
+          public Enumeration<URL> getResources(String name) {
+            return Collections.enumeration(manifests);
+          }
+        };
+
+    Map<String, String> expected = new TreeMap<>();
+    expected.put("a-1.0.jar", "1.0+g-a");
+    expected.put("b-2.0.jar", "2.0+g-b");
+    Assert.assertEquals(expected, new JarVersions(fatJarLoader).getDependentJars());
+  }
 }
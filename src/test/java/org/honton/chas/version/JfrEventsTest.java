@@ -0,0 +1,95 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JfrEventsTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private static Class<?> jfr(String name) {
+    try {
+      return Class.forName("jdk.jfr." + name);
+    } catch (ClassNotFoundException e) {
+      Assume.assumeNoException(e);
+      return null;
+    }
+  }
+
+  @Test
+  public void recordsEvents() throws Exception {
+    Class<?> recordingType = jfr("Recording");
+    File jar = TestJars.mavenJar(folder.newFile("a.jar"), "g", "a", "1.0", 10, false);
+    VersionMatcher matcher = new VersionMatcher("1.1");
+
+    // not recording
+    SemVer.tryParse("0.x");
+    Assert.assertFalse(JfrEvents.isRecording());
+    VersionListeners.watchFlightRecorder();
+
+    Object recording = recordingType.getConstructor().newInstance();
+    recordingType.getMethod("enable", String.class).invoke(recording, JfrEvents.MATCH.getName());
+    recordingType.getMethod("start").invoke(recording);
+    Path dump = folder.getRoot().toPath().resolve("recording.jfr");
+    try {
+      Assert.assertTrue(JfrEvents.isRecording());
+      VersionExtractor.extractVersion(jar);
+      SemVer.tryParse("1.x");
+      matcher.findMatchingIndex(SemVer.valueOf("1.2"));
+    } finally {
+      recordingType.getMethod("stop").invoke(recording);
+      recordingType.getMethod("dump", Path.class).invoke(recording, dump);
+      recordingType.getMethod("close").invoke(recording);
+    }
+    Assert.assertFalse(JfrEvents.isRecording());
+
+    Map<String, Object> events = readEvents(dump);
+    Assert.assertEquals("1.0+g-a", events.get("org.honton.chas.version.JarScan.version"));
+    Assert.assertEquals(12, events.get("org.honton.chas.version.JarScan.entriesVisited"));
+    Assert.assertEquals("1.x", events.get("org.honton.chas.version.ParseFailure.text"));
+    Assert.assertEquals(0, events.get("org.honton.chas.version.Match.index"));
+  }
+
+  /** Read the recorded event values, keyed by event name and field name */
+  private static Map<String, Object> readEvents(Path dump) throws Exception {
+    Class<?> recordedEvent = jfr("consumer.RecordedEvent");
+    Method getEventType = recordedEvent.getMethod("getEventType");
+    Method getFields = recordedEvent.getMethod("getFields");
+    Method getValue = recordedEvent.getMethod("getValue", String.class);
+    Method getName = jfr("EventType").getMethod("getName");
+    Method getFieldName = jfr("ValueDescriptor").getMethod("getName");
+
+    Map<String, Object> values = new HashMap<>();
+    List<?> events =
+        (List<?>)
+            jfr("consumer.RecordingFile").getMethod("readAllEvents", Path.class).invoke(null, dump);
+    for (Object event : events) {
+      String name = (String) getName.invoke(getEventType.invoke(event));
+      if (name.startsWith("org.honton.chas.version.")) {
+        for (Object field : (List<?>) getFields.invoke(event)) {
+          String fieldName = (String) getFieldName.invoke(field);
+          values.put(name + '.' + fieldName, getValue.invoke(event, fieldName));
+        }
+      }
+    }
+    return values;
+  }
+}
@@ -0,0 +1,60 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PreReleaseTest {
+
+  private static void assertOrder(String earlier, String later) {
+    PreRelease e = PreRelease.tokenize(earlier);
+    PreRelease l = PreRelease.tokenize(later);
+    Assert.assertTrue(earlier + " < " + later, e.compareTo(l) < 0);
+    Assert.assertTrue(later + " > " + earlier, l.compareTo(e) > 0);
+  }
+
+  @Test
+  public void tokenize() {
+    PreRelease preRelease = PreRelease.tokenize("alpha..12.x-1.0");
+    Assert.assertEquals(4, preRelease.size());
+    Assert.assertEquals(PreRelease.ALPHANUMERIC, preRelease.getNumber(0));
+    Assert.assertEquals("alpha", preRelease.getIdentifier(0));
+    Assert.assertEquals(12, preRelease.getNumber(1));
+    Assert.assertNull(preRelease.getIdentifier(1));
+    Assert.assertEquals("x-1", preRelease.getIdentifier(2));
+    Assert.assertEquals(0, preRelease.getNumber(3));
+    Assert.assertEquals(0, PreRelease.tokenize("").size());
+  }
+
+  @Test
+  public void numericBeforeAlphanumeric() {
+    assertOrder("1", "a");
+    assertOrder("0", "1");
+    assertOrder("99", "1a");
+    assertOrder("alpha.9", "alpha.10");
+    assertOrder("alpha", "alpha.1");
+    assertOrder("alpha.beta", "beta");
+  }
+
+  @Test
+  public void largeNumeric() {
+    PreRelease large = PreRelease.tokenize("123456789012345678901234567890");
+    Assert.assertEquals(PreRelease.LARGE_NUMERIC, large.getNumber(0));
+    assertOrder("999999999999999999", "1000000000000000000");
+    assertOrder("9223372036854775807", "123456789012345678901234567890");
+    assertOrder("123456789012345678901234567890", "123456789012345678901234567891");
+    assertOrder("123456789012345678901234567890", "a");
+    Assert.assertEquals(
+        0,
+        PreRelease.tokenize("0001234567890123456789")
+            .compareTo(PreRelease.tokenize("1234567890123456789")));
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SemVerBytesTest {
+
+  private static final String[] PRE_RELEASES = {
+    "",
+    "-",
+    "-0",
+    "-1",
+    "-9",
+    "-10",
+    "-007",
+    "-alpha",
+    "-alpha.1",
+    "-alpha.beta",
+    "-beta.11",
+    "-beta.2",
+    "-rc-1",
+    "-A",
+    "-a",
+    "-1.x",
+    "-123456789012345678901",
+    "-99999999999999999999"
+  };
+
+  private static String randomVersion(Random random) {
+    StringBuilder sb = new StringBuilder();
+    for (int n = random.nextInt(5); n >= 0; --n) {
+      if (sb.length() > 0) {
+        sb.append('.');
+      }
+      sb.append(random.nextInt(4) == 0 ? random.nextInt(Integer.MAX_VALUE) : random.nextInt(300));
+    }
+    sb.append(PRE_RELEASES[random.nextInt(PRE_RELEASES.length)]);
+    if (random.nextInt(3) == 0) {
+      sb.append("+build.").append(random.nextInt(3));
+    }
+    return sb.toString();
+  }
+
+  @Test
+  public void orderMatchesPrecedence() {
+    Random random = new Random(18);
+    List<SemVer> versions = new ArrayList<>();
+    for (int i = 0; i < 400; ++i) {
+      versions.add(SemVer.valueOf(randomVersion(random)));
+    }
+    for (SemVer left : versions) {
+      ByteBuffer l = ByteBuffer.wrap(SemVerBytes.encode(left));
+      for (SemVer right : versions) {
+        ByteBuffer r = ByteBuffer.wrap(SemVerBytes.encode(right));
+        Assert.assertEquals(
+            left + " vs " + right,
+            Integer.signum(left.compareTo(right)),
+            Integer.signum(SemVerBytes.compare(l, r)));
+      }
+    }
+  }
+
+  @Test
+  public void roundTrip() {
+    Random random = new Random(19);
+    ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+    List<SemVer> versions = new ArrayList<>();
+    for (int i = 0; i < 500; ++i) {
+      SemVer version = SemVer.valueOf(randomVersion(random));
+      versions.add(version);
+      int before = buffer.position();
+      SemVerBytes.encode(version, buffer);
+      Assert.assertEquals(SemVerBytes.encodedLength(version), buffer.position() - before);
+    }
+    buffer.flip();
+    for (SemVer version : versions) {
+      SemVer decoded = SemVerBytes.decode(buffer);
+      Assert.assertEquals(version.toString(), 0, version.compareTo(decoded));
+      Assert.assertNull(decoded.getMetadata());
+    }
+    Assert.assertFalse(buffer.hasRemaining());
+  }
+
+  @Test
+  public void metadataIgnored() {
+    Assert.assertArrayEquals(
+        SemVerBytes.encode(SemVer.valueOf("1.2.3-rc.1+a")),
+        SemVerBytes.encode(SemVer.valueOf("1.2.3-rc.1+b")));
+    Assert.assertEquals(
+        "1.2.3-rc.7",
+        SemVerBytes.decode(ByteBuffer.wrap(SemVerBytes.encode(SemVer.valueOf("1.2.3-rc.007"))))
+            .getVersion());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void truncated() {
+    byte[] encoded = SemVerBytes.encode(SemVer.valueOf("1.2.3-alpha"));
+    SemVerBytes.decode(ByteBuffer.wrap(encoded, 0, encoded.length - 2));
+  }
+}
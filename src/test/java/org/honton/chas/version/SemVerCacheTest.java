@@ -0,0 +1,101 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SemVerCacheTest {
+
+  @Test
+  public void sameInstance() {
+    SemVerCache cache = new SemVerCache(10);
+    SemVer first = cache.valueOf("1.2.3-rc.1");
+    Assert.assertSame(first, cache.valueOf("1.2.3-rc.1"));
+    Assert.assertEquals(1, cache.getHits());
+    Assert.assertEquals(1, cache.getMisses());
+    Assert.assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void improperNotCached() {
+    SemVerCache cache = new SemVerCache(10);
+    Assert.assertNull(cache.tryParse("version"));
+    Assert.assertNull(cache.valueOf(null));
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void improperVersion() {
+    new SemVerCache(10).valueOf("version");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void improperSize() {
+    new SemVerCache(0);
+  }
+
+  @Test
+  public void evictLeastRecentlyUsed() {
+    SemVerCache cache = new SemVerCache(1);
+    SemVer one = cache.valueOf("1");
+    cache.valueOf("2");
+    Assert.assertEquals(1, cache.size());
+    Assert.assertEquals(1, cache.getEvictions());
+    Assert.assertNotSame(one, cache.valueOf("1"));
+  }
+
+  @Test
+  public void bounded() {
+    SemVerCache cache = new SemVerCache(1000);
+    for (int i = 0; i < 10000; ++i) {
+      cache.valueOf("1." + i);
+    }
+    Assert.assertTrue(cache.size() <= 1000);
+    Assert.assertEquals(10000 - cache.size(), cache.getEvictions());
+  }
+
+  @Test
+  public void concurrentIntern() throws Exception {
+    SemVerCache cache = new SemVerCache(1000);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<SemVer[]>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; ++t) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  SemVer[] parsed = new SemVer[100];
+                  for (int n = 0; n < 50; ++n) {
+                    for (int i = 0; i < parsed.length; ++i) {
+                      parsed[i] = cache.valueOf("2." + i + ".0");
+                    }
+                  }
+                  return parsed;
+                }));
+      }
+      SemVer[] expected = futures.get(0).get();
+      for (Future<SemVer[]> future : futures) {
+        SemVer[] actual = future.get();
+        for (int i = 0; i < actual.length; ++i) {
+          Assert.assertSame(expected[i], actual[i]);
+        }
+      }
+      Assert.assertEquals(8 * 50 * 100, cache.getHits() + cache.getMisses());
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
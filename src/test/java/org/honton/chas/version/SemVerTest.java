@@ -9,8 +9,13 @@
  */
 package org.honton.chas.version;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Random;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -64,6 +69,42 @@ public class SemVerTest {
     SemVer.valueOf("version");
   }
 
+  @Test
+  public void improperVersionMessage() {
+    try {
+      SemVer.valueOf("1.02");
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals("1.02 is not a proper semantic version", e.getMessage());
+    }
+  }
+
+  @Test
+  public void tryParse() {
+    Assert.assertNull(SemVer.tryParse(null));
+    for (String improper :
+        new String[] {"", "version", ".1", "1.", "1..2", "01", "1.00", "-a", "1+a+b", "1-a_b"}) {
+      Assert.assertNull(improper, SemVer.tryParse(improper));
+    }
+    Assert.assertEquals(SemVer.valueOf("1.2.3-a+b"), SemVer.tryParse("1.2.3-a+b"));
+  }
+
+  @Test
+  public void ordinalOverflow() {
+    Assert.assertNull(SemVer.tryParse("2147483648"));
+    assertSemVerAttributes(SemVer.valueOf("2147483647"), Integer.MAX_VALUE, -1, -1, null, null);
+  }
+
+  @Test
+  public void parseEdges() {
+    assertSemVerAttributes(SemVer.valueOf("0.10.200-"), 0, 10, 200, "", null);
+    assertSemVerAttributes(SemVer.valueOf("1+"), 1, -1, -1, null, "");
+    assertSemVerAttributes(SemVer.valueOf("1-a-b.c+d-e.f"), 1, -1, -1, "a-b.c", "d-e.f");
+    Assert.assertArrayEquals(
+        new int[] {1, 2, 3, 40, 5}, SemVer.valueOf("1.2.3.40.5").getOrdinals());
+    Assert.assertEquals("1.2.3", SemVer.valueOf("1.2.3\n").getVersion());
+  }
+
   @Test(expected = NullPointerException.class)
   public void nullIsSupported() {
     SemVer.valueOf("2.0.0-alpha+other").isSupported(null);
@@ -96,6 +137,63 @@ public class SemVerTest {
     }
   }
 
+  @Test
+  public void numericPreRelease() {
+    Assert.assertTrue(SemVer.valueOf("1.0.0-1").isSupported(SemVer.valueOf("1.0.0-0")));
+    Assert.assertFalse(SemVer.valueOf("1.0.0-0").isSupported(SemVer.valueOf("1.0.0-1")));
+    Assert.assertTrue(
+        SemVer.valueOf("1.0.0-rc.99999999999").isSupported(SemVer.valueOf("1.0.0-rc.2")));
+  }
+
+  @Test
+  public void testSort() {
+    List<SemVer> versions = new ArrayList<>();
+    for (String order : ORDERED) {
+      versions.add(SemVer.valueOf(order));
+    }
+    List<SemVer> sorted = new ArrayList<>(versions);
+    Collections.shuffle(sorted, new Random(17));
+    Collections.sort(sorted);
+    Assert.assertEquals(versions, sorted);
+  }
+
+  private static void assertCompare(String earlier, String later) {
+    SemVer e = SemVer.valueOf(earlier);
+    SemVer l = SemVer.valueOf(later);
+    Assert.assertTrue(earlier + " < " + later, e.compareTo(l) < 0);
+    Assert.assertTrue(later + " > " + earlier, l.compareTo(e) > 0);
+  }
+
+  @Test
+  public void compareShortOrdinals() {
+    assertCompare("1", "1.0");
+    assertCompare("1.0", "1.0.0");
+    assertCompare("1.0.0", "1.0.0.1");
+    assertCompare("1.0.0.1", "1.0.1");
+    assertCompare("1.0.0.1-rc", "1.0.0.1");
+    assertCompare("1.0.0.1", "1.0.0.2");
+  }
+
+  @Test
+  public void compareLargeOrdinals() {
+    assertCompare("2097151.0.0", "2097152.0.0");
+    assertCompare("1.2097150.0", "1.2097151.0");
+    assertCompare("1.0.2097151", "1.1");
+    assertCompare("2147483646", "2147483647");
+    assertCompare("2147483647.1-a", "2147483647.1");
+    assertCompare("1.2", "1.2147483647");
+    assertCompare("1.0.5", "1.0.2147483647");
+    assertCompare("1.2147483646.2147483647", "1.2147483647");
+    Assert.assertTrue(SemVer.valueOf("1.2147483647").isSupported(SemVer.valueOf("1.2")));
+    Assert.assertTrue(SemVer.valueOf("1.0.2147483647").isSupported(SemVer.valueOf("1.0.5")));
+  }
+
+  @Test
+  public void compareIgnoresMeta() {
+    Assert.assertEquals(0, SemVer.valueOf("1.0.0+a").compareTo(SemVer.valueOf("1.0.0+b")));
+    Assert.assertEquals(0, SemVer.valueOf("1.0.0-a+a").compareTo(SemVer.valueOf("1.0.0-a")));
+  }
+
   @Test
   public void failSingle() {
     Assert.assertNull(
@@ -123,4 +221,71 @@ public class SemVerTest {
         expected,
         SemVer.valueOf("2.1.0").findSupported(Arrays.asList(SemVer.valueOf("1.11.0"), expected)));
   }
+
+  private static String randomText(Random random) {
+    String alphabet = "0123456789..--++aZ\n";
+    StringBuilder sb = new StringBuilder();
+    for (int n = random.nextInt(12); n > 0; --n) {
+      sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    return sb.toString();
+  }
+
+  @Test
+  public void slicesSameAsString() {
+    Random random = new Random(19);
+    List<SemVer> expectations = new ArrayList<>();
+    for (String expected : new String[] {"1", "1.2", "1.2.3", "0.0.1-a", "1.0-1.a", "2.1.0-0"}) {
+      expectations.add(SemVer.valueOf(expected));
+    }
+    for (int trial = 0; trial < 20000; ++trial) {
+      String version = randomText(random);
+      SemVer semVer = SemVer.tryParse(version);
+      String padded = "<" + version + ">";
+      byte[] bytes = padded.getBytes(StandardCharsets.US_ASCII);
+      ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length).put(bytes);
+      StringBuilder chars = new StringBuilder(padded);
+      int length = version.length();
+
+      Assert.assertEquals(version, semVer, SemVer.tryParse(chars, 1, length));
+      Assert.assertEquals(version, semVer, SemVer.tryParse(bytes, 1, length));
+      Assert.assertEquals(version, semVer, SemVer.tryParse(buffer, 1, length));
+      Assert.assertEquals(version, semVer != null, SemVer.isValid(chars, 1, length));
+      Assert.assertEquals(version, semVer != null, SemVer.isValid(bytes, 1, length));
+      Assert.assertEquals(version, semVer != null, SemVer.isValid(buffer, 1, length));
+      for (SemVer expected : expectations) {
+        boolean supported = semVer != null && semVer.isSupported(expected);
+        Assert.assertEquals(version, supported, SemVer.isSupported(chars, 1, length, expected));
+        Assert.assertEquals(version, supported, SemVer.isSupported(bytes, 1, length, expected));
+        Assert.assertEquals(version, supported, SemVer.isSupported(buffer, 1, length, expected));
+      }
+    }
+  }
+
+  @Test
+  public void slicePreReleaseSupport() {
+    byte[] bytes = "x1.0.0-rc.10 1.0.0-rc.9 1.0.0-rc.a 1.0.0-12345678901234567890".getBytes();
+    SemVer expected = SemVer.valueOf("1.0.0-rc.9");
+    Assert.assertTrue(SemVer.isSupported(bytes, 1, 11, expected));
+    Assert.assertTrue(SemVer.isSupported(bytes, 13, 10, expected));
+    Assert.assertTrue(SemVer.isSupported(bytes, 24, 10, expected));
+    Assert.assertFalse(SemVer.isSupported(bytes, 35, 26, expected));
+    Assert.assertEquals("1.0.0-rc.a", SemVer.valueOf(bytes, 24, 10).getVersion());
+    Assert.assertEquals("1.0.0-rc.9", SemVer.valueOf(ByteBuffer.wrap(bytes), 13, 10).getVersion());
+  }
+
+  @Test
+  public void improperSlice() {
+    try {
+      SemVer.valueOf("x1.0.x", 1, 4);
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals("1.0. is not a proper semantic version", e.getMessage());
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void sliceOutOfBounds() {
+    SemVer.isValid(new byte[4], 2, 3);
+  }
 }
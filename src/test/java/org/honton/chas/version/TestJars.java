@@ -0,0 +1,117 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+/** Create jars for tests */
+final class TestJars {
+
+  private TestJars() {
+    // utility class
+  }
+
+  static String pomProperties(String groupId, String artifactId, String version) {
+    return "groupId=" + groupId + "\nartifactId=" + artifactId + "\nversion=" + version + "\n";
+  }
+
+  /**
+   * Create a maven style jar.
+   *
+   * @param file The jar to create
+   * @param classCount The number of (empty) class entries preceding the pom.properties
+   * @param stored Whether entries are stored rather than deflated
+   */
+  static File mavenJar(
+      File file, String groupId, String artifactId, String version, int classCount, boolean stored)
+      throws IOException {
+    try (OutputStream os = new FileOutputStream(file)) {
+      os.write(mavenJar(groupId, artifactId, version, classCount, stored));
+    }
+    return file;
+  }
+
+  static byte[] mavenJar(
+      String groupId, String artifactId, String version, int classCount, boolean stored)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (JarOutputStream jar = new JarOutputStream(bytes, new Manifest())) {
+      for (int i = 0; i < classCount; ++i) {
+        putEntry(jar, "org/example/C" + i + ".class", new byte[] {(byte) i}, stored);
+      }
+      String pom = pomProperties(groupId, artifactId, version);
+      putEntry(
+          jar,
+          "META-INF/maven/" + groupId + '/' + artifactId + "/pom.properties",
+          pom.getBytes(StandardCharsets.ISO_8859_1),
+          stored);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Create a fat jar holding other jars as stored entries.
+   *
+   * @param file The jar to create
+   * @param nested The entry names and contents of the nested jars
+   * @param stored Whether the nested jars are stored rather than deflated
+   */
+  static File fatJar(File file, Map<String, byte[]> nested, boolean stored) throws IOException {
+    try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(file), new Manifest())) {
+      putEntry(jar, "BOOT-INF/classes/org/example/Main.class", new byte[] {1}, false);
+      for (Map.Entry<String, byte[]> entry : nested.entrySet()) {
+        putEntry(jar, entry.getKey(), entry.getValue(), stored);
+      }
+    }
+    return file;
+  }
+
+  /** Create a jar whose only version information is in the manifest */
+  static File manifestJar(File file, String version, String moduleName) throws IOException {
+    Manifest manifest = new Manifest();
+    Attributes attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    attributes.put(Attributes.Name.IMPLEMENTATION_VERSION, version);
+    if (moduleName != null) {
+      attributes.putValue("Automatic-Module-Name", moduleName);
+    }
+    try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(file), manifest)) {
+      putEntry(jar, "org/example/C.class", new byte[] {1}, false);
+    }
+    return file;
+  }
+
+  static void putEntry(JarOutputStream jar, String name, byte[] contents, boolean stored)
+      throws IOException {
+    ZipEntry entry = new ZipEntry(name);
+    if (stored) {
+      CRC32 crc = new CRC32();
+      crc.update(contents);
+      entry.setMethod(ZipEntry.STORED);
+      entry.setSize(contents.length);
+      entry.setCompressedSize(contents.length);
+      entry.setCrc(crc.getValue());
+    }
+    jar.putNextEntry(entry);
+    jar.write(contents);
+    jar.closeEntry();
+  }
+}
@@ -10,12 +10,78 @@
 package org.honton.chas.version;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class VersionExtractorTest {
 
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void extractVersion() throws IOException {
+    File jar = TestJars.mavenJar(folder.newFile(), "org.example", "shaded", "1.2.3", 20000, false);
+    Assert.assertEquals("1.2.3+org.example-shaded", VersionExtractor.extractVersion(jar));
+    Assert.assertEquals(
+        VersionExtractor.extractVersionFromJarFile(jar), VersionExtractor.extractVersion(jar));
+  }
+
+  @Test
+  public void extractNestedVersion() throws IOException {
+    Map<String, byte[]> nested = new LinkedHashMap<>();
+    nested.put("BOOT-INF/lib/a-1.0.jar", TestJars.mavenJar("g", "a", "1.0", 10, false));
+    nested.put("BOOT-INF/lib/b-2.0.jar", TestJars.mavenJar("g", "b", "2.0", 10, true));
+    File fatJar = TestJars.fatJar(folder.newFile(), nested, true);
+
+    Assert.assertEquals(
+        "1.0+g-a",
+        VersionExtractor.extractVersion(
+            new JarLocation(fatJar, Collections.singletonList("BOOT-INF/lib/a-1.0.jar"))));
+    Assert.assertEquals(
+        "2.0+g-b",
+        VersionExtractor.extractVersion(
+            new JarLocation(fatJar, Collections.singletonList("BOOT-INF/lib/b-2.0.jar"))));
+    Assert.assertNull(
+        VersionExtractor.extractVersion(
+            new JarLocation(fatJar, Collections.singletonList("BOOT-INF/lib/c-3.0.jar"))));
+  }
+
+  @Test
+  public void compressedNestedJar() throws IOException {
+    Map<String, byte[]> nested =
+        Collections.singletonMap(
+            "BOOT-INF/lib/a-1.0.jar", TestJars.mavenJar("g", "a", "1.0", 10, false));
+    File fatJar = TestJars.fatJar(folder.newFile(), nested, false);
+    Assert.assertNull(
+        VersionExtractor.extractVersion(
+            new JarLocation(fatJar, Collections.singletonList("BOOT-INF/lib/a-1.0.jar"))));
+  }
+
+  @Test
+  public void extractManifestVersion() throws IOException {
+    File jar = TestJars.manifestJar(folder.newFile(), "4.5.6", "org.example.module");
+    Assert.assertEquals("4.5.6+org.example.module", VersionExtractor.extractVersion(jar));
+    Assert.assertEquals(
+        VersionExtractor.extractVersionFromJarFile(jar), VersionExtractor.extractVersion(jar));
+    File anonymous = TestJars.manifestJar(folder.newFile(), "4.5.6", null);
+    Assert.assertEquals("4.5.6", VersionExtractor.extractVersion(anonymous));
+  }
+
+  @Test
+  public void extractImproperManifestVersion() throws IOException {
+    File jar = TestJars.manifestJar(folder.newFile(), "5.3.10.RELEASE", "org.example.module");
+    Assert.assertNull(VersionExtractor.extractVersion(jar));
+    Assert.assertNull(VersionExtractor.extractVersionFromJarFile(jar));
+    File module = TestJars.manifestJar(folder.newFile(), "4.5.6", "org.example_module");
+    Assert.assertEquals("4.5.6", VersionExtractor.extractVersion(module));
+  }
+
   @Test
   public void extractVersionBadFile() throws URISyntaxException {
     Assert.assertNull(VersionExtractor.extractVersion(getThisFile()));
@@ -0,0 +1,128 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.annotation.Nullable;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class VersionListenersTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private final List<String> events = new CopyOnWriteArrayList<>();
+
+  private final VersionListener listener =
+      new VersionListener() {
+        @Override
+        public void jarScanned(
+            String jar, long nanos, long bytesRead, int entriesVisited, @Nullable String version) {
+          events.add("scan " + new File(jar).getName() + ' ' + entriesVisited + ' ' + version);
+          Assert.assertTrue(nanos > 0);
+          Assert.assertTrue(bytesRead > 0);
+        }
+
+        @Override
+        public void cacheLookup(String cache, boolean hit) {
+          events.add(cache + (hit ? " hit" : " miss"));
+        }
+
+        @Override
+        public void parseFailed(String text) {
+          events.add("failed " + text);
+        }
+
+        @Override
+        public void matched(long nanos, int index) {
+          events.add("matched " + index);
+        }
+      };
+
+  @Before
+  public void addListener() {
+    VersionListeners.add(listener);
+  }
+
+  @After
+  public void removeListener() {
+    VersionListeners.remove(listener);
+  }
+
+  @Test
+  public void jarScanned() throws IOException {
+    File jar = TestJars.mavenJar(folder.newFile("a.jar"), "g", "a", "1.0", 100, false);
+    VersionExtractor.extractVersion(jar);
+    // the manifest, the classes, and the pom.properties
+    Assert.assertEquals("[scan a.jar 102 1.0+g-a]", events.toString());
+  }
+
+  @Test
+  public void parseFailed() {
+    Assert.assertNull(SemVer.tryParse("1.x"));
+    byte[] bytes = " 1.0.0-beta_1 ".getBytes(StandardCharsets.US_ASCII);
+    Assert.assertFalse(SemVer.isValid(bytes, 1, 12));
+    Assert.assertNull(SemVer.tryParse(bytes, 1, 12));
+    Assert.assertNotNull(SemVer.tryParse("1.0"));
+    Assert.assertEquals("[failed 1.x, failed 1.0.0-beta_1]", events.toString());
+  }
+
+  @Test
+  public void cacheLookup() {
+    SemVerCache cache = new SemVerCache(10);
+    cache.tryParse("1.0");
+    cache.tryParse("1.0");
+    Assert.assertEquals("[SemVerCache miss, SemVerCache hit]", events.toString());
+  }
+
+  @Test
+  public void matched() {
+    VersionMatcher matcher = new VersionMatcher("1.1", "2.0").memoizeDecisions(10);
+    matcher.findMatchingVersion(SemVer.valueOf("2.1"));
+    matcher.getErrorMessage("1.2");
+    matcher.getErrorMessage("1.2");
+    Assert.assertEquals(
+        "[matched 1, VersionMatcher miss, matched 0, VersionMatcher hit]", events.toString());
+  }
+
+  @Test
+  public void removed() {
+    Assert.assertTrue(VersionListeners.remove(listener));
+    Assert.assertFalse(VersionListeners.remove(listener));
+    SemVer.tryParse("1.x");
+    Assert.assertTrue(events.isEmpty());
+  }
+
+  @Test
+  public void failingListener() {
+    VersionListener failing =
+        new VersionListener() {
+          @Override
+          public void parseFailed(String text) {
+            throw new IllegalStateException(text);
+          }
+        };
+    VersionListeners.add(failing);
+    try {
+      Assert.assertNull(SemVer.tryParse("1.x"));
+      Assert.assertEquals("[failed 1.x]", events.toString());
+    } finally {
+      VersionListeners.remove(failing);
+    }
+  }
+}
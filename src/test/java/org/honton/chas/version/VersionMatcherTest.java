@@ -9,6 +9,9 @@
  */
 package org.honton.chas.version;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -28,6 +31,97 @@ public class VersionMatcherTest {
         SemVer.valueOf("2.0.0"), versionMatcher.findMatchingVersion(SemVer.valueOf("2.3.1")));
   }
 
+  @Test
+  public void findFirstMatch() {
+    VersionMatcher versionMatcher = new VersionMatcher("1.5.0", "1.2.0", "1.7.0", "2.0.0");
+    Assert.assertEquals(
+        SemVer.valueOf("1.2.0"), versionMatcher.findMatchingVersion(SemVer.valueOf("1.4.0")));
+    Assert.assertEquals(
+        SemVer.valueOf("1.5.0"), versionMatcher.findMatchingVersion(SemVer.valueOf("1.8.0")));
+    Assert.assertNull(versionMatcher.findMatchingVersion(SemVer.valueOf("1.1.9")));
+    Assert.assertNull(versionMatcher.findMatchingVersion(SemVer.valueOf("3.0.0")));
+  }
+
+  private static String randomVersion(Random random) {
+    StringBuilder sb = new StringBuilder().append(random.nextInt(3));
+    for (int n = random.nextInt(4); n > 0; --n) {
+      sb.append('.').append(random.nextInt(3));
+    }
+    switch (random.nextInt(4)) {
+      case 0:
+        sb.append("-rc.").append(random.nextInt(3));
+        break;
+      case 1:
+        sb.append("-beta");
+        break;
+      default:
+        break;
+    }
+    if (random.nextBoolean()) {
+      sb.append("+m").append(random.nextInt(3));
+    }
+    return sb.toString();
+  }
+
+  @Test
+  public void sameAsFindSupported() {
+    Random random = new Random(5);
+    for (int m = 0; m < 50; ++m) {
+      String[] additional = new String[random.nextInt(40)];
+      for (int i = 0; i < additional.length; ++i) {
+        additional[i] = randomVersion(random);
+      }
+      String supported = randomVersion(random);
+      VersionMatcher versionMatcher = new VersionMatcher(supported, additional);
+
+      List<SemVer> expected = new ArrayList<>();
+      expected.add(SemVer.valueOf(supported));
+      for (String version : additional) {
+        expected.add(SemVer.valueOf(version));
+      }
+      for (int a = 0; a < 100; ++a) {
+        SemVer actual = SemVer.valueOf(randomVersion(random));
+        Assert.assertEquals(
+            actual.toString(),
+            actual.findSupported(expected),
+            versionMatcher.findMatchingVersion(actual));
+      }
+    }
+  }
+
+  @Test
+  public void findBatch() {
+    VersionMatcher versionMatcher = new VersionMatcher("1.11.0", "2.0.0");
+    String[] actuals = {"2.3.1", "1.0.0", "version", "1.11.1"};
+    int[] expected = {1, VersionMatcher.NO_MATCH, VersionMatcher.IMPROPER_VERSION, 0};
+    Assert.assertArrayEquals(expected, versionMatcher.findMatchingIndices(actuals));
+
+    List<SemVer> semVers = new ArrayList<>();
+    for (String actual : new String[] {"2.3.1", "1.0.0", "1.11.1"}) {
+      semVers.add(SemVer.valueOf(actual));
+    }
+    int[] expectedSemVers = {1, VersionMatcher.NO_MATCH, 0};
+    Assert.assertArrayEquals(expectedSemVers, versionMatcher.findMatchingIndices(semVers));
+    Assert.assertArrayEquals(
+        expectedSemVers, versionMatcher.findMatchingIndices(semVers.stream()).toArray());
+    Assert.assertEquals(SemVer.valueOf("2.0.0"), versionMatcher.getExpectedVersion(1));
+  }
+
+  @Test
+  public void findParallelBatch() {
+    Random random = new Random(7);
+    VersionMatcher versionMatcher = new VersionMatcher("0.1", "1.1", "2.0.1");
+    versionMatcher.setParallelThreshold(100);
+    SemVer[] actuals = new SemVer[10_000];
+    for (int i = 0; i < actuals.length; ++i) {
+      actuals[i] = SemVer.valueOf(randomVersion(random));
+    }
+    int[] indices = versionMatcher.findMatchingIndices(actuals);
+    for (int i = 0; i < actuals.length; ++i) {
+      Assert.assertEquals(versionMatcher.findMatchingIndex(actuals[i]), indices[i]);
+    }
+  }
+
   private void assertErrorMessage(
       String error, String actual, String supportedVersion, String... additional) {
     VersionMatcher versionMatcher = new VersionMatcher(supportedVersion, additional);
@@ -54,6 +148,77 @@ public class VersionMatcherTest {
     assertErrorMessage("3.3.1 does not support any of 1.11.0, 2.0.0", "3.3.1", "1.11.0", "2.0.0");
   }
 
+  @Test
+  public void messageWithCache() {
+    SemVerCache cache = new SemVerCache(10);
+    VersionMatcher versionMatcher = new VersionMatcher(cache, "1.11.0");
+    Assert.assertNull(versionMatcher.getErrorMessage("1.11.1"));
+    Assert.assertEquals("2.3.1 does not support 1.11.0", versionMatcher.getErrorMessage("2.3.1"));
+    Assert.assertNull(versionMatcher.getErrorMessage("1.11.1"));
+    Assert.assertEquals(1, cache.getHits());
+  }
+
+  @Test
+  public void memoizedDecisions() {
+    VersionMatcher versionMatcher = new VersionMatcher("1.11.0", "2.0.0").memoizeDecisions(2);
+    Assert.assertNull(versionMatcher.getErrorMessage("1.11.1"));
+    String message = versionMatcher.getErrorMessage("3.3.1");
+    Assert.assertEquals("3.3.1 does not support any of 1.11.0, 2.0.0", message);
+    Assert.assertSame(message, versionMatcher.getErrorMessage("3.3.1"));
+    Assert.assertNull(versionMatcher.getErrorMessage("1.11.1"));
+    Assert.assertEquals(2, versionMatcher.getDecisionHits());
+
+    Assert.assertArrayEquals(
+        new int[] {0, 1, VersionMatcher.NO_MATCH, VersionMatcher.IMPROPER_VERSION},
+        versionMatcher.findMatchingIndices(new String[] {"1.11.1", "2.0.1", "3.3.1", "x"}));
+    Assert.assertEquals(2, versionMatcher.getDecisionCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void memoizedImproper() {
+    new VersionMatcher("1.11.0").memoizeDecisions(10).getErrorMessage("1.x");
+  }
+
+  @Test
+  public void memoizedImproperHit() {
+    VersionMatcher versionMatcher = new VersionMatcher("1.11.0").memoizeDecisions(10);
+    for (int i = 0; i < 2; ++i) {
+      try {
+        versionMatcher.getErrorMessage("garbage");
+        Assert.fail();
+      } catch (IllegalArgumentException e) {
+        Assert.assertEquals("garbage is not a proper semantic version", e.getMessage());
+      }
+    }
+    Assert.assertEquals(1, versionMatcher.getDecisionHits());
+    Assert.assertEquals(1, versionMatcher.getDecisionCount());
+    Assert.assertArrayEquals(
+        new int[] {VersionMatcher.IMPROPER_VERSION},
+        versionMatcher.findMatchingIndices(new String[] {"garbage"}));
+    Assert.assertEquals(2, versionMatcher.getDecisionHits());
+  }
+
+  @Test
+  public void memoizedBound() throws Exception {
+    VersionMatcher versionMatcher = new VersionMatcher("1.0.0").memoizeDecisions(16);
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; ++t) {
+      int first = t * 1000;
+      threads[t] =
+          new Thread(
+              () -> {
+                for (int i = first; i < first + 1000; ++i) {
+                  versionMatcher.getErrorMessage("1.0." + i);
+                }
+              });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    Assert.assertTrue(versionMatcher.getDecisionCount() <= 16);
+  }
+
   @Test(expected = NullPointerException.class)
   public void throwOnNull() {
     assertErrorMessage("", "1.2.3", null, "1.2.3");
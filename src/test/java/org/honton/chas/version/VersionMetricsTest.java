@@ -0,0 +1,59 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VersionMetricsTest {
+
+  @Test
+  public void counters() {
+    VersionMetrics metrics = new VersionMetrics();
+    metrics.jarScanned("a.jar", 1000, 300, 5, "1.0");
+    metrics.jarScanned("b.jar", 500, 200, 7, null);
+    metrics.cacheLookup("SemVerCache", true);
+    metrics.cacheLookup("SemVerCache", false);
+    metrics.cacheLookup("JarVersionCache", true);
+    metrics.parseFailed("1.x");
+
+    Assert.assertEquals(2, metrics.getJarsScanned());
+    Assert.assertEquals(1500, metrics.getScanNanos());
+    Assert.assertEquals(500, metrics.getBytesRead());
+    Assert.assertEquals(12, metrics.getEntriesVisited());
+    Assert.assertEquals(2, metrics.getCacheHits());
+    Assert.assertEquals(1, metrics.getCacheMisses());
+    Assert.assertEquals(1, metrics.getParseFailures());
+  }
+
+  @Test
+  public void latencyHistogram() {
+    VersionMetrics metrics = new VersionMetrics();
+    Assert.assertEquals(0, metrics.getMatchLatencyPercentile(99));
+    metrics.matched(0, 0);
+    for (int i = 0; i < 98; ++i) {
+      metrics.matched(100, 0);
+    }
+    metrics.matched(5000, VersionMatcher.NO_MATCH);
+
+    Assert.assertEquals(100, metrics.getMatches());
+    long[] histogram = metrics.getMatchLatencyHistogram();
+    Assert.assertEquals(1, histogram[0]);
+    // 64 <= 100 < 128
+    Assert.assertEquals(98, histogram[7]);
+    // 4096 <= 5000 < 8192
+    Assert.assertEquals(1, histogram[13]);
+
+    Assert.assertEquals(1, metrics.getMatchLatencyPercentile(0));
+    Assert.assertEquals(128, metrics.getMatchLatencyPercentile(50));
+    Assert.assertEquals(128, metrics.getMatchLatencyPercentile(99));
+    Assert.assertEquals(8192, metrics.getMatchLatencyPercentile(100));
+  }
+}
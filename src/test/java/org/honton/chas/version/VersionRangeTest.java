@@ -0,0 +1,139 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VersionRangeTest {
+
+  private static void assertContains(String range, String... versions) {
+    VersionRange compiled = VersionRange.valueOf(range);
+    for (String version : versions) {
+      Assert.assertTrue(range + " contains " + version, compiled.contains(SemVer.valueOf(version)));
+    }
+  }
+
+  private static void assertExcludes(String range, String... versions) {
+    VersionRange compiled = VersionRange.valueOf(range);
+    for (String version : versions) {
+      Assert.assertFalse(
+          range + " excludes " + version, compiled.contains(SemVer.valueOf(version)));
+    }
+  }
+
+  @Test
+  public void testMaven() {
+    assertContains("[1.2,2.0)", "1.2", "1.2.0", "1.9.9", "2.0-rc.1");
+    assertExcludes("[1.2,2.0)", "1.1.9", "1.2-alpha", "2.0", "2.0.1");
+    assertContains("(,1.0]", "0.1", "1.0");
+    assertExcludes("(,1.0]", "1.0.0", "1.1");
+    assertContains("[1.5]", "1.5", "1.5+build");
+    assertExcludes("[1.5]", "1.5.0", "1.4");
+    assertContains("(,1.0],[1.2,)", "0.9", "1.2", "5.0.0");
+    assertExcludes("(,1.0],[1.2,)", "1.1", "1.0.1");
+    assertContains("(1.0,2.0)", "1.0.1");
+    assertExcludes("(1.0,2.0)", "1.0", "2.0");
+  }
+
+  @Test
+  public void testCaret() {
+    assertContains("^1.2.3", "1.2.3", "1.3.0", "1.99.99", "1.2.4-beta");
+    assertExcludes("^1.2.3", "1.2.2", "1.2.3-beta", "2.0.0", "2.0.0-0");
+    assertContains("^0.2.3", "0.2.3", "0.2.9");
+    assertExcludes("^0.2.3", "0.3.0", "0.2.2");
+    assertContains("^0.0.3", "0.0.3");
+    assertExcludes("^0.0.3", "0.0.4");
+    assertContains("^1.2", "1.2.0", "1.9.0");
+    assertExcludes("^1.2", "1.1.9", "2.0.0");
+    assertContains("^0", "0.0.1", "0.9.9");
+    assertExcludes("^0", "1.0.0");
+  }
+
+  @Test
+  public void testTilde() {
+    assertContains("~1.2.3", "1.2.3", "1.2.9");
+    assertExcludes("~1.2.3", "1.2.2", "1.3.0");
+    assertContains("~1.4", "1.4.0", "1.4.7");
+    assertExcludes("~1.4", "1.3.9", "1.5.0");
+    assertContains("~1", "1.0.0", "1.9.0");
+    assertExcludes("~1", "2.0.0");
+  }
+
+  @Test
+  public void testComparators() {
+    String range = ">=2 <3 || 4.x";
+    assertContains(range, "2.0.0", "2.9.9", "4.0.0", "4.5.6");
+    assertExcludes(range, "1.9.9", "3.0.0", "3.5.0", "5.0.0");
+    assertContains(">= 1.2.3 < 1.3", "1.2.3", "1.2.99");
+    assertExcludes(">= 1.2.3 < 1.3", "1.3.0", "1.2.2");
+    assertContains(">1.2", "1.3.0");
+    assertExcludes(">1.2", "1.2.9");
+    assertContains("<=1.2", "1.2.9");
+    assertExcludes("<=1.2", "1.3.0");
+    assertContains("=1.2.3", "1.2.3");
+    assertExcludes("=1.2.3", "1.2.4");
+    assertContains("1.2.x", "1.2.0", "1.2.7");
+    assertExcludes("1.2.x", "1.3.0");
+    assertContains("*", "0.0.1", "99.0.0");
+    assertContains("", "1.0.0");
+  }
+
+  @Test
+  public void testHyphen() {
+    assertContains("1.2.3 - 2.3.4", "1.2.3", "2.3.4");
+    assertExcludes("1.2.3 - 2.3.4", "1.2.2", "2.3.5");
+    assertContains("1.2 - 2.3", "1.2.0", "2.3.9");
+    assertExcludes("1.2 - 2.3", "2.4.0");
+  }
+
+  @Test
+  public void testNormalized() {
+    Assert.assertEquals("[1.0.0,3-0)", VersionRange.valueOf("^1.0.0 || 2.x").toString());
+    Assert.assertEquals(
+        "[1.0.0,2.0.0]", VersionRange.valueOf("[1.0.0,1.5.0),[1.2.0,2.0.0]").toString());
+    Assert.assertEquals("[1.2.3,2-0)", VersionRange.valueOf(">=1.2.3 <2 >=1.0.0").toString());
+    Assert.assertEquals(
+        VersionRange.valueOf("~1.2"),
+        VersionRange.valueOf(VersionRange.valueOf("~1.2").toString()));
+    Assert.assertTrue(VersionRange.valueOf(">2.0.0 <1.0.0").isEmpty());
+    Assert.assertFalse(VersionRange.valueOf(">2.0.0 <1.0.0").contains(SemVer.valueOf("1.5.0")));
+  }
+
+  @Test
+  public void testImproper() {
+    String[] improper = {
+      "[1.0,2.0", "(1.0)", "^1.x.2", "~01.2", ">=a.b.c", "1.2-beta", "[1.0,2.0]x"
+    };
+    for (String range : improper) {
+      try {
+        VersionRange.valueOf(range);
+        Assert.fail(range);
+      } catch (IllegalArgumentException e) {
+        Assert.assertEquals(range + " is not a proper version range", e.getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void testDefiesOrdering() {
+    String[] empty = {"[2.0,1.0]", "(2.0,1.0)", "[1.0,1.0)", "(1.0,1.0]", "(1.0,1.0)"};
+    for (String range : empty) {
+      try {
+        VersionRange.valueOf(range);
+        Assert.fail(range);
+      } catch (IllegalArgumentException e) {
+        Assert.assertEquals(range + " is not a proper version range", e.getMessage());
+        Assert.assertEquals("range defies version ordering", e.getCause().getMessage());
+      }
+    }
+    Assert.assertEquals("[1.0]", VersionRange.valueOf("[1.0,1.0]").toString());
+  }
+}
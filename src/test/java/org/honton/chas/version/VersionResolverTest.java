@@ -0,0 +1,228 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VersionResolverTest {
+
+  private static VersionSet versions(String... versions) {
+    VersionSet.Builder builder = VersionSet.builder();
+    for (String version : versions) {
+      builder.add(version);
+    }
+    return builder.build();
+  }
+
+  private static Map<String, VersionRange> roots(String... artifactRanges) {
+    Map<String, VersionRange> roots = new LinkedHashMap<>();
+    for (int i = 0; i < artifactRanges.length; i += 2) {
+      roots.put(artifactRanges[i], VersionRange.valueOf(artifactRanges[i + 1]));
+    }
+    return roots;
+  }
+
+  @Test
+  public void newestConsistent() {
+    VersionResolver resolver =
+        VersionResolver.builder()
+            .available("app", versions("1.0.0"))
+            .available("web", versions("1.0.0", "2.0.0", "2.1.0"))
+            .available("json", versions("1.0.0", "1.5.0", "2.0.0"))
+            .available("log", versions("1.0.0"))
+            .requires("app", "1.0.0", "web", "*")
+            .requires("app", "1.0.0", "json", "^1")
+            .requires("web", "2.1.0", "json", "^2")
+            .requires("web", "2.0.0", "json", "^1.2")
+            .requires("web", "1.0.0", "json", "^1")
+            .build();
+
+    VersionResolver.Resolution resolution = resolver.resolve(roots("app", "^1"));
+    Assert.assertTrue(resolution.isResolved());
+    Map<String, SemVer> expected = new HashMap<>();
+    expected.put("app", SemVer.valueOf("1.0.0"));
+    expected.put("web", SemVer.valueOf("2.0.0"));
+    expected.put("json", SemVer.valueOf("1.5.0"));
+    // log is not required
+    Assert.assertEquals(expected, resolution.getVersions());
+    Assert.assertTrue(resolution.getConflict().isEmpty());
+  }
+
+  @Test
+  public void irreducibleConflict() {
+    VersionResolver resolver =
+        VersionResolver.builder()
+            .available("a", versions("1.0.0", "1.1.0"))
+            .available("b", versions("1.0.0"))
+            .available("c", versions("1.0.0", "2.0.0"))
+            .available("d", versions("1.0.0"))
+            .requires("a", "1.0.0", "c", "^1")
+            .requires("a", "1.1.0", "c", "~1.0")
+            .requires("a", "1.1.0", "d", "*")
+            .requires("b", "1.0.0", "c", "^2")
+            .requires("b", "1.0.0", "d", "^1")
+            .build();
+
+    VersionResolver.Resolution resolution = resolver.resolve(roots("a", "^1", "b", "*", "d", "*"));
+    Assert.assertEquals(VersionResolver.Resolution.Outcome.CONFLICT, resolution.getOutcome());
+    Assert.assertTrue(resolution.getVersions().isEmpty());
+    Assert.assertEquals(
+        Arrays.asList(
+            "root requires a [1-0,2-0)",
+            "root requires b (,)",
+            "a 1.0.0 requires c [1-0,2-0)",
+            "a 1.1.0 requires c [1.0-0,1.1-0)",
+            "b 1.0.0 requires c [2-0,3-0)"),
+        resolution.getConflict());
+  }
+
+  @Test
+  public void unknownArtifact() {
+    VersionResolver resolver =
+        VersionResolver.builder()
+            .available("a", versions("1.0.0"))
+            .requires("a", "1.0.0", "missing", "^1")
+            .build();
+    Assert.assertEquals(
+        Collections.singletonList("root requires nothing [1-0,2-0)"),
+        resolver.resolve(roots("nothing", "^1")).getConflict());
+    Assert.assertEquals(
+        Arrays.asList("root requires a (,)", "a 1.0.0 requires missing [1-0,2-0)"),
+        resolver.resolve(roots("a", "*")).getConflict());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unavailableVersion() {
+    VersionResolver.builder()
+        .available("a", versions("1.0.0"))
+        .requires("a", "2.0.0", "b", "*")
+        .build();
+  }
+
+  // a chain of artifacts, where the first also requires the newest version of the last
+  private static VersionResolver chain(int length, int versionCount) {
+    String[] versions = new String[versionCount];
+    for (int v = 0; v < versionCount; ++v) {
+      versions[v] = "1." + v + ".0";
+    }
+    VersionResolver.Builder builder = VersionResolver.builder();
+    for (int i = 0; i < length; ++i) {
+      builder.available("n" + i, versions(versions));
+      for (String version : versions) {
+        builder.requires("n" + i, version, "n" + (i + 1), i + 1 < length ? "^1" : "*");
+      }
+    }
+    builder.available("n" + length, versions("1.0.0", "2.0.0"));
+    for (String version : versions) {
+      builder.requires("n0", version, "n" + length, "^2");
+    }
+    builder.requires("n" + length, "2.0.0", "tail", "*").available("tail", versions("1.0.0"));
+    return builder.build();
+  }
+
+  @Test
+  public void largeGraph() {
+    VersionResolver resolver = chain(2000, 8);
+    VersionResolver.Resolution resolution = resolver.resolve(roots("n0", "*"));
+    Assert.assertTrue(resolution.isResolved());
+    Assert.assertEquals(2002, resolution.getVersions().size());
+    Assert.assertEquals(SemVer.valueOf("1.7.0"), resolution.getVersions().get("n1999"));
+    Assert.assertEquals(SemVer.valueOf("2.0.0"), resolution.getVersions().get("n2000"));
+    Assert.assertTrue(resolution.getSteps() < 3 * 2002);
+  }
+
+  @Test
+  public void backjumping() {
+    VersionResolver.Builder builder = VersionResolver.builder();
+    String[] versions = {"1.0.0", "1.1.0", "1.2.0", "1.3.0"};
+    // many independent artifacts are chosen before the conflict between x and y is found
+    for (int i = 0; i < 50; ++i) {
+      builder.available("n" + i, versions(versions));
+    }
+    builder.available("x", versions("1.0.0", "2.0.0"));
+    builder.available("y", versions("1.0.0"));
+    builder.requires("x", "2.0.0", "y", "^2");
+    builder.requires("x", "1.0.0", "y", "^2");
+    VersionResolver resolver = builder.maxNogoods(0).build();
+
+    Map<String, VersionRange> roots = new LinkedHashMap<>();
+    for (int i = 0; i < 50; ++i) {
+      roots.put("n" + i, VersionRange.valueOf("*"));
+    }
+    roots.put("x", VersionRange.valueOf("*"));
+    VersionResolver.Resolution resolution = resolver.resolve(roots);
+    Assert.assertEquals(VersionResolver.Resolution.Outcome.CONFLICT, resolution.getOutcome());
+    Assert.assertEquals(
+        new HashSet<>(
+            Arrays.asList(
+                "root requires x (,)",
+                "x 1.0.0 requires y [2-0,3-0)",
+                "x 2.0.0 requires y [2-0,3-0)")),
+        new HashSet<>(resolution.getConflict()));
+    Assert.assertTrue(resolution.getSteps() < 1000);
+  }
+
+  @Test
+  public void budget() {
+    VersionResolver resolver =
+        VersionResolver.builder()
+            .available("a", versions("1.0.0", "2.0.0"))
+            .available("b", versions("1.0.0"))
+            .requires("a", "2.0.0", "b", "^2")
+            .maxSteps(1)
+            .build();
+    VersionResolver.Resolution resolution = resolver.resolve(roots("a", "*"));
+    Assert.assertEquals(
+        VersionResolver.Resolution.Outcome.BUDGET_EXCEEDED, resolution.getOutcome());
+    Assert.assertTrue(resolution.getVersions().isEmpty());
+  }
+
+  private static VersionResolver layers(int maxNogoods) {
+    String[] four = {"1.0.0", "1.1.0", "1.2.0", "1.3.0"};
+    String[] many = new String[50];
+    for (int v = 0; v < many.length; ++v) {
+      many[v] = "1." + v + ".0";
+    }
+    VersionResolver.Builder builder =
+        VersionResolver.builder()
+            .available("e", versions(four))
+            .available("l", versions(four))
+            .available("x", versions(many))
+            .available("y", versions("1.0.0"))
+            .maxNogoods(maxNogoods);
+    for (String version : four) {
+      builder.requires("e", version, "l", "*").requires("l", version, "x", "*");
+    }
+    for (String version : many) {
+      builder.requires("x", version, "y", "^2");
+    }
+    return builder.build();
+  }
+
+  @Test
+  public void nogoods() {
+    // every version of l fails the same way, whatever the version of e
+    Map<String, VersionRange> roots = roots("e", "*");
+    VersionResolver.Resolution remembered = layers(1 << 16).resolve(roots);
+    VersionResolver.Resolution forgotten = layers(0).resolve(roots);
+    Assert.assertEquals(VersionResolver.Resolution.Outcome.CONFLICT, remembered.getOutcome());
+    Assert.assertEquals(forgotten.getConflict(), remembered.getConflict());
+    Assert.assertEquals(1 + 4 + 4 + 50, remembered.getConflict().size());
+    Assert.assertTrue(
+        remembered.getSteps() + " steps", remembered.getSteps() < forgotten.getSteps());
+  }
+}
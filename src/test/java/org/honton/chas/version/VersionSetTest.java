@@ -0,0 +1,140 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VersionSetTest {
+
+  private static final Comparator<SemVer> ORDER =
+      Comparator.<SemVer>naturalOrder().thenComparing(SemVer::getVersion);
+
+  private static String randomVersion(Random random) {
+    StringBuilder sb = new StringBuilder().append(random.nextInt(4));
+    for (int n = random.nextInt(4); n > 0; --n) {
+      sb.append('.').append(random.nextInt(4));
+    }
+    switch (random.nextInt(4)) {
+      case 0:
+        sb.append("-rc.").append(random.nextInt(3));
+        break;
+      case 1:
+        sb.append("-beta");
+        break;
+      default:
+        break;
+    }
+    if (random.nextInt(4) == 0) {
+      sb.append("+m").append(random.nextInt(2));
+    }
+    return sb.toString();
+  }
+
+  private static SemVer last(List<SemVer> sorted, Predicate<SemVer> test) {
+    SemVer found = null;
+    for (SemVer version : sorted) {
+      if (test.test(version)) {
+        found = version;
+      }
+    }
+    return found;
+  }
+
+  private static SemVer first(List<SemVer> sorted, Predicate<SemVer> test) {
+    for (SemVer version : sorted) {
+      if (test.test(version)) {
+        return version;
+      }
+    }
+    return null;
+  }
+
+  @Test
+  public void sameAsSortedList() {
+    Random random = new Random(17);
+    for (int trial = 0; trial < 50; ++trial) {
+      VersionSet.Builder builder = VersionSet.builder();
+      TreeSet<SemVer> distinct = new TreeSet<>(ORDER);
+      for (int n = random.nextInt(60); n > 0; --n) {
+        SemVer version = SemVer.valueOf(randomVersion(random));
+        builder.add(version);
+        distinct.add(version);
+      }
+      VersionSet set = builder.build();
+      List<SemVer> sorted = new ArrayList<>(distinct);
+      Assert.assertEquals(sorted.size(), set.size());
+      List<SemVer> iterated = new ArrayList<>();
+      set.forEach(iterated::add);
+      Assert.assertEquals(sorted, iterated);
+
+      for (int probe = 0; probe < 40; ++probe) {
+        SemVer v = SemVer.valueOf(randomVersion(random));
+        Assert.assertEquals(last(sorted, s -> s.compareTo(v) <= 0), set.floor(v));
+        Assert.assertEquals(last(sorted, s -> s.compareTo(v) < 0), set.lower(v));
+        Assert.assertEquals(first(sorted, s -> s.compareTo(v) >= 0), set.ceiling(v));
+        Assert.assertEquals(first(sorted, s -> s.compareTo(v) > 0), set.higher(v));
+        Assert.assertEquals(last(sorted, s -> s.isSupported(v)), set.latestSupporting(v));
+      }
+    }
+  }
+
+  @Test
+  public void testRanges() {
+    VersionSet set =
+        VersionSet.of(
+            Arrays.asList(
+                SemVer.valueOf("1.0.0"),
+                SemVer.valueOf("1.2.0"),
+                SemVer.valueOf("1.2.1"),
+                SemVer.valueOf("1.3.0-beta"),
+                SemVer.valueOf("2.0.0"),
+                SemVer.valueOf("2.1.0+build")));
+    VersionRange range = VersionRange.valueOf("~1.2 || >=2.1");
+    Assert.assertEquals(
+        Arrays.asList(
+            SemVer.valueOf("1.2.0"), SemVer.valueOf("1.2.1"), SemVer.valueOf("2.1.0+build")),
+        set.matching(range));
+    Assert.assertEquals(SemVer.valueOf("2.1.0+build"), set.latest(range));
+    Assert.assertEquals(
+        SemVer.valueOf("1.2.1"), set.latest(VersionRange.valueOf("[1.0.0,1.3.0-beta)")));
+    Assert.assertNull(set.latest(VersionRange.valueOf("^3")));
+
+    Assert.assertEquals(SemVer.valueOf("1.2.1"), set.nextPatch(SemVer.valueOf("1.2.0")));
+    Assert.assertNull(set.nextPatch(SemVer.valueOf("1.2.1")));
+
+    VersionSet sub = set.subSet(SemVer.valueOf("1.2.0"), false, SemVer.valueOf("2.0.0"), true);
+    Assert.assertEquals(3, sub.size());
+    Assert.assertEquals(SemVer.valueOf("1.2.1"), sub.first());
+    Assert.assertEquals(SemVer.valueOf("2.0.0"), sub.last());
+    Assert.assertNull(sub.floor(SemVer.valueOf("1.2.0")));
+    Assert.assertTrue(set.subSet(SemVer.valueOf("3.0.0"), true, null, false).isEmpty());
+  }
+
+  @Test
+  public void testBulkLoad() {
+    VersionSet.Builder builder = VersionSet.builder();
+    for (int i = 20_000; i > 0; --i) {
+      builder.add(i / 100 + "." + i % 100 + ".0");
+    }
+    VersionSet set = builder.build();
+    Assert.assertEquals(20_000, set.size());
+    Assert.assertEquals("0.1.0", set.first().getVersion());
+    Assert.assertEquals("200.0.0", set.last().getVersion());
+    Assert.assertEquals("5.99.0", set.latestSupporting(SemVer.valueOf("5.3")).getVersion());
+  }
+}
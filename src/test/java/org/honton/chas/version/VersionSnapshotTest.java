@@ -0,0 +1,155 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VersionSnapshotTest {
+
+  private static Map<String, String> inventory() {
+    Map<String, String> jars = new TreeMap<>();
+    jars.put("commons-lang3-3.12.0.jar", "3.12.0+org.apache.commons-commons-lang3");
+    jars.put("commons-text-1.10.0.jar", "1.10.0+org.apache.commons-commons-text");
+    jars.put("guava-31.1-jre.jar", "31.1-jre+com.google.guava-guava");
+    jars.put("netty-buffer-4.1.86.Final.jar", "4.1.86.Final+io.netty-netty-buffer");
+    jars.put("module.jar", "2.0.0+org.example.module");
+    jars.put("plain.jar", "1.0");
+    jars.put("unversioned.jar", null);
+    jars.put("terminated.jar", "1.0\n");
+    jars.put("empty-parts.jar", "1.0-+");
+    jars.put("ünïcode.jar", "0.1.2-rc.1+g-ü");
+    return jars;
+  }
+
+  private static byte[] snapshot(Map<String, String> jars) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    VersionSnapshot.write(out, jars);
+    return out.toByteArray();
+  }
+
+  @Test
+  public void inventoryRoundTrip() throws IOException {
+    Map<String, String> jars = inventory();
+    byte[] bytes = snapshot(jars);
+    try (VersionSnapshot.Reader reader = VersionSnapshot.reader(new ByteArrayInputStream(bytes))) {
+      Assert.assertEquals(jars, reader.toMap());
+      Assert.assertFalse(reader.next());
+    }
+    Assert.assertTrue(bytes.length < jars.toString().length());
+  }
+
+  @Test
+  public void bufferReader() throws IOException {
+    byte[] bytes = snapshot(inventory());
+    ByteBuffer heap = ByteBuffer.allocate(bytes.length + 3);
+    heap.position(3);
+    heap.put(bytes).position(3);
+    ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+    direct.put(bytes).flip();
+
+    for (ByteBuffer buffer : Arrays.asList(heap, direct)) {
+      int position = buffer.position();
+      Assert.assertEquals(inventory(), VersionSnapshot.reader(buffer).toMap());
+      Assert.assertEquals(position, buffer.position());
+    }
+  }
+
+  @Test
+  public void streaming() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (VersionSnapshot.Writer writer = VersionSnapshot.writer(out)) {
+      writer.write("a.jar", "1.2.3");
+      writer.write("b.jar", SemVer.valueOf("1.2.4-SNAPSHOT"));
+      writer.write("c.jar", (String) null);
+    }
+    VersionSnapshot.Reader reader = VersionSnapshot.reader(ByteBuffer.wrap(out.toByteArray()));
+    Assert.assertTrue(reader.next());
+    Assert.assertEquals("a.jar", reader.getName());
+    Assert.assertEquals(1, reader.getMajor());
+    Assert.assertEquals(SemVer.valueOf("1.2.3"), reader.getSemVer());
+    Assert.assertTrue(reader.next());
+    Assert.assertEquals("b.jar", reader.getName());
+    Assert.assertEquals("1.2.4-SNAPSHOT", reader.getVersion());
+    Assert.assertTrue(reader.next());
+    Assert.assertEquals("c.jar", reader.getName());
+    Assert.assertNull(reader.getVersion());
+    Assert.assertNull(reader.getSemVer());
+    Assert.assertEquals(-1, reader.getMajor());
+    Assert.assertFalse(reader.next());
+    Assert.assertFalse(reader.next());
+  }
+
+  @Test
+  public void versionSetRoundTrip() throws IOException {
+    VersionSet.Builder builder = VersionSet.builder();
+    for (int major = 0; major < 5; ++major) {
+      for (int minor = 0; minor < 20; ++minor) {
+        for (int patch = 0; patch < 10; ++patch) {
+          builder.add(major + "." + minor + '.' + patch);
+        }
+        builder.add(major + "." + minor + ".0-rc.1");
+      }
+    }
+    VersionSet versions = builder.build();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    VersionSnapshot.write(out, versions);
+    byte[] bytes = out.toByteArray();
+    VersionSet read = VersionSnapshot.reader(ByteBuffer.wrap(bytes)).toVersionSet();
+    Assert.assertEquals(versions.size(), read.size());
+    for (int i = 0; i < versions.size(); ++i) {
+      Assert.assertEquals(versions.get(i), read.get(i));
+    }
+    // a header, the packed ordinal count, a changed ordinal, and any pre-release reference
+    Assert.assertTrue(bytes.length < 4 * versions.size());
+  }
+
+  @Test
+  public void jarVersionsRoundTrip() throws IOException {
+    JarVersions jarVersions = new JarVersions(inventory());
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    jarVersions.writeSnapshot(out);
+    JarVersions read = JarVersions.readSnapshot(new ByteArrayInputStream(out.toByteArray()));
+    Assert.assertEquals(inventory(), read.getDependentJars());
+  }
+
+  private static void assertMalformed(byte[] bytes) {
+    try {
+      VersionSnapshot.reader(ByteBuffer.wrap(bytes)).toMap();
+      Assert.fail(Arrays.toString(bytes));
+    } catch (IOException expected) {
+      // expected
+    }
+  }
+
+  @Test
+  public void malformed() throws IOException {
+    assertMalformed("SVX".getBytes(StandardCharsets.US_ASCII));
+    assertMalformed(new byte[] {'S', 'V', 'S', 9});
+    byte[] bytes = snapshot(inventory());
+    // truncated
+    assertMalformed(Arrays.copyOf(bytes, bytes.length - 1));
+    // unknown entry header
+    assertMalformed(new byte[] {'S', 'V', 'S', 1, 32});
+    // name prefix longer than the previous name
+    assertMalformed(new byte[] {'S', 'V', 'S', 1, 1 | 4, 3, 0, 0});
+    // pre-release reference to a string not in the table
+    assertMalformed(new byte[] {'S', 'V', 'S', 1, 2 | 8, 1 << 4, 1, 5, 0});
+  }
+}
@@ -0,0 +1,203 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class VersionTableTest {
+
+  private static final String[] VERSIONS = {
+    "1.2.3",
+    "1.2.3-SNAPSHOT",
+    "1.2.3-alpha.1",
+    "1.2.3-alpha.01",
+    "1.2.3-alpha.beta",
+    "1.2.3-alpha.10",
+    "1.2.3-1234567890123456789012",
+    "1.2.3-999",
+    "1.2.3+build.5",
+    "1.2",
+    "1.2.0",
+    "1.10.0",
+    "1.2.3.4",
+    "2.0.0-rc.1+org.example-core",
+    "2.0.0",
+    "3000000.0.0",
+    "2147483647.2147483647.2147483647",
+    "0.0.1"
+  };
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private static VersionTable table() {
+    VersionTable.Builder builder = VersionTable.builder();
+    for (String version : VERSIONS) {
+      builder.add(version);
+    }
+    return builder.build();
+  }
+
+  private static void assertTable(VersionTable table) {
+    Assert.assertEquals(VERSIONS.length, table.size());
+    for (int row = 0; row < VERSIONS.length; ++row) {
+      SemVer expected = SemVer.valueOf(VERSIONS[row]);
+      Assert.assertEquals(VERSIONS[row], table.getVersion(row));
+      Assert.assertEquals(expected, table.get(row));
+      Assert.assertEquals(expected.getOrdinals().length, table.getOrdinalCount(row));
+      Assert.assertEquals(expected.getMajor(), table.getOrdinal(row, 0));
+      Assert.assertEquals(expected.getPreRelease(), table.getPreRelease(row));
+      Assert.assertEquals(expected.getMetadata(), table.getMetadata(row));
+    }
+  }
+
+  @Test
+  public void columns() {
+    assertTable(table());
+    VersionTable table = VersionTable.builder().add("1.0.0-beta\n").build();
+    Assert.assertEquals("1.0.0-beta", table.getVersion(0));
+  }
+
+  @Test
+  public void semVers() {
+    List<SemVer> versions = new ArrayList<>();
+    for (String version : VERSIONS) {
+      versions.add(SemVer.valueOf(version));
+    }
+    VersionTable table = VersionTable.builder().addAll(versions).build();
+    assertTable(table);
+  }
+
+  @Test
+  public void isSupported() {
+    VersionTable table = table();
+    for (String expected : VERSIONS) {
+      SemVer semVer = SemVer.valueOf(expected);
+      List<Integer> supporting = new ArrayList<>();
+      for (int row = 0; row < VERSIONS.length; ++row) {
+        boolean supported = SemVer.valueOf(VERSIONS[row]).isSupported(semVer);
+        Assert.assertEquals(
+            VERSIONS[row] + " supports " + expected, supported, table.isSupported(row, semVer));
+        if (supported) {
+          supporting.add(row);
+        }
+      }
+      Assert.assertEquals(supporting.toString(), Arrays.toString(table.filterSupported(semVer)));
+    }
+  }
+
+  @Test
+  public void sort() {
+    VersionTable table = table();
+    for (int left = 0; left < VERSIONS.length; ++left) {
+      for (int right = 0; right < VERSIONS.length; ++right) {
+        Assert.assertEquals(
+            VERSIONS[left] + " <> " + VERSIONS[right],
+            Integer.signum(
+                SemVer.valueOf(VERSIONS[left]).compareTo(SemVer.valueOf(VERSIONS[right]))),
+            Integer.signum(table.compare(left, right)));
+      }
+    }
+
+    // many rows, to sort by merging
+    VersionTable.Builder builder = VersionTable.builder();
+    List<SemVer> expected = new ArrayList<>();
+    for (int i = 0; i < 40; ++i) {
+      for (String version : VERSIONS) {
+        builder.add(version);
+        expected.add(SemVer.valueOf(version));
+      }
+    }
+    // a stable sort, as is the table's
+    expected.sort(SemVer::compareTo);
+    VersionTable large = builder.build();
+    int[] rows = large.sortedRows();
+    for (int i = 0; i < rows.length; ++i) {
+      Assert.assertEquals(expected.get(i).getVersion(), large.getVersion(rows[i]));
+      if (i > 0 && large.compare(rows[i - 1], rows[i]) == 0) {
+        Assert.assertTrue(rows[i - 1] < rows[i]);
+      }
+    }
+  }
+
+  @Test
+  public void sharedArena() {
+    VersionTable.Builder builder = VersionTable.builder();
+    for (int i = 0; i < 1000; ++i) {
+      builder.add("1." + i + ".0-SNAPSHOT+org.example-core");
+    }
+    VersionTable table = builder.build();
+    // three ordinals, their start, and two arena offsets, with each string held once
+    int arena = 2 * Integer.BYTES + "SNAPSHOT".length() + "org.example-core".length();
+    Assert.assertEquals(16 + Integer.BYTES * (1 + 1000 * 6) + arena, table.getBuffer().remaining());
+    Assert.assertEquals("1.999.0-SNAPSHOT+org.example-core", table.getVersion(999));
+  }
+
+  @Test
+  public void mappedFile() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("versions.svt");
+    VersionTable.Builder builder = VersionTable.builder();
+    for (String version : VERSIONS) {
+      builder.add(version);
+    }
+    assertTable(builder.build(file));
+    assertTable(VersionTable.open(file));
+  }
+
+  @Test
+  public void wrap() {
+    ByteBuffer source = table().getBuffer();
+    ByteBuffer buffer = ByteBuffer.allocate(source.remaining() + 3);
+    buffer.put(new byte[3]).put(source).position(3);
+    assertTable(VersionTable.wrap(buffer));
+    Assert.assertEquals(3, buffer.position());
+
+    ByteBuffer truncated = table().getBuffer();
+    truncated.limit(truncated.limit() - 1);
+    assertMalformed(truncated, "truncated version table");
+    assertMalformed(ByteBuffer.wrap(new byte[20]), "not a version table");
+    assertMalformed(
+        ByteBuffer.wrap(new byte[] {'S', 'V', 'T', 9, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0}),
+        "unknown version table format 9");
+  }
+
+  private static void assertMalformed(ByteBuffer buffer, String message) {
+    try {
+      VersionTable.wrap(buffer);
+      Assert.fail(message);
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals(message, e.getMessage());
+    }
+  }
+
+  @Test
+  public void improper() {
+    try {
+      VersionTable.builder().add("1.02");
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals("1.02 is not a proper semantic version", e.getMessage());
+    }
+    try {
+      table().getVersion(VERSIONS.length);
+      Assert.fail();
+    } catch (IndexOutOfBoundsException e) {
+      Assert.assertEquals(Integer.toString(VERSIONS.length), e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,68 @@
+/**
+ * Apache 2.0 Licensed. See the LICENSE file distributed with this work for additional information
+ * regarding copyright ownership. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.honton.chas.version;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.ZipException;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ZipArchiveTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private static String readPom(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      ZipArchive archive = ZipArchive.read(channel, 0, channel.size());
+      ZipArchive.VersionEntries entries = archive.findVersionEntries();
+      Assert.assertNotNull(entries.manifest);
+      return new String(archive.readContents(entries.pomProperties), StandardCharsets.ISO_8859_1);
+    }
+  }
+
+  @Test
+  public void deflated() throws IOException {
+    File jar = TestJars.mavenJar(folder.newFile(), "g", "a", "1.0", 100, false);
+    Assert.assertEquals(TestJars.pomProperties("g", "a", "1.0"), readPom(jar));
+  }
+
+  @Test
+  public void stored() throws IOException {
+    File jar = TestJars.mavenJar(folder.newFile(), "g", "a", "1.0", 100, true);
+    Assert.assertEquals(TestJars.pomProperties("g", "a", "1.0"), readPom(jar));
+  }
+
+  @Test
+  public void prependedScript() throws IOException {
+    File jar = folder.newFile();
+    try (OutputStream os = new FileOutputStream(jar)) {
+      os.write("#!/bin/sh\nexec java -jar $0\n".getBytes(StandardCharsets.US_ASCII));
+      os.write(TestJars.mavenJar("g", "a", "2.0", 3, false));
+    }
+    Assert.assertEquals(TestJars.pomProperties("g", "a", "2.0"), readPom(jar));
+  }
+
+  @Test(expected = ZipException.class)
+  public void notAnArchive() throws IOException {
+    File file = folder.newFile();
+    try (OutputStream os = new FileOutputStream(file)) {
+      os.write(new byte[100]);
+    }
+    readPom(file);
+  }
+}